@@ -0,0 +1,252 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2020 NBCO YooMoney LLC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.yoo.money.api.analytics;
+
+import com.yoo.money.api.model.Currency;
+import com.yoo.money.api.model.Operation;
+
+import java.math.BigDecimal;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+import static com.yoo.money.api.util.Common.checkNotNull;
+
+/**
+ * Computes totals of operations grouped by {@link OperationGrouping} in a single pass. Sums are exact.
+ * <p>
+ * Amounts of different currencies are never summed together: aggregation fails if a group contains operations in
+ * different currencies. Use {@link OperationGrouping#byCurrency()} or aggregate operations of each currency separately
+ * if operations may be in several currencies. Operations without currency can be added to any group.
+ * <p>
+ * Operations can be aggregated sequentially from any source (e.g. while paging through operation history) or in
+ * parallel from a list. In the latter case the list is split into contiguous ranges which are aggregated using
+ * fork-join framework and then merged; for operation history these ranges are ranges of time.
+ * <p>
+ * Instances of this class are immutable and thread safe as long as grouping is.
+ *
+ * @param <K> type of group keys
+ */
+public final class OperationAggregator<K> {
+
+    private static final int DEFAULT_THRESHOLD = 4096;
+
+    private final OperationGrouping<K> grouping;
+    private final Operation.Direction direction;
+
+    /**
+     * Constructor.
+     *
+     * @param grouping grouping of operations
+     */
+    public OperationAggregator(OperationGrouping<K> grouping) {
+        this(grouping, null);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param grouping grouping of operations
+     * @param direction direction of operations to aggregate or {@code null} to aggregate all operations
+     */
+    public OperationAggregator(OperationGrouping<K> grouping, Operation.Direction direction) {
+        this.grouping = checkNotNull(grouping, "grouping");
+        this.direction = direction;
+    }
+
+    /**
+     * Aggregates operations sequentially.
+     *
+     * @param operations operations
+     * @return totals by groups, sorted by keys if keys are comparable
+     * @throws IllegalArgumentException if a group contains operations in different currencies
+     */
+    public Map<K, OperationTotals> aggregate(Iterable<? extends Operation> operations) {
+        return aggregate(checkNotNull(operations, "operations").iterator());
+    }
+
+    /**
+     * Aggregates operations sequentially.
+     *
+     * @param operations iterator of operations
+     * @return totals by groups, sorted by keys if keys are comparable
+     * @throws IllegalArgumentException if a group contains operations in different currencies
+     */
+    public Map<K, OperationTotals> aggregate(Iterator<? extends Operation> operations) {
+        checkNotNull(operations, "operations");
+        Accumulator<K> accumulator = new Accumulator<>();
+        while (operations.hasNext()) {
+            add(accumulator, operations.next());
+        }
+        return accumulator.getTotals();
+    }
+
+    /**
+     * Aggregates operations in parallel using common fork-join pool.
+     *
+     * @param operations operations, should support fast random access
+     * @return totals by groups, sorted by keys if keys are comparable
+     * @throws IllegalArgumentException if a group contains operations in different currencies
+     */
+    public Map<K, OperationTotals> aggregateParallel(List<? extends Operation> operations) {
+        return aggregateParallel(operations, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Aggregates operations in parallel using specified fork-join pool.
+     *
+     * @param operations operations, should support fast random access
+     * @param pool pool to use
+     * @return totals by groups, sorted by keys if keys are comparable
+     * @throws IllegalArgumentException if a group contains operations in different currencies
+     */
+    public Map<K, OperationTotals> aggregateParallel(List<? extends Operation> operations, ForkJoinPool pool) {
+        checkNotNull(operations, "operations");
+        return checkNotNull(pool, "pool")
+                .invoke(new AggregateTask(operations, 0, operations.size()))
+                .getTotals();
+    }
+
+    private void add(Accumulator<K> accumulator, Operation operation) {
+        if (direction == null || direction == operation.direction) {
+            accumulator.currency = operation.amountCurrency;
+            grouping.group(operation, accumulator);
+        }
+    }
+
+    private final class AggregateTask extends RecursiveTask<Accumulator<K>> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final List<? extends Operation> operations;
+        private final int from;
+        private final int till;
+
+        AggregateTask(List<? extends Operation> operations, int from, int till) {
+            this.operations = operations;
+            this.from = from;
+            this.till = till;
+        }
+
+        @Override
+        protected Accumulator<K> compute() {
+            if (till - from <= DEFAULT_THRESHOLD) {
+                Accumulator<K> accumulator = new Accumulator<>();
+                for (int i = from; i < till; ++i) {
+                    add(accumulator, operations.get(i));
+                }
+                return accumulator;
+            }
+
+            int middle = (from + till) >>> 1;
+            AggregateTask left = new AggregateTask(operations, from, middle);
+            left.fork();
+            Accumulator<K> right = new AggregateTask(operations, middle, till).compute();
+            return left.join().merge(right);
+        }
+    }
+
+    private static final class Accumulator<K> implements OperationGrouping.Sink<K> {
+
+        private final Map<K, Totals> totals = new HashMap<>();
+
+        /**
+         * Currency of the operation being grouped.
+         */
+        Currency currency;
+
+        @Override
+        public void add(K key, BigDecimal amount, BigDecimal fee) {
+            Totals value = totals.get(key);
+            if (value == null) {
+                value = new Totals();
+                totals.put(key, value);
+            }
+            value.add(key, 1L, amount, fee, currency);
+        }
+
+        Accumulator<K> merge(Accumulator<K> other) {
+            for (Map.Entry<K, Totals> entry : other.totals.entrySet()) {
+                Totals value = totals.get(entry.getKey());
+                if (value == null) {
+                    totals.put(entry.getKey(), entry.getValue());
+                } else {
+                    Totals source = entry.getValue();
+                    value.add(entry.getKey(), source.count, source.amount, source.fee, source.currency);
+                }
+            }
+            return this;
+        }
+
+        Map<K, OperationTotals> getTotals() {
+            Map<K, OperationTotals> result = isComparable() ? new TreeMap<K, OperationTotals>()
+                    : new HashMap<K, OperationTotals>(totals.size() * 2);
+            for (Map.Entry<K, Totals> entry : totals.entrySet()) {
+                Totals value = entry.getValue();
+                result.put(entry.getKey(), new OperationTotals(value.count, value.amount, value.fee, value.currency));
+            }
+            return result;
+        }
+
+        private boolean isComparable() {
+            for (K key : totals.keySet()) {
+                if (!(key instanceof Comparable)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    private static final class Totals {
+
+        long count;
+        BigDecimal amount = BigDecimal.ZERO;
+        BigDecimal fee = BigDecimal.ZERO;
+        Currency currency;
+
+        void add(Object key, long count, BigDecimal amount, BigDecimal fee, Currency currency) {
+            if (currency != null) {
+                if (this.currency == null) {
+                    this.currency = currency;
+                } else if (this.currency != currency) {
+                    throw new IllegalArgumentException("group " + key + " contains operations in " + this.currency +
+                            " and " + currency);
+                }
+            }
+            this.count += count;
+            if (amount != null) {
+                this.amount = this.amount.add(amount);
+            }
+            if (fee != null) {
+                this.fee = this.fee.add(fee);
+            }
+        }
+    }
+}
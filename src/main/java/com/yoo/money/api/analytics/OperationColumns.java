@@ -0,0 +1,638 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2020 NBCO YooMoney LLC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.yoo.money.api.analytics;
+
+import com.yoo.money.api.model.Currency;
+import com.yoo.money.api.model.Operation;
+import com.yoo.money.api.model.OperationStatus;
+import com.yoo.money.api.model.SpendingCategory;
+import com.yoo.money.api.time.CivilDays;
+import com.yoo.money.api.time.DateTime;
+
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TimeZone;
+import java.util.TreeMap;
+
+import static com.yoo.money.api.util.Common.checkNotNull;
+
+/**
+ * Compact column-wise storage of operations. Each column is kept in its own off-heap {@link ByteBuffer}: amounts are
+ * stored as longs scaled by {@link #scale}, date times as epoch milliseconds, enums as bytes and strings as indices in
+ * a dictionary of distinct values.
+ * <p>
+ * Only the following fields of an operation are stored: operation id, status, pattern id, direction, type, amount,
+ * amount currency, fee, date time, title, label and spending categories. Operations are materialized on demand with
+ * these fields only; amounts are restored with scale of the columns.
+ * <p>
+ * Amounts in different currencies are never summed together: every sum is computed for operations in one currency,
+ * see {@link #getCurrencies()}.
+ * <p>
+ * Instances of this class are immutable and can be shared between threads. Use {@link Builder} to create them.
+ */
+public final class OperationColumns implements Iterable<Operation> {
+
+    private static final byte NULL_ENUM = -1;
+    private static final int NULL_STRING = -1;
+    private static final long NULL_LONG = Long.MIN_VALUE;
+
+    private static final OperationStatus[] STATUSES = OperationStatus.values();
+    private static final Operation.Direction[] DIRECTIONS = Operation.Direction.values();
+    private static final Operation.Type[] TYPES = Operation.Type.values();
+    private static final Currency[] CURRENCIES = Currency.values();
+
+    /**
+     * Number of digits after the decimal point in scaled amounts.
+     */
+    public final int scale;
+
+    private final int size;
+    private final String[] dictionary;
+    private final TimeZone[] timeZones;
+
+    private final ByteBuffer operationIds;
+    private final ByteBuffer statuses;
+    private final ByteBuffer patternIds;
+    private final ByteBuffer directions;
+    private final ByteBuffer types;
+    private final ByteBuffer amounts;
+    private final ByteBuffer amountCurrencies;
+    private final ByteBuffer fees;
+    private final ByteBuffer datetimes;
+    private final ByteBuffer timeZoneIds;
+    private final ByteBuffer titles;
+    private final ByteBuffer labels;
+
+    private final ByteBuffer categoryOffsets;
+    private final ByteBuffer categoryNames;
+    private final ByteBuffer categorySums;
+
+    OperationColumns(Builder builder) {
+        scale = builder.scale;
+        size = builder.size;
+        dictionary = builder.dictionary.toArray(new String[builder.dictionary.size()]);
+        timeZones = new TimeZone[dictionary.length];
+        for (Map.Entry<Integer, TimeZone> entry : builder.timeZones.entrySet()) {
+            timeZones[entry.getKey()] = entry.getValue();
+        }
+
+        operationIds = builder.operationIds.seal();
+        statuses = builder.statuses.seal();
+        patternIds = builder.patternIds.seal();
+        directions = builder.directions.seal();
+        types = builder.types.seal();
+        amounts = builder.amounts.seal();
+        amountCurrencies = builder.amountCurrencies.seal();
+        fees = builder.fees.seal();
+        datetimes = builder.datetimes.seal();
+        timeZoneIds = builder.timeZoneIds.seal();
+        titles = builder.titles.seal();
+        labels = builder.labels.seal();
+
+        categoryOffsets = builder.categoryOffsets.seal();
+        categoryNames = builder.categoryNames.seal();
+        categorySums = builder.categorySums.seal();
+    }
+
+    /**
+     * @return number of stored operations
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Materializes an operation.
+     *
+     * @param index index of an operation
+     * @return operation
+     */
+    public Operation get(int index) {
+        checkIndex(index);
+
+        Operation.Builder builder = new Operation.Builder()
+                .setOperationId(getString(operationIds, index))
+                .setStatus(getEnum(STATUSES, statuses, index))
+                .setPatternId(getString(patternIds, index))
+                .setDirection(getEnum(DIRECTIONS, directions, index))
+                .setType(getEnum(TYPES, types, index))
+                .setAmount(getDecimal(amounts.getLong(index * 8)))
+                .setAmountCurrency(getCurrency(index))
+                .setFee(getDecimal(fees.getLong(index * 8)))
+                .setDatetime(getDatetime(index))
+                .setTitle(getString(titles, index))
+                .setLabel(getString(labels, index));
+
+        int from = categoryOffsets.getInt(index * 4);
+        int till = categoryOffsets.getInt(index * 4 + 4);
+        if (from < till) {
+            List<SpendingCategory> categories = new ArrayList<>(till - from);
+            for (int i = from; i < till; ++i) {
+                categories.add(new SpendingCategory(dictionary[categoryNames.getInt(i * 4)],
+                        getDecimal(categorySums.getLong(i * 8))));
+            }
+            builder.setSpendingCategories(categories);
+        }
+        return builder.create();
+    }
+
+    /**
+     * @param index index of an operation
+     * @return epoch milliseconds of an operation's date time or {@link Long#MIN_VALUE} if there is no date time
+     */
+    public long getEpochMillis(int index) {
+        checkIndex(index);
+        return datetimes.getLong(index * 8);
+    }
+
+    /**
+     * @param index index of an operation
+     * @return scaled amount of an operation or {@link Long#MIN_VALUE} if there is no amount
+     */
+    public long getScaledAmount(int index) {
+        checkIndex(index);
+        return amounts.getLong(index * 8);
+    }
+
+    /**
+     * @param index index of an operation
+     * @return direction of an operation
+     */
+    public Operation.Direction getDirection(int index) {
+        checkIndex(index);
+        return getEnum(DIRECTIONS, directions, index);
+    }
+
+    /**
+     * Iterates over operations materializing them one by one.
+     *
+     * @return iterator
+     */
+    @Override
+    public Iterator<Operation> iterator() {
+        return new Iterator<Operation>() {
+
+            private int index;
+
+            @Override
+            public boolean hasNext() {
+                return index < size;
+            }
+
+            @Override
+            public Operation next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return get(index++);
+            }
+
+            @Override
+            public void remove() {
+                throw new UnsupportedOperationException("columns are immutable");
+            }
+        };
+    }
+
+    /**
+     * @return currencies of operations' amounts, operations without currency are not taken into account
+     */
+    public Set<Currency> getCurrencies() {
+        boolean[] present = new boolean[CURRENCIES.length];
+        Set<Currency> result = EnumSet.noneOf(Currency.class);
+        for (int i = 0; i < size; ++i) {
+            short currency = amountCurrencies.getShort(i * 2);
+            if (currency != NULL_ENUM && !present[currency]) {
+                present[currency] = true;
+                result.add(CURRENCIES[currency]);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Sums amounts by directions of operations. Operations without direction are skipped.
+     *
+     * @param currency currency of operations to include or {@code null} to include operations without currency
+     * @return map of sums
+     */
+    public Map<Operation.Direction, BigDecimal> sumAmountsByDirection(Currency currency) {
+        long[] sums = new long[DIRECTIONS.length];
+        boolean[] present = new boolean[DIRECTIONS.length];
+        for (int i = 0; i < size; ++i) {
+            byte direction = directions.get(i);
+            long amount = amounts.getLong(i * 8);
+            if (direction != NULL_ENUM && amount != NULL_LONG && matches(currency, i)) {
+                sums[direction] += amount;
+                present[direction] = true;
+            }
+        }
+
+        Map<Operation.Direction, BigDecimal> result = new EnumMap<>(Operation.Direction.class);
+        for (int i = 0; i < sums.length; ++i) {
+            if (present[i]) {
+                result.put(DIRECTIONS[i], getDecimal(sums[i]));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Sums spending categories by their names.
+     *
+     * @param direction direction of operations to include or {@code null} to include all operations
+     * @param currency currency of operations to include or {@code null} to include operations without currency
+     * @return map of sums
+     */
+    public Map<String, BigDecimal> sumSpendingCategories(Operation.Direction direction, Currency currency) {
+        long[] sums = new long[dictionary.length];
+        boolean[] present = new boolean[dictionary.length];
+        for (int i = 0; i < size; ++i) {
+            if (matches(direction, i) && matches(currency, i)) {
+                int till = categoryOffsets.getInt(i * 4 + 4);
+                for (int j = categoryOffsets.getInt(i * 4); j < till; ++j) {
+                    int name = categoryNames.getInt(j * 4);
+                    sums[name] += categorySums.getLong(j * 8);
+                    present[name] = true;
+                }
+            }
+        }
+
+        Map<String, BigDecimal> result = new LinkedHashMap<>();
+        for (int i = 0; i < sums.length; ++i) {
+            if (present[i]) {
+                result.put(dictionary[i], getDecimal(sums[i]));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Sums amounts by days. Operations without date time are skipped.
+     *
+     * @param direction direction of operations to include or {@code null} to include all operations
+     * @param currency currency of operations to include or {@code null} to include operations without currency
+     * @param timeZone time zone to determine days in
+     * @return sums keyed by start of a day in specified time zone, sorted by days
+     */
+    public SortedMap<DateTime, BigDecimal> sumAmountsByDay(Operation.Direction direction, Currency currency,
+                                                           TimeZone timeZone) {
+        checkNotNull(timeZone, "timeZone");
+
+        Map<Long, long[]> sums = new HashMap<>();
+        long currentDay = Long.MIN_VALUE;
+        long[] currentSum = null;
+        for (int i = 0; i < size; ++i) {
+            long millis = datetimes.getLong(i * 8);
+            long amount = amounts.getLong(i * 8);
+            if (millis == NULL_LONG || amount == NULL_LONG || !matches(direction, i) || !matches(currency, i)) {
+                continue;
+            }
+
+            long day = CivilDays.localDay(millis, timeZone);
+            if (day != currentDay) {
+                // operations are usually sorted by date time, so the same day is used in a row
+                currentDay = day;
+                currentSum = sums.get(day);
+                if (currentSum == null) {
+                    currentSum = new long[1];
+                    sums.put(day, currentSum);
+                }
+            }
+            currentSum[0] += amount;
+        }
+
+        SortedMap<DateTime, BigDecimal> result = new TreeMap<>();
+        for (Map.Entry<Long, long[]> entry : sums.entrySet()) {
+            long localMillis = entry.getKey() * CivilDays.MILLIS_PER_DAY;
+            DateTime day = DateTime.from(localMillis - timeZone.getOffset(localMillis), timeZone)
+                    .withTimeAtStartOfDay();
+            result.put(day, getDecimal(entry.getValue()[0]));
+        }
+        return result;
+    }
+
+    private boolean matches(Operation.Direction direction, int index) {
+        return direction == null || directions.get(index) == direction.ordinal();
+    }
+
+    private boolean matches(Currency currency, int index) {
+        return amountCurrencies.getShort(index * 2) == (currency == null ? NULL_ENUM : currency.ordinal());
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("index=" + index + ", size=" + size);
+        }
+    }
+
+    private String getString(ByteBuffer column, int index) {
+        int value = column.getInt(index * 4);
+        return value == NULL_STRING ? null : dictionary[value];
+    }
+
+    private static <T> T getEnum(T[] values, ByteBuffer column, int index) {
+        byte value = column.get(index);
+        return value == NULL_ENUM ? null : values[value];
+    }
+
+    private Currency getCurrency(int index) {
+        short value = amountCurrencies.getShort(index * 2);
+        return value == NULL_ENUM ? null : CURRENCIES[value];
+    }
+
+    private BigDecimal getDecimal(long value) {
+        return value == NULL_LONG ? null : BigDecimal.valueOf(value, scale);
+    }
+
+    private DateTime getDatetime(int index) {
+        long millis = datetimes.getLong(index * 8);
+        if (millis == NULL_LONG) {
+            return null;
+        }
+
+        int zone = timeZoneIds.getInt(index * 4);
+        return zone == NULL_STRING ? DateTime.from(millis) : DateTime.from(millis, timeZones[zone]);
+    }
+
+    /**
+     * Creates {@link OperationColumns}.
+     */
+    public static class Builder {
+
+        int scale = 2;
+        int size;
+        List<String> dictionary = new ArrayList<>();
+        Map<Integer, TimeZone> timeZones = new HashMap<>();
+
+        private Map<String, Integer> dictionaryIndex = new HashMap<>();
+        private int initialCapacity = 1024;
+
+        Column operationIds;
+        Column statuses;
+        Column patternIds;
+        Column directions;
+        Column types;
+        Column amounts;
+        Column amountCurrencies;
+        Column fees;
+        Column datetimes;
+        Column timeZoneIds;
+        Column titles;
+        Column labels;
+
+        Column categoryOffsets;
+        Column categoryNames;
+        Column categorySums;
+
+        /**
+         * Sets number of digits after the decimal point in amounts. Adding an amount which cannot be represented with
+         * this scale without rounding causes {@link ArithmeticException}.
+         *
+         * @param scale scale of amounts, 2 by default
+         * @return itself
+         */
+        public Builder setScale(int scale) {
+            if (size > 0) {
+                throw new IllegalStateException("scale can not be changed after operations are added");
+            }
+            if (scale < 0 || scale > 18) {
+                throw new IllegalArgumentException("scale is out of range: " + scale);
+            }
+            this.scale = scale;
+            return this;
+        }
+
+        /**
+         * @param initialCapacity expected number of operations
+         * @return itself
+         */
+        public Builder setInitialCapacity(int initialCapacity) {
+            if (initialCapacity < 1) {
+                throw new IllegalArgumentException("initialCapacity should be positive");
+            }
+            this.initialCapacity = initialCapacity;
+            return this;
+        }
+
+        /**
+         * Adds operation to columns.
+         *
+         * @param operation operation to add
+         * @return itself
+         */
+        public Builder add(Operation operation) {
+            checkNotNull(operation, "operation");
+            if (operationIds == null) {
+                allocate();
+            }
+
+            operationIds.putInt(size, getIndex(operation.operationId));
+            statuses.put(size, getOrdinal(operation.status));
+            patternIds.putInt(size, getIndex(operation.patternId));
+            directions.put(size, getOrdinal(operation.direction));
+            types.put(size, getOrdinal(operation.type));
+            amounts.putLong(size, scale(operation.amount));
+            amountCurrencies.putShort(size, operation.amountCurrency == null
+                    ? NULL_ENUM : (short) operation.amountCurrency.ordinal());
+            fees.putLong(size, scale(operation.fee));
+            datetimes.putLong(size, operation.datetime == null ? NULL_LONG : operation.datetime.getDate().getTime());
+            timeZoneIds.putInt(size, getTimeZoneIndex(operation.datetime));
+            titles.putInt(size, getIndex(operation.title));
+            labels.putInt(size, getIndex(operation.label));
+
+            int categories = categoryOffsets.getInt(size);
+            if (operation.spendingCategories != null) {
+                for (SpendingCategory category : operation.spendingCategories) {
+                    categoryNames.putInt(categories, getIndex(category.name));
+                    categorySums.putLong(categories, scale(category.sum));
+                    ++categories;
+                }
+            }
+            ++size;
+            categoryOffsets.putInt(size, categories);
+            return this;
+        }
+
+        /**
+         * Adds operations to columns.
+         *
+         * @param operations operations to add
+         * @return itself
+         */
+        public Builder addAll(Iterable<? extends Operation> operations) {
+            for (Operation operation : checkNotNull(operations, "operations")) {
+                add(operation);
+            }
+            return this;
+        }
+
+        /**
+         * Creates columns. The builder starts from scratch after this call.
+         *
+         * @return columns
+         */
+        public OperationColumns create() {
+            if (operationIds == null) {
+                allocate();
+            }
+            OperationColumns columns = new OperationColumns(this);
+            size = 0;
+            dictionary = new ArrayList<>();
+            timeZones = new HashMap<>();
+            dictionaryIndex = new HashMap<>();
+            operationIds = null;
+            return columns;
+        }
+
+        private void allocate() {
+            operationIds = new Column(4, initialCapacity);
+            statuses = new Column(1, initialCapacity);
+            patternIds = new Column(4, initialCapacity);
+            directions = new Column(1, initialCapacity);
+            types = new Column(1, initialCapacity);
+            amounts = new Column(8, initialCapacity);
+            amountCurrencies = new Column(2, initialCapacity);
+            fees = new Column(8, initialCapacity);
+            datetimes = new Column(8, initialCapacity);
+            timeZoneIds = new Column(4, initialCapacity);
+            titles = new Column(4, initialCapacity);
+            labels = new Column(4, initialCapacity);
+
+            categoryOffsets = new Column(4, initialCapacity + 1);
+            categoryOffsets.putInt(0, 0);
+            categoryNames = new Column(4, initialCapacity);
+            categorySums = new Column(8, initialCapacity);
+        }
+
+        private int getIndex(String value) {
+            if (value == null) {
+                return NULL_STRING;
+            }
+            Integer index = dictionaryIndex.get(value);
+            if (index == null) {
+                index = dictionary.size();
+                dictionary.add(value);
+                dictionaryIndex.put(value, index);
+            }
+            return index;
+        }
+
+        private int getTimeZoneIndex(DateTime datetime) {
+            if (datetime == null) {
+                return NULL_STRING;
+            }
+            TimeZone timeZone = datetime.getTimeZone();
+            int index = getIndex(timeZone.getID());
+            if (!timeZones.containsKey(index)) {
+                timeZones.put(index, timeZone);
+            }
+            return index;
+        }
+
+        private long scale(BigDecimal value) {
+            return value == null ? NULL_LONG : value.setScale(scale).unscaledValue().longValueExact();
+        }
+
+        private static byte getOrdinal(Enum<?> value) {
+            return value == null ? NULL_ENUM : (byte) value.ordinal();
+        }
+    }
+
+    /**
+     * Growing off-heap column of fixed width values.
+     */
+    static final class Column {
+
+        private final int width;
+        private ByteBuffer buffer;
+
+        Column(int width, int capacity) {
+            this.width = width;
+            this.buffer = allocate(width * capacity);
+        }
+
+        void put(int index, byte value) {
+            ensureCapacity(index).put(index, value);
+        }
+
+        void putShort(int index, short value) {
+            ensureCapacity(index).putShort(index * width, value);
+        }
+
+        void putInt(int index, int value) {
+            ensureCapacity(index).putInt(index * width, value);
+        }
+
+        void putLong(int index, long value) {
+            ensureCapacity(index).putLong(index * width, value);
+        }
+
+        int getInt(int index) {
+            return buffer.getInt(index * width);
+        }
+
+        ByteBuffer seal() {
+            ByteBuffer result = buffer.asReadOnlyBuffer().order(buffer.order());
+            buffer = null;
+            return result;
+        }
+
+        private ByteBuffer ensureCapacity(int index) {
+            int required = (index + 1) * width;
+            if (required > buffer.capacity()) {
+                int capacity = buffer.capacity();
+                while (capacity < required) {
+                    if (capacity > Integer.MAX_VALUE / 2) {
+                        throw new IllegalStateException("column is too large");
+                    }
+                    capacity *= 2;
+                }
+                ByteBuffer grown = allocate(capacity);
+                buffer.clear();
+                grown.put(buffer);
+                grown.clear();
+                buffer = grown;
+            }
+            return buffer;
+        }
+
+        private static ByteBuffer allocate(int capacity) {
+            return ByteBuffer.allocateDirect(capacity).order(ByteOrder.nativeOrder());
+        }
+    }
+}
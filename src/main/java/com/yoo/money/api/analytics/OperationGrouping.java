@@ -0,0 +1,244 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2020 NBCO YooMoney LLC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.yoo.money.api.analytics;
+
+import com.yoo.money.api.model.Currency;
+import com.yoo.money.api.model.Operation;
+import com.yoo.money.api.model.SpendingCategory;
+import com.yoo.money.api.time.CivilDays;
+import com.yoo.money.api.time.DateTime;
+import com.yoo.money.api.time.Period;
+
+import java.math.BigDecimal;
+import java.util.TimeZone;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import static com.yoo.money.api.util.Common.checkNotNull;
+import static com.yoo.money.api.util.Numbers.floorDiv;
+import static com.yoo.money.api.util.Numbers.floorMod;
+
+/**
+ * Determines groups of operations for {@link OperationAggregator}. An operation may belong to any number of groups.
+ * Implementations must be thread safe.
+ *
+ * @param <K> type of group keys
+ */
+public abstract class OperationGrouping<K> {
+
+    /**
+     * Adds an operation to its groups. Usually an operation belongs to one group and is added with its amount and fee,
+     * see {@link #add(Sink, Object, Operation)}.
+     *
+     * @param operation operation
+     * @param sink receives groups of the operation
+     */
+    protected abstract void group(Operation operation, Sink<K> sink);
+
+    /**
+     * Adds an operation to a group with its amount and fee.
+     *
+     * @param sink sink to add to
+     * @param key key of a group or {@code null} if operation does not belong to any group
+     * @param operation operation
+     * @param <K> type of group keys
+     */
+    protected static <K> void add(Sink<K> sink, K key, Operation operation) {
+        if (key != null) {
+            sink.add(key, operation.amount, operation.fee);
+        }
+    }
+
+    /**
+     * @return grouping by directions of operations
+     */
+    public static OperationGrouping<Operation.Direction> byDirection() {
+        return new OperationGrouping<Operation.Direction>() {
+            @Override
+            protected void group(Operation operation, Sink<Operation.Direction> sink) {
+                add(sink, operation.direction, operation);
+            }
+        };
+    }
+
+    /**
+     * @return grouping by currencies of operations' amounts, operations without currency are skipped
+     */
+    public static OperationGrouping<Currency> byCurrency() {
+        return new OperationGrouping<Currency>() {
+            @Override
+            protected void group(Operation operation, Sink<Currency> sink) {
+                add(sink, operation.amountCurrency, operation);
+            }
+        };
+    }
+
+    /**
+     * @return grouping by pattern ids of operations
+     */
+    public static OperationGrouping<String> byPatternId() {
+        return new OperationGrouping<String>() {
+            @Override
+            protected void group(Operation operation, Sink<String> sink) {
+                add(sink, operation.patternId, operation);
+            }
+        };
+    }
+
+    /**
+     * Groups spending categories of operations by their names. Totals of a group contain number of operations with a
+     * category and sum of the category's sums, fees are not included.
+     *
+     * @return grouping by spending categories
+     */
+    public static OperationGrouping<String> bySpendingCategory() {
+        return new OperationGrouping<String>() {
+            @Override
+            protected void group(Operation operation, Sink<String> sink) {
+                if (operation.spendingCategories != null) {
+                    for (SpendingCategory category : operation.spendingCategories) {
+                        sink.add(category.name, category.sum, null);
+                    }
+                }
+            }
+        };
+    }
+
+    /**
+     * @param timeZone time zone to determine days in
+     * @return grouping by days, keys are starts of days
+     */
+    public static OperationGrouping<DateTime> byDay(TimeZone timeZone) {
+        return byPeriod(DateTime.from(1970, 0, 1, 0, 0, checkNotNull(timeZone, "timeZone")), Period.parse("P1D"));
+    }
+
+    /**
+     * @param timeZone time zone to determine weeks in
+     * @return grouping by weeks starting on Monday, keys are starts of weeks
+     */
+    public static OperationGrouping<DateTime> byWeek(TimeZone timeZone) {
+        return byPeriod(DateTime.from(1970, 0, 5, 0, 0, checkNotNull(timeZone, "timeZone")), Period.parse("P7D"));
+    }
+
+    /**
+     * @param timeZone time zone to determine months in
+     * @return grouping by months, keys are starts of months
+     */
+    public static OperationGrouping<DateTime> byMonth(TimeZone timeZone) {
+        return byPeriod(DateTime.from(1970, 0, 1, 0, 0, checkNotNull(timeZone, "timeZone")), Period.parse("P1M"));
+    }
+
+    /**
+     * Groups operations by consecutive periods. A period should be specified either in days or in months and years.
+     * Periods of days start at the day of {@code origin}, periods of months always start at the first day of a month
+     * and are counted from the month of {@code origin}.
+     *
+     * @param origin start of one of the periods, its time zone is used to determine days
+     * @param period length of a period
+     * @return grouping by periods, keys are starts of periods
+     */
+    public static OperationGrouping<DateTime> byPeriod(DateTime origin, Period period) {
+        return new PeriodGrouping(checkNotNull(origin, "origin"), checkNotNull(period, "period"));
+    }
+
+    /**
+     * Receives groups of operations.
+     *
+     * @param <K> type of group keys
+     */
+    public interface Sink<K> {
+
+        /**
+         * Adds to totals of a group. Each call counts as one operation of the group.
+         *
+         * @param key key of a group
+         * @param amount amount to add or {@code null}
+         * @param fee fee to add or {@code null}
+         */
+        void add(K key, BigDecimal amount, BigDecimal fee);
+    }
+
+    private static final class PeriodGrouping extends OperationGrouping<DateTime> {
+
+        private final TimeZone timeZone;
+        private final int days;
+        private final int months;
+        private final long origin;
+        private final ConcurrentMap<Long, DateTime> starts = new ConcurrentHashMap<>();
+
+        PeriodGrouping(DateTime origin, Period period) {
+            this.timeZone = origin.getTimeZone();
+            this.days = period.days;
+            this.months = period.years * 12 + period.months;
+            if ((days > 0) == (months > 0)) {
+                throw new IllegalArgumentException("period should be specified either in days or in months: " + period);
+            }
+
+            long localDay = CivilDays.localDay(origin.getDate().getTime(), timeZone);
+            this.origin = days > 0 ? localDay : getMonthIndex(localDay);
+        }
+
+        @Override
+        protected void group(Operation operation, Sink<DateTime> sink) {
+            add(sink, getKey(operation), operation);
+        }
+
+        private DateTime getKey(Operation operation) {
+            if (operation.datetime == null) {
+                return null;
+            }
+
+            long localDay = CivilDays.localDay(operation.datetime.getDate().getTime(), timeZone);
+            long bucket = days > 0
+                    ? floorDiv(localDay - origin, days)
+                    : floorDiv(getMonthIndex(localDay) - origin, months);
+
+            DateTime start = starts.get(bucket);
+            if (start == null) {
+                start = getStart(bucket);
+                DateTime existing = starts.putIfAbsent(bucket, start);
+                if (existing != null) {
+                    start = existing;
+                }
+            }
+            return start;
+        }
+
+        private DateTime getStart(long bucket) {
+            if (days > 0) {
+                int[] date = CivilDays.civilFromDays(origin + bucket * days);
+                return DateTime.from(date[0], date[1] - 1, date[2], 0, 0, timeZone);
+            } else {
+                long monthIndex = origin + bucket * months;
+                return DateTime.from((int) floorDiv(monthIndex, 12), (int) floorMod(monthIndex, 12), 1, 0, 0, timeZone);
+            }
+        }
+
+        private static long getMonthIndex(long localDay) {
+            int[] date = CivilDays.civilFromDays(localDay);
+            return date[0] * 12L + date[1] - 1;
+        }
+    }
+}
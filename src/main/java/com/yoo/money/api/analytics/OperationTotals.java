@@ -0,0 +1,96 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2020 NBCO YooMoney LLC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.yoo.money.api.analytics;
+
+import com.yoo.money.api.model.Currency;
+
+import java.math.BigDecimal;
+
+import static com.yoo.money.api.util.Common.checkNotNull;
+
+/**
+ * Totals of a group of operations.
+ */
+public final class OperationTotals {
+
+    /**
+     * Number of operations in a group.
+     */
+    public final long count;
+
+    /**
+     * Sum of amounts.
+     */
+    public final BigDecimal amount;
+
+    /**
+     * Sum of fees.
+     */
+    public final BigDecimal fee;
+
+    /**
+     * Currency of amounts and fees, {@code null} if operations of a group have no currency.
+     */
+    public final Currency currency;
+
+    public OperationTotals(long count, BigDecimal amount, BigDecimal fee, Currency currency) {
+        this.count = count;
+        this.amount = checkNotNull(amount, "amount");
+        this.fee = checkNotNull(fee, "fee");
+        this.currency = currency;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+
+        OperationTotals that = (OperationTotals) o;
+
+        if (count != that.count) return false;
+        if (amount.compareTo(that.amount) != 0) return false;
+        if (fee.compareTo(that.fee) != 0) return false;
+        return currency == that.currency;
+    }
+
+    @Override
+    public int hashCode() {
+        int result = (int) (count ^ (count >>> 32));
+        result = 31 * result + amount.stripTrailingZeros().hashCode();
+        result = 31 * result + fee.stripTrailingZeros().hashCode();
+        result = 31 * result + (currency != null ? currency.hashCode() : 0);
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return "OperationTotals{" +
+                "count=" + count +
+                ", amount=" + amount +
+                ", fee=" + fee +
+                ", currency=" + currency +
+                '}';
+    }
+}
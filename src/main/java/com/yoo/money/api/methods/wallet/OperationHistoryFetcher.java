@@ -0,0 +1,310 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2020 NBCO YooMoney LLC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.yoo.money.api.methods.wallet;
+
+import com.yoo.money.api.exceptions.InvalidRequestException;
+import com.yoo.money.api.model.Operation;
+import com.yoo.money.api.net.clients.ApiClient;
+import com.yoo.money.api.time.DateTime;
+import com.yoo.money.api.time.Interval;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static com.yoo.money.api.util.Common.checkNotNull;
+
+/**
+ * Fetches operation history for a long interval of time. The interval is split into sub-intervals which are paged
+ * through concurrently using {@code from} and {@code till} parameters of {@link OperationHistory.Request}. Results are
+ * merged in the order of operation history (from the latest operation to the earliest one) without duplicates.
+ * <p>
+ * Instances of this class are immutable and thread safe. Use {@link Builder} to create them.
+ */
+public final class OperationHistoryFetcher {
+
+    private static final Comparator<Operation> LATEST_FIRST = new Comparator<Operation>() {
+        @Override
+        public int compare(Operation o1, Operation o2) {
+            if (o1.datetime == null) {
+                return o2.datetime == null ? 0 : 1;
+            } else if (o2.datetime == null) {
+                return -1;
+            }
+            return o2.datetime.compareTo(o1.datetime);
+        }
+    };
+
+    private final Set<OperationHistory.FilterType> types;
+    private final String label;
+    private final Boolean details;
+    private final int records;
+    private final int parallelism;
+    private final int ranges;
+    private final ExecutorService executor;
+
+    OperationHistoryFetcher(Builder builder) {
+        types = builder.types;
+        label = builder.label;
+        details = builder.details;
+        records = builder.records;
+        parallelism = builder.parallelism;
+        ranges = builder.ranges == 0 ? builder.parallelism * 2 : builder.ranges;
+        executor = builder.executor;
+    }
+
+    /**
+     * Fetches all operations within an interval. Access token of the client should be set.
+     *
+     * @param client client to use
+     * @param interval interval of time
+     * @return operations from the latest to the earliest one
+     * @throws InvalidRequestException if API responds with an error
+     * @throws Exception if something goes wrong
+     */
+    public List<Operation> fetch(final ApiClient client, Interval interval) throws Exception {
+        checkNotNull(client, "client");
+        checkNotNull(interval, "interval");
+
+        final List<Interval> intervals = split(interval);
+        final ConcurrentLinkedQueue<Integer> queue = new ConcurrentLinkedQueue<>();
+        final List<List<Operation>> results = new ArrayList<>(intervals.size());
+        for (int i = 0; i < intervals.size(); ++i) {
+            queue.add(i);
+            results.add(null);
+        }
+
+        final AtomicBoolean stopped = new AtomicBoolean();
+        ExecutorService executor = this.executor == null ? Executors.newFixedThreadPool(parallelism) : this.executor;
+        List<Future<Void>> futures = new ArrayList<>(parallelism);
+        try {
+            for (int i = 0; i < Math.min(parallelism, intervals.size()); ++i) {
+                futures.add(executor.submit(new Callable<Void>() {
+                    @Override
+                    public Void call() throws Exception {
+                        Integer index;
+                        while (!stopped.get() && (index = queue.poll()) != null) {
+                            // each sub-interval has its own slot, so no synchronization is required
+                            results.set(index, fetchRange(client, intervals.get(index), stopped));
+                        }
+                        return null;
+                    }
+                }));
+            }
+
+            for (Future<Void> future : futures) {
+                try {
+                    future.get();
+                } catch (ExecutionException e) {
+                    Throwable cause = e.getCause();
+                    if (cause instanceof Exception) {
+                        throw (Exception) cause;
+                    }
+                    throw e;
+                }
+            }
+        } finally {
+            // stops remaining workers if any of them has failed
+            stopped.set(true);
+            if (this.executor == null) {
+                executor.shutdownNow();
+            }
+        }
+
+        return merge(results);
+    }
+
+    private List<Operation> fetchRange(ApiClient client, Interval interval, AtomicBoolean stopped) throws Exception {
+        List<Operation> operations = new ArrayList<>();
+        String nextRecord = null;
+        do {
+            OperationHistory history = client.execute(new OperationHistory.Request.Builder()
+                    .setTypes(types)
+                    .setLabel(label)
+                    .setDetails(details)
+                    .setRecords(records)
+                    .setFrom(interval.from)
+                    .setTill(interval.till)
+                    .setStartRecord(nextRecord)
+                    .create());
+
+            if (history.error != null) {
+                throw new InvalidRequestException(history.error.code);
+            }
+            if (history.operations != null) {
+                operations.addAll(history.operations);
+            }
+            nextRecord = history.nextRecord;
+        } while (nextRecord != null && !stopped.get());
+        return operations;
+    }
+
+    private List<Interval> split(Interval interval) {
+        long from = interval.from.getDate().getTime();
+        long till = interval.till.getDate().getTime();
+        int count = (int) Math.max(1L, Math.min(ranges, till - from));
+
+        List<Interval> intervals = new ArrayList<>(count);
+        DateTime start = interval.from;
+        for (int i = 1; i <= count; ++i) {
+            DateTime end = i == count
+                    ? interval.till
+                    : DateTime.from(from + (till - from) / count * i, interval.from.getTimeZone());
+            intervals.add(new Interval(start, end));
+            start = end;
+        }
+        return intervals;
+    }
+
+    private static List<Operation> merge(List<List<Operation>> results) {
+        int size = 0;
+        for (List<Operation> operations : results) {
+            size += operations.size();
+        }
+
+        List<Operation> merged = new ArrayList<>(size);
+        Set<String> ids = new HashSet<>(size * 2);
+        // sub-intervals are ordered from the earliest to the latest one
+        for (int i = results.size() - 1; i >= 0; --i) {
+            for (Operation operation : results.get(i)) {
+                if (operation.operationId == null || ids.add(operation.operationId)) {
+                    merged.add(operation);
+                }
+            }
+        }
+        // the list is expected to be sorted already, so this is a single linear pass
+        Collections.sort(merged, LATEST_FIRST);
+        return merged;
+    }
+
+    /**
+     * Creates {@link OperationHistoryFetcher}.
+     */
+    public static class Builder {
+
+        Set<OperationHistory.FilterType> types = Collections.emptySet();
+        String label;
+        Boolean details;
+        int records = 100;
+        int parallelism = 4;
+        int ranges;
+        ExecutorService executor;
+
+        /**
+         * @param types types of operations to fetch, all operations are fetched by default
+         * @return itself
+         * @see OperationHistory.Request.Builder#setTypes(Set)
+         */
+        public Builder setTypes(Set<OperationHistory.FilterType> types) {
+            this.types = checkNotNull(types, "types");
+            return this;
+        }
+
+        /**
+         * @param label label of operations to fetch
+         * @return itself
+         * @see OperationHistory.Request.Builder#setLabel(String)
+         */
+        public Builder setLabel(String label) {
+            this.label = label;
+            return this;
+        }
+
+        /**
+         * @param details {@code true} to fetch operation details
+         * @return itself
+         * @see OperationHistory.Request.Builder#setDetails(Boolean)
+         */
+        public Builder setDetails(Boolean details) {
+            this.details = details;
+            return this;
+        }
+
+        /**
+         * @param records number of records per page, 100 by default
+         * @return itself
+         * @see OperationHistory.Request.Builder#setRecords(Integer)
+         */
+        public Builder setRecords(int records) {
+            this.records = records;
+            return this;
+        }
+
+        /**
+         * @param parallelism maximum number of concurrent requests, 4 by default
+         * @return itself
+         */
+        public Builder setParallelism(int parallelism) {
+            if (parallelism < 1) {
+                throw new IllegalArgumentException("parallelism should be positive");
+            }
+            this.parallelism = parallelism;
+            return this;
+        }
+
+        /**
+         * Sets number of sub-intervals to split an interval into. More sub-intervals than parallelism allow to balance
+         * load if operations are distributed unevenly in time.
+         *
+         * @param ranges number of sub-intervals, twice the parallelism by default
+         * @return itself
+         */
+        public Builder setRanges(int ranges) {
+            if (ranges < 1) {
+                throw new IllegalArgumentException("ranges should be positive");
+            }
+            this.ranges = ranges;
+            return this;
+        }
+
+        /**
+         * Sets executor to run requests on. If not set, a thread pool is created for each fetch.
+         *
+         * @param executor executor
+         * @return itself
+         */
+        public Builder setExecutor(ExecutorService executor) {
+            this.executor = executor;
+            return this;
+        }
+
+        /**
+         * @return fetcher
+         */
+        public OperationHistoryFetcher create() {
+            return new OperationHistoryFetcher(this);
+        }
+    }
+}
@@ -29,6 +29,8 @@ import com.google.gson.annotations.SerializedName;
 import com.yoo.money.api.model.showcase.ShowcaseReference;
 import com.yoo.money.api.time.DateTime;
 import com.yoo.money.api.typeadapters.model.AlphaCurrencyTypeAdapter;
+import com.yoo.money.api.typeadapters.model.InternedStringMapTypeAdapter;
+import com.yoo.money.api.typeadapters.model.InternedStringTypeAdapter;
 import com.yoo.money.api.util.Enums;
 
 import java.math.BigDecimal;
@@ -59,6 +61,7 @@ public class Operation implements Identifiable {
      */
     @SuppressWarnings("WeakerAccess")
     @SerializedName("pattern_id")
+    @JsonAdapter(InternedStringTypeAdapter.class)
     public final String patternId;
 
     /**
@@ -134,6 +137,7 @@ public class Operation implements Identifiable {
      * Title of operation.
      */
     @SerializedName("title")
+    @JsonAdapter(InternedStringTypeAdapter.class)
     public final String title;
 
     /**
@@ -141,6 +145,7 @@ public class Operation implements Identifiable {
      */
     @SuppressWarnings("WeakerAccess")
     @SerializedName("sender")
+    @JsonAdapter(InternedStringTypeAdapter.class)
     public final String sender;
 
     /**
@@ -148,6 +153,7 @@ public class Operation implements Identifiable {
      */
     @SuppressWarnings("WeakerAccess")
     @SerializedName("recipient")
+    @JsonAdapter(InternedStringTypeAdapter.class)
     public final String recipient;
 
     /**
@@ -222,6 +228,7 @@ public class Operation implements Identifiable {
      */
     @SuppressWarnings("WeakerAccess")
     @SerializedName("payment_parameters")
+    @JsonAdapter(InternedStringMapTypeAdapter.class)
     public final Map<String, String> paymentParameters;
 
     @SuppressWarnings("WeakerAccess")
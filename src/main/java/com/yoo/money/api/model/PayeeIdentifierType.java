@@ -82,11 +82,12 @@ public enum PayeeIdentifierType implements Enums.WithCode<PayeeIdentifierType> {
             return null;
         }
 
-        if (identifier.matches(Patterns.ACCOUNT)) {
+        if (Patterns.matches(Patterns.ACCOUNT, identifier)) {
             return ACCOUNT;
-        } else if (identifier.matches(Patterns.PHONE)) {
+        } else if (Patterns.matches(Patterns.PHONE, identifier)) {
             return PHONE;
-        } else if (identifier.matches(Patterns.YOOMONEY) || identifier.matches(Patterns.EMAIL)) {
+        } else if (Patterns.matches(Patterns.YOOMONEY, identifier) ||
+                Patterns.matches(Patterns.EMAIL, identifier)) {
             return EMAIL;
         } else {
             return null;
@@ -26,7 +26,11 @@ package com.yoo.money.api.model.showcase;
 
 import com.yoo.money.api.exceptions.ResourceNotFoundException;
 import com.yoo.money.api.model.AllowedMoneySource;
+import com.yoo.money.api.model.showcase.components.Component;
+import com.yoo.money.api.model.showcase.components.Parameter;
 import com.yoo.money.api.model.showcase.components.containers.Group;
+import com.yoo.money.api.model.showcase.components.uicontrols.ParameterControl;
+import com.yoo.money.api.model.showcase.components.uicontrols.Select;
 import com.yoo.money.api.net.BaseApiRequest;
 import com.yoo.money.api.net.HttpClientResponse;
 import com.yoo.money.api.net.providers.HostsProvider;
@@ -39,6 +43,7 @@ import java.io.InputStream;
 import java.net.HttpURLConnection;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -58,6 +63,21 @@ public final class Showcase {
     public final List<Error> errors;
     public final List<ShowcaseReference.BonusOperationType> bonusPoints;
 
+    /**
+     * Controls of the form by name. Built on first access.
+     */
+    private Map<String, ParameterControl> controls;
+
+    /**
+     * Cached payment parameters. {@code null} if they have to be collected from the form.
+     */
+    private Map<String, String> paymentParameters;
+
+    /**
+     * Parameters which values are put into {@link #paymentParameters} by name.
+     */
+    private Map<String, Parameter> sources;
+
     Showcase(Builder builder) {
         title = checkNotNull(builder.title, "title");
         form = builder.form;
@@ -65,16 +85,69 @@ public final class Showcase {
         moneySources = Collections.unmodifiableList(checkNotNull(builder.moneySources, "moneySources"));
         errors = Collections.unmodifiableList(checkNotNull(builder.errors, "errors"));
         bonusPoints = Collections.unmodifiableList(checkNotNull(builder.bonusPoints, "bonusPoints"));
+        if (form != null) {
+            form.addOnValueChangeListener(new Group.OnValueChangeListener() {
+                @Override
+                public void onValueChanged(ParameterControl control) {
+                    updatePaymentParameters(control);
+                }
+            });
+        }
     }
 
     /**
+     * Collects payment parameters from hidden fields and the form. Parameters are collected once and
+     * then updated on each change of a control's value.
+     *
      * @return key-value pairs of payment parameters
      */
     public Map<String, String> getPaymentParameters() {
-        Map<String, String> params = new HashMap<>();
-        params.putAll(hiddenFields);
-        Group.fillMapWithValues(params, form);
-        return params;
+        if (paymentParameters == null) {
+            Map<String, String> params = new HashMap<>(hiddenFields);
+            Map<String, Parameter> sources = new HashMap<>();
+            if (form != null) {
+                collectParameters(form, params, sources);
+            }
+            this.paymentParameters = params;
+            this.sources = sources;
+        }
+        return new HashMap<>(paymentParameters);
+    }
+
+    /**
+     * Finds control of the form by its name. Controls within all of {@link Select}'s options are
+     * included. If there are several controls with the same name the first one is returned.
+     *
+     * @param name name of a control
+     * @return control or {@code null} if there is no control with such name
+     */
+    public ParameterControl getControl(String name) {
+        return getControls().get(checkNotNull(name, "name"));
+    }
+
+    /**
+     * @return unmodifiable map of form's controls by name in order of appearance
+     * @see #getControl(String)
+     */
+    public Map<String, ParameterControl> getControls() {
+        if (controls == null) {
+            Map<String, ParameterControl> controls = new LinkedHashMap<>();
+            if (form != null) {
+                indexControls(form, controls);
+            }
+            this.controls = Collections.unmodifiableMap(controls);
+        }
+        return controls;
+    }
+
+    /**
+     * Validates the form. Validity of the form's groups is cached until values of their controls
+     * are changed.
+     *
+     * @return {@code true} if the form is valid or absent
+     */
+    public boolean isValid() {
+        return form == null || form.isValid();
     }
 
     @Override
@@ -104,6 +177,60 @@ public final class Showcase {
         return result;
     }
 
+    private void updatePaymentParameters(ParameterControl control) {
+        if (paymentParameters != null && sources.get(control.name) == control) {
+            if (control instanceof Select) {
+                // set of parameters depends on selected option
+                paymentParameters = null;
+                sources = null;
+            } else {
+                paymentParameters.put(control.name, control.getValue());
+            }
+        }
+    }
+
+    /**
+     * Same as {@link Group#fillMapWithValues(Map, Group)} but remembers the source of each value.
+     */
+    private static void collectParameters(Group group, Map<String, String> params,
+                                          Map<String, Parameter> sources) {
+        for (Component component : group.items) {
+            if (component instanceof Group) {
+                collectParameters((Group) component, params, sources);
+            } else if (component instanceof Parameter) {
+                Parameter parameter = (Parameter) component;
+                params.put(parameter.getName(), parameter.getValue());
+                sources.put(parameter.getName(), parameter);
+                if (component instanceof Select) {
+                    Select.Option option = ((Select) component).getSelectedOption();
+                    if (option != null && option.group != null) {
+                        collectParameters(option.group, params, sources);
+                    }
+                }
+            }
+        }
+    }
+
+    private static void indexControls(Group group, Map<String, ParameterControl> controls) {
+        for (Component component : group.items) {
+            if (component instanceof Group) {
+                indexControls((Group) component, controls);
+            } else if (component instanceof ParameterControl) {
+                ParameterControl control = (ParameterControl) component;
+                if (!controls.containsKey(control.name)) {
+                    controls.put(control.name, control);
+                }
+                if (component instanceof Select) {
+                    for (Select.Option option : ((Select) component).options) {
+                        if (option.group != null) {
+                            indexControls(option.group, controls);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
     public static class Builder {
 
         String title;
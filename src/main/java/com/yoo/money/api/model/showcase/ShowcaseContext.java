@@ -85,6 +85,11 @@ public final class ShowcaseContext {
      */
     private State state = State.UNKNOWN;
 
+    /**
+     * Difference between forms of the last two steps. May be {@code null}.
+     */
+    private ShowcaseDiff lastDiff;
+
     ShowcaseContext(State state) {
         this(null, null, DateTime.now());
         this.state = state;
@@ -139,6 +144,7 @@ public final class ShowcaseContext {
             state = State.HAS_NEXT_STEP;
         } else if (!history.isEmpty()) {
             currentStep = history.pop();
+            lastDiff = null;
         }
         return currentStep;
     }
@@ -168,6 +174,20 @@ public final class ShowcaseContext {
         this.currentStep = currentStep;
     }
 
+    /**
+     * Difference between the form of current step and the form of the step it has replaced. Call
+     * {@link ShowcaseDiff#carryValues()} to keep user values of the previous form.
+     *
+     * @return difference or {@code null} if current step was not received by a request
+     */
+    public ShowcaseDiff getLastDiff() {
+        return lastDiff;
+    }
+
+    void setLastDiff(ShowcaseDiff lastDiff) {
+        this.lastDiff = lastDiff;
+    }
+
     /**
      * @return {@link DateTime} of last showcase changes on remote server
      */
@@ -340,6 +360,8 @@ public final class ShowcaseContext {
                         inputStream = response.getByteStream();
                         Showcase newShowcase = ShowcaseTypeAdapter.getInstance().fromJson(inputStream);
 
+                        context.setLastDiff(ShowcaseDiff.between(context.getCurrentStep().showcase, newShowcase));
+
                         Step step = new Step(newShowcase, newLocation);
                         if (responseCode == HttpURLConnection.HTTP_MULT_CHOICE) {
                             context.pushCurrentStep(step);
@@ -0,0 +1,771 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2020 NBCO YooMoney LLC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.yoo.money.api.model.showcase;
+
+import com.yoo.money.api.model.AllowedMoneySource;
+import com.yoo.money.api.model.Currency;
+import com.yoo.money.api.model.showcase.components.Component;
+import com.yoo.money.api.model.showcase.components.Parameter;
+import com.yoo.money.api.model.showcase.components.TextBlock;
+import com.yoo.money.api.model.showcase.components.containers.Expand;
+import com.yoo.money.api.model.showcase.components.containers.Group;
+import com.yoo.money.api.model.showcase.components.containers.Paragraph;
+import com.yoo.money.api.model.showcase.components.uicontrols.AdditionalData;
+import com.yoo.money.api.model.showcase.components.uicontrols.Amount;
+import com.yoo.money.api.model.showcase.components.uicontrols.Checkbox;
+import com.yoo.money.api.model.showcase.components.uicontrols.Control;
+import com.yoo.money.api.model.showcase.components.uicontrols.Date;
+import com.yoo.money.api.model.showcase.components.uicontrols.Email;
+import com.yoo.money.api.model.showcase.components.uicontrols.Month;
+import com.yoo.money.api.model.showcase.components.uicontrols.Number;
+import com.yoo.money.api.model.showcase.components.uicontrols.ParameterControl;
+import com.yoo.money.api.model.showcase.components.uicontrols.Select;
+import com.yoo.money.api.model.showcase.components.uicontrols.Submit;
+import com.yoo.money.api.model.showcase.components.uicontrols.Tel;
+import com.yoo.money.api.model.showcase.components.uicontrols.Text;
+import com.yoo.money.api.model.showcase.components.uicontrols.TextArea;
+import com.yoo.money.api.time.DateTime;
+import com.yoo.money.api.util.BinaryInput;
+import com.yoo.money.api.util.BinaryOutput;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Stack;
+import java.util.TimeZone;
+
+import static com.yoo.money.api.util.Common.checkNotNull;
+
+/**
+ * Compact binary representation of {@link ShowcaseContext}. Useful to keep a context in a session
+ * store between user's requests.
+ * <p/>
+ * Format starts with a magic number and a version. All strings (including names of enum constants)
+ * are stored once in a table and referenced by index. Equal showcases and equal steps of the
+ * history are stored once as well; each of them is decoded to a separate instance though, so
+ * values set on one step never affect another. Values entered by user are preserved.
+ * {@link ShowcaseContext#getLastDiff()} is not stored.
+ */
+public final class ShowcaseContextCodec {
+
+    private static final int MAGIC = 0x5943;
+    private static final int VERSION = 1;
+
+    private static final int TYPE_TEXT = 1;
+    private static final int TYPE_NUMBER = 2;
+    private static final int TYPE_AMOUNT = 3;
+    private static final int TYPE_EMAIL = 4;
+    private static final int TYPE_TEL = 5;
+    private static final int TYPE_CHECKBOX = 6;
+    private static final int TYPE_DATE = 7;
+    private static final int TYPE_MONTH = 8;
+    private static final int TYPE_SELECT = 9;
+    private static final int TYPE_TEXT_AREA = 10;
+    private static final int TYPE_SUBMIT = 11;
+    private static final int TYPE_PARAGRAPH = 12;
+    private static final int TYPE_GROUP = 13;
+    private static final int TYPE_ADDITIONAL_DATA = 14;
+    private static final int TYPE_EXPAND = 15;
+
+    private static final int FLAG_REQUIRED = 1;
+    private static final int FLAG_READONLY = 1 << 1;
+    private static final int FLAG_CHECKED = 1 << 2;
+
+    private ShowcaseContextCodec() {
+    }
+
+    /**
+     * Encodes context.
+     *
+     * @param context context to encode
+     * @return binary representation
+     * @throws IllegalArgumentException if context contains components or fees of unknown types
+     */
+    public static byte[] encode(ShowcaseContext context) {
+        checkNotNull(context, "context");
+        return new Encoder().encode(context);
+    }
+
+    /**
+     * Decodes context.
+     *
+     * @param bytes binary representation created by {@link #encode(ShowcaseContext)}
+     * @return decoded context
+     * @throws IllegalArgumentException if bytes are malformed or have unsupported version
+     */
+    public static ShowcaseContext decode(byte[] bytes) {
+        return new Decoder(new BinaryInput(checkNotNull(bytes, "bytes"))).decode();
+    }
+
+    private static final class Encoder {
+
+        BinaryOutput body = new BinaryOutput(1024);
+        final Map<String, Integer> strings = new HashMap<>();
+        final List<String> stringTable = new ArrayList<>();
+
+        byte[] encode(ShowcaseContext context) {
+            Map<Showcase, Integer> showcases = new LinkedHashMap<>();
+            Map<ShowcaseContext.Step, Integer> steps = new LinkedHashMap<>();
+            List<ShowcaseContext.Step> history = context.getHistory();
+
+            for (ShowcaseContext.Step step : history) {
+                register(step, steps, showcases);
+            }
+            ShowcaseContext.Step currentStep = context.getCurrentStep();
+            if (currentStep != null) {
+                register(currentStep, steps, showcases);
+            }
+
+            body.writeVarInt(showcases.size());
+            BinaryOutput output = body;
+            for (Showcase showcase : showcases.keySet()) {
+                // length prefixed, so decoder is able to skip and to re-read it
+                body = new BinaryOutput(1024);
+                writeShowcase(showcase);
+                output.writeByteArray(body.toByteArray());
+            }
+            body = output;
+            body.writeVarInt(steps.size());
+            for (ShowcaseContext.Step step : steps.keySet()) {
+                body.writeVarInt(step.showcase == null ? 0 : showcases.get(step.showcase) + 1);
+                writeString(step.submitUrl);
+            }
+            body.writeVarInt(history.size());
+            for (ShowcaseContext.Step step : history) {
+                body.writeVarInt(steps.get(step));
+            }
+            body.writeVarInt(currentStep == null ? 0 : steps.get(currentStep) + 1);
+            writeMap(context.getParams());
+            writeEnum(context.getState());
+            writeDateTime(context.getLastModified());
+
+            output = new BinaryOutput(body.size() + 16 * stringTable.size() + 16);
+            output.writeByte(MAGIC >> 8).writeByte(MAGIC).writeVarInt(VERSION);
+            output.writeVarInt(stringTable.size());
+            for (String value : stringTable) {
+                output.writeString(value);
+            }
+            output.writeBytes(body.toByteArray());
+            return output.toByteArray();
+        }
+
+        static void register(ShowcaseContext.Step step, Map<ShowcaseContext.Step, Integer> steps,
+                             Map<Showcase, Integer> showcases) {
+            if (!steps.containsKey(step)) {
+                steps.put(step, steps.size());
+                if (step.showcase != null && !showcases.containsKey(step.showcase)) {
+                    showcases.put(step.showcase, showcases.size());
+                }
+            }
+        }
+
+        void writeShowcase(Showcase showcase) {
+            writeString(showcase.title);
+            writeMap(showcase.hiddenFields);
+            writeGroup(showcase.form);
+            body.writeVarInt(showcase.moneySources.size());
+            for (AllowedMoneySource moneySource : showcase.moneySources) {
+                writeEnum(moneySource);
+            }
+            body.writeVarInt(showcase.errors.size());
+            for (Showcase.Error error : showcase.errors) {
+                writeString(error.name);
+                writeString(error.alert);
+            }
+            body.writeVarInt(showcase.bonusPoints.size());
+            for (ShowcaseReference.BonusOperationType bonusPoint : showcase.bonusPoints) {
+                writeEnum(bonusPoint);
+            }
+        }
+
+        void writeGroup(Group group) {
+            if (group == null) {
+                body.writeByte(0);
+            } else {
+                writeComponent(group);
+            }
+        }
+
+        void writeComponent(Component component) {
+            Class<?> type = component.getClass();
+            if (type == Text.class) {
+                body.writeByte(TYPE_TEXT);
+                writeText((Text) component);
+            } else if (type == Number.class) {
+                body.writeByte(TYPE_NUMBER);
+                writeNumber((Number) component);
+            } else if (type == Amount.class) {
+                body.writeByte(TYPE_AMOUNT);
+                writeAmount((Amount) component);
+            } else if (type == Email.class) {
+                body.writeByte(TYPE_EMAIL);
+                writeParameterControl((ParameterControl) component, 0);
+            } else if (type == Tel.class) {
+                body.writeByte(TYPE_TEL);
+                writeParameterControl((ParameterControl) component, 0);
+            } else if (type == Checkbox.class) {
+                body.writeByte(TYPE_CHECKBOX);
+                writeParameterControl((Checkbox) component, ((Checkbox) component).isChecked() ? FLAG_CHECKED : 0);
+            } else if (type == Date.class) {
+                body.writeByte(TYPE_DATE);
+                writeDate((Date) component);
+            } else if (type == Month.class) {
+                body.writeByte(TYPE_MONTH);
+                writeDate((Date) component);
+            } else if (type == Select.class) {
+                body.writeByte(TYPE_SELECT);
+                writeSelect((Select) component);
+            } else if (type == TextArea.class) {
+                body.writeByte(TYPE_TEXT_AREA);
+                writeTextArea((TextArea) component);
+            } else if (type == Submit.class) {
+                body.writeByte(TYPE_SUBMIT);
+                writeControl((Control) component, 0);
+            } else if (type == Paragraph.class) {
+                body.writeByte(TYPE_PARAGRAPH);
+                writeParagraph((Paragraph) component);
+            } else if (type == Group.class) {
+                body.writeByte(TYPE_GROUP);
+                Group group = (Group) component;
+                writeEnum(group.layout);
+                writeString(group.label);
+                writeComponents(group.items);
+            } else if (type == AdditionalData.class) {
+                body.writeByte(TYPE_ADDITIONAL_DATA);
+                writeParameterControl((ParameterControl) component, 0);
+            } else if (type == Expand.class) {
+                body.writeByte(TYPE_EXPAND);
+                Expand expand = (Expand) component;
+                writeString(expand.labelMinimized);
+                writeString(expand.labelExpanded);
+                writeString(expand.label);
+                writeComponents(expand.items);
+            } else {
+                throw new IllegalArgumentException("unsupported component: " + type.getName());
+            }
+        }
+
+        void writeComponents(List<Component> components) {
+            body.writeVarInt(components.size());
+            for (Component component : components) {
+                writeComponent(component);
+            }
+        }
+
+        void writeControl(Control control, int flags) {
+            if (control.required) {
+                flags |= FLAG_REQUIRED;
+            }
+            if (control.readonly) {
+                flags |= FLAG_READONLY;
+            }
+            body.writeByte(flags);
+            writeString(control.hint);
+            writeString(control.label);
+            writeString(control.alert);
+        }
+
+        void writeParameterControl(ParameterControl control, int flags) {
+            writeControl(control, flags);
+            writeString(control.name);
+            writeString(control.getValue());
+            writeEnum(control.valueAutoFill);
+        }
+
+        void writeTextArea(TextArea textArea) {
+            writeParameterControl(textArea, 0);
+            writeNullableInt(textArea.minLength);
+            writeNullableInt(textArea.maxLength);
+        }
+
+        void writeText(Text text) {
+            writeTextArea(text);
+            writeString(text.pattern);
+            writeEnum(text.keyboard);
+        }
+
+        void writeNumber(Number number) {
+            writeParameterControl(number, 0);
+            body.writeBigDecimal(number.min);
+            body.writeBigDecimal(number.max);
+            body.writeBigDecimal(number.step);
+        }
+
+        void writeAmount(Amount amount) {
+            writeNumber(amount);
+            writeString(amount.currency.alphaCode);
+            Fee fee = amount.fee;
+            if (fee == null) {
+                body.writeBoolean(false);
+            } else if (fee instanceof DefaultFee) {
+                DefaultFee defaultFee = (DefaultFee) fee;
+                body.writeBoolean(true);
+                writeEnum(defaultFee.type);
+                body.writeBigDecimal(defaultFee.a);
+                body.writeBigDecimal(defaultFee.b);
+                body.writeBigDecimal(defaultFee.c);
+                body.writeBigDecimal(defaultFee.d);
+                writeEnum(defaultFee.amountType);
+            } else {
+                throw new IllegalArgumentException("unsupported fee: " + fee.getClass().getName());
+            }
+        }
+
+        void writeDate(Date date) {
+            writeParameterControl(date, 0);
+            writeDateTime(date.min);
+            writeDateTime(date.max);
+        }
+
+        void writeSelect(Select select) {
+            writeParameterControl(select, 0);
+            writeEnum(select.style);
+            body.writeVarInt(select.options.size());
+            for (Select.Option option : select.options) {
+                writeString(option.label);
+                writeString(option.value);
+                writeGroup(option.group);
+            }
+            Select.Option selectedOption = select.getSelectedOption();
+            body.writeVarInt(selectedOption == null ? 0 : select.options.indexOf(selectedOption) + 1);
+        }
+
+        void writeParagraph(Paragraph paragraph) {
+            writeString(paragraph.label);
+            body.writeVarInt(paragraph.items.size());
+            for (TextBlock item : paragraph.items) {
+                if (item instanceof TextBlock.WithLink) {
+                    body.writeBoolean(true);
+                    writeString(item.text);
+                    writeString(((TextBlock.WithLink) item).link);
+                } else {
+                    body.writeBoolean(false);
+                    writeString(item.text);
+                }
+            }
+        }
+
+        void writeMap(Map<String, String> map) {
+            body.writeVarInt(map.size());
+            for (Map.Entry<String, String> entry : map.entrySet()) {
+                writeString(entry.getKey());
+                writeString(entry.getValue());
+            }
+        }
+
+        void writeDateTime(DateTime dateTime) {
+            if (dateTime == null) {
+                body.writeBoolean(false);
+            } else {
+                body.writeBoolean(true);
+                body.writeSignedVarLong(dateTime.getDate().getTime());
+                writeString(dateTime.getTimeZone().getID());
+            }
+        }
+
+        void writeNullableInt(Integer value) {
+            if (value == null) {
+                body.writeBoolean(false);
+            } else {
+                body.writeBoolean(true);
+                body.writeSignedVarLong(value);
+            }
+        }
+
+        void writeEnum(Enum<?> value) {
+            writeString(value == null ? null : value.name());
+        }
+
+        void writeString(String value) {
+            if (value == null) {
+                body.writeVarInt(0);
+                return;
+            }
+            Integer index = strings.get(value);
+            if (index == null) {
+                index = stringTable.size();
+                strings.put(value, index);
+                stringTable.add(value);
+            }
+            body.writeVarInt(index + 1);
+        }
+    }
+
+    private static final class Decoder {
+
+        final BinaryInput input;
+
+        String[] strings;
+
+        Decoder(BinaryInput input) {
+            this.input = input;
+        }
+
+        ShowcaseContext decode() {
+            int magic = (input.readByte() & 0xFF) << 8 | (input.readByte() & 0xFF);
+            if (magic != MAGIC) {
+                throw new IllegalArgumentException("not a showcase context");
+            }
+            int version = input.readVarInt();
+            if (version != VERSION) {
+                throw new IllegalArgumentException("unsupported version: " + version);
+            }
+
+            strings = new String[readCount()];
+            for (int i = 0; i < strings.length; ++i) {
+                strings[i] = input.readString();
+            }
+
+            // showcases are decoded for each reference, so only their positions are remembered
+            int[] showcases = new int[readCount()];
+            for (int i = 0; i < showcases.length; ++i) {
+                int length = input.readVarInt() - 1;
+                if (length < 0) {
+                    throw new IllegalArgumentException("showcase expected");
+                }
+                if (length > input.remaining()) {
+                    throw new IllegalArgumentException("malformed showcase length: " + length);
+                }
+                showcases[i] = input.getPosition();
+                input.setPosition(showcases[i] + length);
+            }
+            int stepCount = readCount();
+            int[] stepShowcases = new int[stepCount];
+            String[] stepUrls = new String[stepCount];
+            for (int i = 0; i < stepCount; ++i) {
+                stepShowcases[i] = input.readVarInt() - 1;
+                stepUrls[i] = readString();
+            }
+
+            int historySize = readCount();
+            int[] history = new int[historySize];
+            for (int i = 0; i < historySize; ++i) {
+                history[i] = input.readVarInt();
+            }
+            int currentStep = input.readVarInt() - 1;
+            Map<String, String> params = readMap();
+            ShowcaseContext.State state = readEnum(ShowcaseContext.State.class);
+            DateTime lastModified = readDateTime();
+            int end = input.getPosition();
+
+            Stack<ShowcaseContext.Step> steps = new Stack<>();
+            for (int step : history) {
+                steps.push(readStep(step, stepShowcases, stepUrls, showcases));
+            }
+            ShowcaseContext.Step current = currentStep < 0 ? null :
+                    readStep(currentStep, stepShowcases, stepUrls, showcases);
+            input.setPosition(end);
+
+            return new ShowcaseContext(steps, lastModified, current,
+                    params.isEmpty() ? Collections.<String, String>emptyMap() : Collections.unmodifiableMap(params),
+                    state);
+        }
+
+        ShowcaseContext.Step readStep(int index, int[] stepShowcases, String[] stepUrls, int[] showcases) {
+            Showcase showcase = null;
+            int showcaseIndex = stepShowcases[checkIndex(index, stepUrls.length)];
+            if (showcaseIndex >= 0) {
+                input.setPosition(showcases[checkIndex(showcaseIndex, showcases.length)]);
+                showcase = readShowcase();
+            }
+            return new ShowcaseContext.Step(showcase, stepUrls[index]);
+        }
+
+        Showcase readShowcase() {
+            Showcase.Builder builder = new Showcase.Builder()
+                    .setTitle(readString())
+                    .setHiddenFields(readMap())
+                    .setForm(readGroup());
+
+            int count = readCount();
+            List<AllowedMoneySource> moneySources = new ArrayList<>(Math.min(count, 16));
+            for (int i = 0; i < count; ++i) {
+                moneySources.add(readEnum(AllowedMoneySource.class));
+            }
+            count = readCount();
+            List<Showcase.Error> errors = new ArrayList<>(Math.min(count, 16));
+            for (int i = 0; i < count; ++i) {
+                errors.add(new Showcase.Error(readString(), readString()));
+            }
+            count = readCount();
+            List<ShowcaseReference.BonusOperationType> bonusPoints = new ArrayList<>(Math.min(count, 16));
+            for (int i = 0; i < count; ++i) {
+                bonusPoints.add(readEnum(ShowcaseReference.BonusOperationType.class));
+            }
+            return builder.setMoneySources(moneySources)
+                    .setErrors(errors)
+                    .setBonusPoints(bonusPoints)
+                    .create();
+        }
+
+        Group readGroup() {
+            Component component = readComponent();
+            if (component != null && !(component instanceof Group)) {
+                throw new IllegalArgumentException("group expected");
+            }
+            return (Group) component;
+        }
+
+        Component readComponent() {
+            int type = input.readByte();
+            switch (type) {
+                case 0:
+                    return null;
+                case TYPE_TEXT: {
+                    Text.Builder builder = new Text.Builder();
+                    readText(builder);
+                    return builder.create();
+                }
+                case TYPE_NUMBER: {
+                    Number.Builder builder = new Number.Builder();
+                    readNumber(builder);
+                    return builder.create();
+                }
+                case TYPE_AMOUNT: {
+                    Amount.Builder builder = new Amount.Builder();
+                    readNumber(builder);
+                    builder.setCurrency(Currency.parseAlphaCode(readString()));
+                    if (input.readBoolean()) {
+                        builder.setFee(new DefaultFee(readEnum(Fee.Type.class), input.readBigDecimal(),
+                                input.readBigDecimal(), input.readBigDecimal(), input.readBigDecimal(),
+                                readEnum(AmountType.class)));
+                    }
+                    return builder.create();
+                }
+                case TYPE_EMAIL: {
+                    Email.Builder builder = new Email.Builder();
+                    readParameterControl(builder);
+                    return builder.create();
+                }
+                case TYPE_TEL: {
+                    Tel.Builder builder = new Tel.Builder();
+                    readParameterControl(builder);
+                    return builder.create();
+                }
+                case TYPE_CHECKBOX: {
+                    Checkbox.Builder builder = new Checkbox.Builder();
+                    int flags = readParameterControl(builder);
+                    builder.setChecked((flags & FLAG_CHECKED) != 0);
+                    return builder.create();
+                }
+                case TYPE_DATE: {
+                    Date.Builder builder = new Date.Builder();
+                    readDate(builder);
+                    return builder.create();
+                }
+                case TYPE_MONTH: {
+                    Month.Builder builder = new Month.Builder();
+                    readDate(builder);
+                    return builder.create();
+                }
+                case TYPE_SELECT:
+                    return readSelect();
+                case TYPE_TEXT_AREA: {
+                    TextArea.Builder builder = new TextArea.Builder();
+                    readTextArea(builder);
+                    return builder.create();
+                }
+                case TYPE_SUBMIT: {
+                    Submit.Builder builder = new Submit.Builder();
+                    readControl(builder);
+                    return builder.create();
+                }
+                case TYPE_PARAGRAPH:
+                    return readParagraph();
+                case TYPE_GROUP: {
+                    Group.Builder builder = new Group.Builder();
+                    builder.setLayout(readEnum(Group.Layout.class));
+                    builder.setLabel(readString());
+                    readComponents(builder);
+                    return builder.create();
+                }
+                case TYPE_ADDITIONAL_DATA: {
+                    AdditionalData.Builder builder = new AdditionalData.Builder();
+                    readParameterControl(builder);
+                    return builder.create();
+                }
+                case TYPE_EXPAND: {
+                    Expand.Builder builder = new Expand.Builder();
+                    builder.setLabelMinimized(readString());
+                    builder.setLabelExpanded(readString());
+                    builder.setLabel(readString());
+                    readComponents(builder);
+                    return builder.create();
+                }
+                default:
+                    throw new IllegalArgumentException("unknown component type: " + type);
+            }
+        }
+
+        void readComponents(Group.Builder builder) {
+            int count = readCount();
+            for (int i = 0; i < count; ++i) {
+                builder.addItem(readNotNullComponent());
+            }
+        }
+
+        void readComponents(Expand.Builder builder) {
+            int count = readCount();
+            for (int i = 0; i < count; ++i) {
+                builder.addItem(readNotNullComponent());
+            }
+        }
+
+        Component readNotNullComponent() {
+            Component component = readComponent();
+            if (component == null) {
+                throw new IllegalArgumentException("component expected");
+            }
+            return component;
+        }
+
+        int readControl(Control.Builder builder) {
+            int flags = input.readByte();
+            builder.setRequired((flags & FLAG_REQUIRED) != 0);
+            builder.setReadonly((flags & FLAG_READONLY) != 0);
+            builder.setHint(readString());
+            builder.setLabel(readString());
+            builder.setAlert(readString());
+            return flags;
+        }
+
+        int readParameterControl(ParameterControl.Builder builder) {
+            int flags = readControl(builder);
+            builder.setName(readString());
+            builder.setValue(readString());
+            builder.setValueAutoFill(readEnum(Parameter.AutoFill.class));
+            return flags;
+        }
+
+        void readTextArea(TextArea.Builder builder) {
+            readParameterControl(builder);
+            builder.setMinLength(readNullableInt());
+            builder.setMaxLength(readNullableInt());
+        }
+
+        void readText(Text.Builder builder) {
+            readTextArea(builder);
+            builder.setPattern(readString());
+            builder.setKeyboard(readEnum(Text.Keyboard.class));
+        }
+
+        void readNumber(Number.Builder builder) {
+            readParameterControl(builder);
+            builder.setMin(input.readBigDecimal());
+            builder.setMax(input.readBigDecimal());
+            builder.setStep(input.readBigDecimal());
+        }
+
+        void readDate(Date.Builder builder) {
+            readParameterControl(builder);
+            builder.setMin(readDateTime());
+            builder.setMax(readDateTime());
+        }
+
+        Select readSelect() {
+            Select.Builder builder = new Select.Builder();
+            int flags = readParameterControl(builder);
+            builder.setStyle(readEnum(Select.Style.class));
+            int count = readCount();
+            for (int i = 0; i < count; ++i) {
+                builder.addOption(new Select.Option(readString(), readString(), readGroup()));
+            }
+            int selectedOption = input.readVarInt();
+            Select select = builder.create();
+            if (selectedOption > 0 && (flags & FLAG_READONLY) == 0) {
+                select.setValue(select.options.get(checkIndex(selectedOption - 1, count)).value);
+            }
+            return select;
+        }
+
+        Paragraph readParagraph() {
+            Paragraph.Builder builder = new Paragraph.Builder();
+            builder.setLabel(readString());
+            int count = readCount();
+            for (int i = 0; i < count; ++i) {
+                boolean withLink = input.readBoolean();
+                String text = readString();
+                builder.addItem(withLink ? new TextBlock.WithLink(text, readString()) : new TextBlock(text));
+            }
+            return builder.create();
+        }
+
+        Map<String, String> readMap() {
+            int size = readCount();
+            Map<String, String> map = new HashMap<>();
+            for (int i = 0; i < size; ++i) {
+                map.put(readString(), readString());
+            }
+            return map;
+        }
+
+        DateTime readDateTime() {
+            if (!input.readBoolean()) {
+                return null;
+            }
+            long millis = input.readSignedVarLong();
+            String timeZone = readString();
+            if (timeZone == null) {
+                throw new IllegalArgumentException("time zone expected");
+            }
+            return DateTime.from(millis, TimeZone.getTimeZone(timeZone));
+        }
+
+        Integer readNullableInt() {
+            return input.readBoolean() ? (int) input.readSignedVarLong() : null;
+        }
+
+        <T extends Enum<T>> T readEnum(Class<T> type) {
+            String name = readString();
+            return name == null ? null : Enum.valueOf(type, name);
+        }
+
+        String readString() {
+            int index = input.readVarInt();
+            return index == 0 ? null : strings[checkIndex(index - 1, strings.length)];
+        }
+
+        /**
+         * Reads number of elements which follow. Each element takes at least one byte, so a count
+         * exceeding the rest of input is malformed and rejected before anything is allocated.
+         */
+        int readCount() {
+            int count = input.readVarInt();
+            if (count < 0 || count > input.remaining()) {
+                throw new IllegalArgumentException("malformed count: " + count);
+            }
+            return count;
+        }
+
+        static int checkIndex(int index, int size) {
+            if (index < 0 || index >= size) {
+                throw new IllegalArgumentException("malformed reference: " + index);
+            }
+            return index;
+        }
+    }
+}
@@ -0,0 +1,270 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2020 NBCO YooMoney LLC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.yoo.money.api.model.showcase;
+
+import com.yoo.money.api.model.showcase.components.Component;
+import com.yoo.money.api.model.showcase.components.containers.Group;
+import com.yoo.money.api.model.showcase.components.uicontrols.Checkbox;
+import com.yoo.money.api.model.showcase.components.uicontrols.ParameterControl;
+import com.yoo.money.api.model.showcase.components.uicontrols.Select;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+import static com.yoo.money.api.util.Common.checkNotNull;
+
+/**
+ * Structural difference between two {@link Showcase} forms. Controls are matched by
+ * {@link ParameterControl#name}, so a form received on the next step (or after invalid params
+ * were submitted) can be compared with the previous one and only the affected parts of the UI can
+ * be re-rendered.
+ * <p/>
+ * Computing the diff does not modify either form. Values entered by the user can be carried over
+ * to the matched controls of the new form by {@link #carryValues()}; controls which got a value
+ * from the server or are read only keep their state.
+ */
+public final class ShowcaseDiff {
+
+    /**
+     * Controls which appeared in the new form.
+     */
+    public final Map<String, ParameterControl> added;
+
+    /**
+     * Controls which are absent in the new form. Values are controls of the old form.
+     */
+    public final Map<String, ParameterControl> removed;
+
+    /**
+     * Controls which are present in both forms but differ in type, constraints, alerts or values.
+     * Forms are compared as they were when the diff was computed. Values are controls of the new
+     * form.
+     */
+    public final Map<String, ParameterControl> changed;
+
+    /**
+     * Names of controls which receive user values from the old form on {@link #carryValues()}.
+     */
+    public final Set<String> preserved;
+
+    private final Set<Component> dirty;
+    private final Map<ParameterControl, ParameterControl> carried;
+
+    private ShowcaseDiff(Map<String, ParameterControl> added, Map<String, ParameterControl> removed,
+                         Map<String, ParameterControl> changed, Set<String> preserved,
+                         Set<Component> dirty, Map<ParameterControl, ParameterControl> carried) {
+        this.added = Collections.unmodifiableMap(added);
+        this.removed = Collections.unmodifiableMap(removed);
+        this.changed = Collections.unmodifiableMap(changed);
+        this.preserved = Collections.unmodifiableSet(preserved);
+        this.dirty = dirty;
+        this.carried = carried;
+    }
+
+    /**
+     * Computes difference between two forms.
+     *
+     * @param oldForm previous form, may be {@code null}
+     * @param newForm new form, may be {@code null}
+     * @return difference between the forms
+     */
+    public static ShowcaseDiff between(Group oldForm, Group newForm) {
+        Map<String, ParameterControl> oldControls = new LinkedHashMap<>();
+        Set<Group> oldGroups = new HashSet<>();
+        if (oldForm != null) {
+            collect(oldForm, oldControls, oldGroups);
+        }
+
+        Map<String, ParameterControl> newControls = new LinkedHashMap<>();
+        if (newForm != null) {
+            collect(newForm, newControls, null);
+        }
+
+        Map<String, ParameterControl> added = new LinkedHashMap<>();
+        Map<String, ParameterControl> changed = new LinkedHashMap<>();
+        Set<String> preserved = new HashSet<>();
+        Map<ParameterControl, ParameterControl> carried = new IdentityHashMap<>();
+
+        for (ParameterControl control : newControls.values()) {
+            ParameterControl old = oldControls.remove(control.name);
+            if (old == null) {
+                added.put(control.name, control);
+                continue;
+            }
+            if (canCarryValue(old, control)) {
+                preserved.add(control.name);
+                carried.put(control, old);
+            }
+            if (!old.equals(control)) {
+                changed.put(control.name, control);
+            }
+        }
+
+        Set<Component> dirty = Collections.newSetFromMap(new IdentityHashMap<Component, Boolean>());
+        if (newForm != null) {
+            markDirty(newForm, oldGroups, added, changed, dirty);
+        }
+
+        return new ShowcaseDiff(added, oldControls, changed, preserved, dirty, carried);
+    }
+
+    /**
+     * Computes difference between forms of two showcases.
+     *
+     * @param oldShowcase previous showcase, may be {@code null}
+     * @param newShowcase new showcase
+     * @return difference between the forms
+     * @see #between(Group, Group)
+     */
+    public static ShowcaseDiff between(Showcase oldShowcase, Showcase newShowcase) {
+        checkNotNull(newShowcase, "newShowcase");
+        return between(oldShowcase == null ? null : oldShowcase.form, newShowcase.form);
+    }
+
+    /**
+     * Carries values entered by the user over to the controls of the new form listed in
+     * {@link #preserved}. Containers of the new form are notified about the changes.
+     */
+    public void carryValues() {
+        for (Map.Entry<ParameterControl, ParameterControl> entry : carried.entrySet()) {
+            ParameterControl to = entry.getKey();
+            ParameterControl from = entry.getValue();
+            if (to instanceof Checkbox) {
+                ((Checkbox) to).setChecked(((Checkbox) from).isChecked());
+            } else {
+                to.setValue(from.getValue());
+            }
+        }
+    }
+
+    /**
+     * @return {@code true} if forms are equal
+     */
+    public boolean isEmpty() {
+        return added.isEmpty() && removed.isEmpty() && changed.isEmpty();
+    }
+
+    /**
+     * Checks if component of the new form has to be re-rendered (and re-validated). Groups are
+     * unchanged if an equal group was present in the old form, controls are unchanged if they
+     * were neither added nor changed.
+     *
+     * @param component component of the new form
+     * @return {@code true} if component differs from the old form
+     */
+    public boolean isChanged(Component component) {
+        return dirty.contains(checkNotNull(component, "component"));
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+
+        ShowcaseDiff that = (ShowcaseDiff) o;
+
+        return added.equals(that.added) && removed.equals(that.removed) &&
+                changed.equals(that.changed) && preserved.equals(that.preserved);
+    }
+
+    @Override
+    public int hashCode() {
+        int result = added.hashCode();
+        result = 31 * result + removed.hashCode();
+        result = 31 * result + changed.hashCode();
+        result = 31 * result + preserved.hashCode();
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return "ShowcaseDiff{" +
+                "added=" + added.keySet() +
+                ", removed=" + removed.keySet() +
+                ", changed=" + changed.keySet() +
+                ", preserved=" + preserved +
+                '}';
+    }
+
+    private static void collect(Group group, Map<String, ParameterControl> controls, Set<Group> groups) {
+        if (groups != null) {
+            groups.add(group);
+        }
+        for (Component component : group.items) {
+            if (component instanceof Group) {
+                collect((Group) component, controls, groups);
+            } else if (component instanceof ParameterControl) {
+                ParameterControl control = (ParameterControl) component;
+                if (!controls.containsKey(control.name)) {
+                    controls.put(control.name, control);
+                }
+                if (component instanceof Select) {
+                    for (Select.Option option : ((Select) component).options) {
+                        if (option.group != null) {
+                            collect(option.group, controls, groups);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    private static boolean canCarryValue(ParameterControl from, ParameterControl to) {
+        return from.getValue() != null && !to.readonly && to.getValue() == null &&
+                from.getClass() == to.getClass();
+    }
+
+    private static boolean markDirty(Group group, Set<Group> oldGroups, Map<String, ParameterControl> added,
+                                     Map<String, ParameterControl> changed, Set<Component> dirty) {
+        boolean result = false;
+        for (Component component : group.items) {
+            if (component instanceof Group) {
+                result |= markDirty((Group) component, oldGroups, added, changed, dirty);
+            } else if (component instanceof ParameterControl) {
+                ParameterControl control = (ParameterControl) component;
+                boolean controlChanged = added.get(control.name) == control || changed.get(control.name) == control;
+                if (component instanceof Select) {
+                    for (Select.Option option : ((Select) component).options) {
+                        if (option.group != null) {
+                            controlChanged |= markDirty(option.group, oldGroups, added, changed, dirty);
+                        }
+                    }
+                }
+                if (controlChanged) {
+                    dirty.add(control);
+                    result = true;
+                }
+            }
+        }
+        if (result || !oldGroups.contains(group)) {
+            dirty.add(group);
+            return true;
+        }
+        return false;
+    }
+}
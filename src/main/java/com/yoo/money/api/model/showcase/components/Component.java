@@ -24,8 +24,11 @@
 
 package com.yoo.money.api.model.showcase.components;
 
+import com.yoo.money.api.model.showcase.components.uicontrols.ParameterControl;
 import com.yoo.money.api.util.Enums;
 
+import static com.yoo.money.api.util.Common.checkNotNull;
+
 /**
  * Base entity of payment form. All components have appropriate builders and should be
  * constructed by them.
@@ -34,6 +37,11 @@ import com.yoo.money.api.util.Enums;
  */
 public abstract class Component {
 
+    /**
+     * Component containing this one. May be {@code null}.
+     */
+    private Component parent;
+
     /**
      * Validates component state.
      *
@@ -41,6 +49,43 @@ public abstract class Component {
      */
     public abstract boolean isValid();
 
+    /**
+     * @return component containing this one or {@code null} if it is a root component
+     */
+    public Component getParent() {
+        return parent;
+    }
+
+    /**
+     * Called when a value of {@link ParameterControl} within this component was changed. Default
+     * implementation notifies the parent component. Subclasses caching their state should reset it
+     * and call super method.
+     *
+     * @param control changed control
+     */
+    protected void onValueChanged(ParameterControl control) {
+        if (parent != null) {
+            parent.onValueChanged(control);
+        }
+    }
+
+    /**
+     * Attaches component to its parent. Should be called by containers on construction. A component
+     * can belong to a single parent only, so the same instance can't be shared between containers.
+     *
+     * @param child child component
+     * @param parent parent component
+     * @throws IllegalArgumentException if {@code child} is already attached to another parent
+     */
+    protected static void attach(Component child, Component parent) {
+        checkNotNull(child, "child");
+        checkNotNull(parent, "parent");
+        if (child.parent != null && child.parent != parent) {
+            throw new IllegalArgumentException("component is already attached to another parent");
+        }
+        child.parent = parent;
+    }
+
     /**
      * Possible field types.
      */
@@ -53,6 +53,11 @@ public abstract class Container<T> extends Component {
     protected Container(Builder<T> builder) {
         label = builder.label;
         items = Collections.unmodifiableList(checkNotNull(builder.items, "items"));
+        for (T item : items) {
+            if (item instanceof Component) {
+                attach((Component) item, this);
+            }
+        }
     }
 
     @Override
@@ -1,6 +1,7 @@
 package com.yoo.money.api.model.showcase.components.containers;
 
 import com.yoo.money.api.model.showcase.components.Component;
+import com.yoo.money.api.model.showcase.components.uicontrols.ParameterControl;
 
 import java.util.Objects;
 
@@ -22,6 +23,11 @@ public class Expand extends Container<Component> {
      */
     public final String labelExpanded;
 
+    /**
+     * Cached validity of contained components. {@code null} if not computed yet.
+     */
+    private Boolean valid;
+
     @SuppressWarnings("WeakerAccess")
     protected Expand(Builder builder) {
         super(builder);
@@ -30,12 +36,26 @@ public class Expand extends Container<Component> {
     }
 
     /**
-     * Validates contained components across constraints.
+     * Validates contained components across constraints. Result is cached until a value of any
+     * contained control is changed.
      *
      * @return {@code true} if group is valid and {@code false} otherwise.
      */
     @Override
     public boolean isValid() {
+        if (valid == null) {
+            valid = validate();
+        }
+        return valid;
+    }
+
+    @Override
+    protected void onValueChanged(ParameterControl control) {
+        valid = null;
+        super.onValueChanged(control);
+    }
+
+    private boolean validate() {
         for (Component component : items) {
             if (!component.isValid()) {
                 return false;
@@ -26,10 +26,13 @@ package com.yoo.money.api.model.showcase.components.containers;
 
 import com.yoo.money.api.model.showcase.components.Component;
 import com.yoo.money.api.model.showcase.components.Parameter;
+import com.yoo.money.api.model.showcase.components.uicontrols.ParameterControl;
 import com.yoo.money.api.model.showcase.components.uicontrols.Select;
 import com.yoo.money.api.util.Enums;
 
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 import static com.yoo.money.api.util.Common.checkNotNull;
 
@@ -44,6 +47,13 @@ public class Group extends Container<Component> {
      */
     public final Layout layout;
 
+    /**
+     * Cached validity of contained components. {@code null} if not computed yet.
+     */
+    private Boolean valid;
+
+    private final List<OnValueChangeListener> onValueChangeListeners = new CopyOnWriteArrayList<>();
+
     @SuppressWarnings("WeakerAccess")
     protected Group(Builder builder) {
         super(builder);
@@ -74,12 +84,48 @@ public class Group extends Container<Component> {
     }
 
     /**
-     * Validates contained components across constraints.
+     * Validates contained components across constraints. Result is cached until a value of any
+     * contained control is changed.
      *
      * @return {@code true} if group is valid and {@code false} otherwise.
      */
     @Override
     public boolean isValid() {
+        if (valid == null) {
+            valid = validate();
+        }
+        return valid;
+    }
+
+    /**
+     * Adds listener to be notified when a value of any contained control is changed. Listeners are
+     * notified in order of addition.
+     *
+     * @param listener listener
+     */
+    public void addOnValueChangeListener(OnValueChangeListener listener) {
+        onValueChangeListeners.add(checkNotNull(listener, "listener"));
+    }
+
+    /**
+     * Removes previously added listener.
+     *
+     * @param listener listener
+     */
+    public void removeOnValueChangeListener(OnValueChangeListener listener) {
+        onValueChangeListeners.remove(listener);
+    }
+
+    @Override
+    protected void onValueChanged(ParameterControl control) {
+        valid = null;
+        super.onValueChanged(control);
+        for (OnValueChangeListener listener : onValueChangeListeners) {
+            listener.onValueChanged(control);
+        }
+    }
+
+    private boolean validate() {
         for (Component component : items) {
             if (!component.isValid()) {
                 return false;
@@ -106,6 +152,19 @@ public class Group extends Container<Component> {
         return result;
     }
 
+    /**
+     * Listener of value changes within a {@link Group}.
+     */
+    public interface OnValueChangeListener {
+
+        /**
+         * Called after a value of contained control was set.
+         *
+         * @param control changed control
+         */
+        void onValueChanged(ParameterControl control);
+    }
+
     /**
      * Possible options that specifies arrangement of contained {@link Component}s.
      */
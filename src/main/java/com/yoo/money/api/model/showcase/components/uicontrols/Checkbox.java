@@ -29,10 +29,7 @@ package com.yoo.money.api.model.showcase.components.uicontrols;
  */
 public class Checkbox extends ParameterControl {
 
-    /**
-     * Initial state. Default is {@code false}.
-     */
-    public boolean checked;
+    private boolean checked;
 
     @SuppressWarnings("WeakerAccess")
     protected Checkbox(Builder builder) {
@@ -40,6 +37,26 @@ public class Checkbox extends ParameterControl {
         checked = builder.checked;
     }
 
+    /**
+     * @return {@code true} if checkbox is checked. Initial state is {@code false} unless specified
+     */
+    public boolean isChecked() {
+        return checked;
+    }
+
+    /**
+     * Sets state. Containers of this control are notified about the change.
+     *
+     * @param checked new state
+     */
+    public void setChecked(boolean checked) {
+        if (readonly) {
+            throw new IllegalArgumentException("trying to change state of readonly parameter '" + name + "'");
+        }
+        this.checked = checked;
+        onValueChanged(this);
+    }
+
     @Override
     public boolean isValid(String value) {
         return !required || checked;
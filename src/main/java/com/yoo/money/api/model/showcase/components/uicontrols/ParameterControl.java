@@ -74,7 +74,7 @@ public abstract class ParameterControl extends Control implements Parameter {
     }
 
     /**
-     * Sets value.
+     * Sets value. Containers of this control are notified about the change.
      *
      * @param value input value
      */
@@ -85,6 +85,7 @@ public abstract class ParameterControl extends Control implements Parameter {
         }
         this.value = value;
         onValueSet(value);
+        onValueChanged(this);
     }
 
     @Override
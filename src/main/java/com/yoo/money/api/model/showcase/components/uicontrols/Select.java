@@ -63,6 +63,11 @@ public class Select extends ParameterControl {
         options = Collections.unmodifiableList(checkNotNull(builder.options, "options"));
         values = Collections.unmodifiableList(getValues(options));
         style = builder.style;
+        for (Option option : options) {
+            if (option.group != null) {
+                attach(option.group, this);
+            }
+        }
     }
 
     @Override
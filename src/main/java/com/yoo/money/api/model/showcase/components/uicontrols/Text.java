@@ -26,6 +26,9 @@ package com.yoo.money.api.model.showcase.components.uicontrols;
 
 
 import com.yoo.money.api.util.Enums;
+import com.yoo.money.api.util.Patterns;
+
+import java.util.regex.Pattern;
 
 /**
  * Text field. Specializes {@link TextArea} with optional keyboard layout and pattern.
@@ -46,6 +49,11 @@ public class Text extends TextArea {
      */
     public final Keyboard keyboard;
 
+    /**
+     * Compiled {@link #pattern}. Obtained from {@link Patterns} cache on first validation.
+     */
+    private Pattern compiledPattern;
+
     protected Text(Builder builder) {
         super(builder);
         pattern = builder.pattern;
@@ -55,7 +63,14 @@ public class Text extends TextArea {
     @Override
     public boolean isValid(String value) {
         return super.isValid(value) && (value == null || value.isEmpty() ||
-                (pattern == null || value.matches(pattern)) && !value.contains("\n"));
+                (pattern == null || getCompiledPattern().matcher(value).matches()) && !value.contains("\n"));
+    }
+
+    private Pattern getCompiledPattern() {
+        if (compiledPattern == null) {
+            compiledPattern = Patterns.compile(pattern);
+        }
+        return compiledPattern;
     }
 
     @Override
@@ -40,6 +40,11 @@ import java.util.Map;
 /**
  * Base implementation of {@link ApiRequest}. It is preferable to extend your requests from this class or its
  * descendants rather than create your own implementation of {@link ApiRequest}.
+ * <p>
+ * Headers, parameters and body can be changed until the request is used for the first time, i.e. until any of
+ * {@link #requestUrl(HostsProvider)}, {@link #getHeaders()}, {@link #getParameters()} or {@link #getBody()} is
+ * called. After that the request is immutable: encoded parameters are computed once and the request can be executed
+ * concurrently from different threads and reused for retries.
  *
  * @author Slava Yasevich (support@yoomoney.ru)
  */
@@ -47,30 +52,47 @@ public abstract class BaseApiRequest<T> implements ApiRequest<T> {
 
     private transient final Map<String, String> headers = new HashMap<>();
     private transient final Map<String, String> parameters = new HashMap<>();
-    private transient final ParametersBuffer buffer = new ParametersBuffer();
 
     private transient byte[] body;
+    private transient volatile boolean sealed;
+
+    // computed lazily after the request is sealed, racy initialization is fine as values are always the same
+    private transient volatile String query;
+    private transient volatile byte[] encodedBody;
 
     @Override
     public final String requestUrl(HostsProvider hostsProvider) {
+        seal();
         String url = requestUrlBase(hostsProvider);
-        return getMethod().supportsRequestBody() ? url : url + buffer.setParameters(parameters).prepareGet();
+        return getMethod().supportsRequestBody() ? url : url + getQuery();
     }
 
     @Override
     public final Map<String, String> getHeaders() {
+        seal();
         return Collections.unmodifiableMap(headers);
     }
 
     @Override
     public final Map<String, String> getParameters() {
+        seal();
         return Collections.unmodifiableMap(parameters);
     }
 
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Returned array is shared by all callers and must not be modified.
+     */
     @Override
     public final byte[] getBody() {
-        prepareBody();
-        return body == null ? buffer.setParameters(parameters).prepareBytes() : body;
+        seal();
+        byte[] encodedBody = this.encodedBody;
+        if (encodedBody == null) {
+            encodedBody = body == null ? new ParametersBuffer().setParameters(parameters).prepareBytes() : body;
+            this.encodedBody = encodedBody;
+        }
+        return encodedBody;
     }
 
     @Override
@@ -95,6 +117,7 @@ public abstract class BaseApiRequest<T> implements ApiRequest<T> {
      */
     @SuppressWarnings("WeakerAccess")
     protected final void addHeader(String key, String value) {
+        checkNotSealed();
         headers.put(key, value);
     }
 
@@ -114,6 +137,7 @@ public abstract class BaseApiRequest<T> implements ApiRequest<T> {
      * @param headers headers to add
      */
     protected final void addHeaders(Map<String, String> headers) {
+        checkNotSealed();
         this.headers.putAll(headers);
     }
 
@@ -124,6 +148,7 @@ public abstract class BaseApiRequest<T> implements ApiRequest<T> {
      * @param value value
      */
     protected final void addParameter(String key, String value) {
+        checkNotSealed();
         parameters.put(key, value);
     }
 
@@ -193,6 +218,7 @@ public abstract class BaseApiRequest<T> implements ApiRequest<T> {
      * @param parameters parameters to add
      */
     protected final void addParameters(Map<String, String> parameters) {
+        checkNotSealed();
         this.parameters.putAll(parameters);
     }
 
@@ -203,6 +229,7 @@ public abstract class BaseApiRequest<T> implements ApiRequest<T> {
      */
     @SuppressWarnings("WeakerAccess")
     protected final void setBody(byte[] body) {
+        checkNotSealed();
         this.body = body;
     }
 
@@ -218,9 +245,36 @@ public abstract class BaseApiRequest<T> implements ApiRequest<T> {
 
     /**
      * Allows you to lazily prepare request body before {@link #getBody()} method returns. You can use
-     * {@link #setBody(byte[])} or any of {@code addParameter*} methods here.
+     * {@link #setBody(byte[])} or any of {@code addParameter*} methods here. Called once, when the request is used
+     * for the first time.
      */
     @SuppressWarnings("WeakerAccess")
     protected void prepareBody() {
     }
+
+    private String getQuery() {
+        String query = this.query;
+        if (query == null) {
+            query = new ParametersBuffer().setParameters(parameters).prepareGet();
+            this.query = query;
+        }
+        return query;
+    }
+
+    private void seal() {
+        if (!sealed) {
+            synchronized (this) {
+                if (!sealed) {
+                    prepareBody();
+                    sealed = true;
+                }
+            }
+        }
+    }
+
+    private void checkNotSealed() {
+        if (sealed) {
+            throw new IllegalStateException("request is already in use and can not be modified");
+        }
+    }
 }
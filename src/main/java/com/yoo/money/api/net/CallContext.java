@@ -0,0 +1,228 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2020 NBCO YooMoney LLC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.yoo.money.api.net;
+
+import com.yoo.money.api.exceptions.CallCancelledException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+
+import static com.yoo.money.api.util.Common.checkNotNull;
+
+/**
+ * Deadline and cancellation of a call. A context is attached to the current thread while a call runs, so every
+ * request executed by {@link com.yoo.money.api.net.clients.DefaultApiClient} on that thread gets HTTP timeouts not
+ * exceeding the remaining time, is cancelled with {@link #cancel()} and is not sent at all when the context is no
+ * longer active. Sleeps between retries of payment processes are interrupted as well.
+ * <p>
+ * Example:
+ * <pre>
+ * {@code
+ * CallContext context = CallContext.withTimeout(2, TimeUnit.SECONDS);
+ * boolean completed = paymentProcess.proceed(context);
+ * }
+ * </pre>
+ * This class is thread safe: {@link #cancel()} is usually called from another thread.
+ */
+public final class CallContext {
+
+    private static final ThreadLocal<CallContext> CURRENT = new ThreadLocal<>();
+
+    private final long deadline;
+    private final boolean hasDeadline;
+    private final List<Listener> listeners = new ArrayList<>();
+
+    private boolean cancelled;
+
+    private CallContext(long deadline, boolean hasDeadline) {
+        this.deadline = deadline;
+        this.hasDeadline = hasDeadline;
+    }
+
+    /**
+     * @return new context without deadline which can be cancelled
+     */
+    public static CallContext create() {
+        return new CallContext(0, false);
+    }
+
+    /**
+     * @param timeout time from now until the deadline
+     * @param unit unit of the timeout
+     * @return new context with a deadline
+     */
+    public static CallContext withTimeout(long timeout, TimeUnit unit) {
+        return new CallContext(System.nanoTime() + checkNotNull(unit, "unit").toNanos(timeout), true);
+    }
+
+    /**
+     * @return context attached to the current thread or {@code null} if there is none
+     */
+    public static CallContext current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * Runs a task with this context attached to the current thread.
+     *
+     * @param task task to run
+     * @param <T> type of result
+     * @return result of the task
+     * @throws CallCancelledException if the context is not active before the task is started
+     * @throws Exception if the task has thrown an exception
+     */
+    public <T> T call(Callable<T> task) throws Exception {
+        checkActive();
+        CallContext previous = CURRENT.get();
+        CURRENT.set(this);
+        try {
+            return task.call();
+        } finally {
+            if (previous == null) {
+                CURRENT.remove();
+            } else {
+                CURRENT.set(previous);
+            }
+        }
+    }
+
+    /**
+     * Cancels the context. Running calls are cancelled and new calls are not started.
+     */
+    public void cancel() {
+        List<Listener> listeners;
+        synchronized (this) {
+            if (cancelled) {
+                return;
+            }
+            cancelled = true;
+            listeners = new ArrayList<>(this.listeners);
+            this.listeners.clear();
+            notifyAll();
+        }
+        for (Listener listener : listeners) {
+            listener.onCancelled();
+        }
+    }
+
+    /**
+     * @return {@code true} if the context was cancelled
+     */
+    public synchronized boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * @return {@code true} if the deadline of the context has passed
+     */
+    public boolean isExpired() {
+        return hasDeadline && deadline - System.nanoTime() <= 0;
+    }
+
+    /**
+     * @return {@code true} if the context is neither cancelled nor expired
+     */
+    public boolean isActive() {
+        return !isCancelled() && !isExpired();
+    }
+
+    /**
+     * @return milliseconds remaining until the deadline, {@link Long#MAX_VALUE} if there is no deadline
+     */
+    public long getRemainingMillis() {
+        if (!hasDeadline) {
+            return Long.MAX_VALUE;
+        }
+        return Math.max(0, TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime()));
+    }
+
+    /**
+     * @throws CallCancelledException if the context is cancelled or expired
+     */
+    public void checkActive() throws CallCancelledException {
+        if (isCancelled()) {
+            throw new CallCancelledException(false);
+        }
+        if (isExpired()) {
+            throw new CallCancelledException(true);
+        }
+    }
+
+    /**
+     * Adds a listener which is notified when the context is cancelled. If the context is already cancelled the
+     * listener is notified immediately.
+     *
+     * @param listener listener
+     */
+    public void addListener(Listener listener) {
+        checkNotNull(listener, "listener");
+        synchronized (this) {
+            if (!cancelled) {
+                listeners.add(listener);
+                return;
+            }
+        }
+        listener.onCancelled();
+    }
+
+    /**
+     * @param listener listener to remove
+     */
+    public synchronized void removeListener(Listener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Sleeps for specified time, until the deadline or until the context is cancelled, whichever comes first.
+     *
+     * @param millis time to sleep in milliseconds
+     * @throws InterruptedException if the current thread was interrupted
+     */
+    public synchronized void sleep(long millis) throws InterruptedException {
+        long end = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(millis);
+        while (!cancelled) {
+            long remaining = TimeUnit.NANOSECONDS.toMillis(end - System.nanoTime());
+            if (hasDeadline) {
+                remaining = Math.min(remaining, getRemainingMillis());
+            }
+            if (remaining <= 0) {
+                return;
+            }
+            wait(remaining);
+        }
+    }
+
+    /**
+     * Listener of cancellation.
+     */
+    public interface Listener {
+
+        /**
+         * Called once when the context is cancelled. May be called on any thread.
+         */
+        void onCancelled();
+    }
+}
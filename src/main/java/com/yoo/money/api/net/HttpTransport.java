@@ -0,0 +1,46 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2020 NBCO YooMoney LLC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.yoo.money.api.net;
+
+import java.io.IOException;
+
+/**
+ * Sends HTTP requests prepared by API clients. Implementations adapt a particular HTTP library, so clients are not
+ * bound to it.
+ * <p>
+ * Implementations must be thread safe. They should honour {@link TransportRequest#getContext() call context} of a
+ * request: limit timeouts by the time remaining until its deadline and abort the call when it is cancelled.
+ */
+public interface HttpTransport {
+
+    /**
+     * Executes request. The returned response is not consumed, its body is read by the caller.
+     *
+     * @param request request to execute
+     * @return response
+     * @throws IOException if unable to execute request
+     */
+    HttpClientResponse execute(TransportRequest request) throws IOException;
+}
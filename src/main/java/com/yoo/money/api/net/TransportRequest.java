@@ -0,0 +1,189 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2020 NBCO YooMoney LLC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.yoo.money.api.net;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static com.yoo.money.api.util.Common.checkNotNull;
+
+/**
+ * HTTP request passed to {@link HttpTransport}. Contains everything needed to send the request regardless of the HTTP
+ * library in use. Instances of this class are immutable, use {@link Builder} to create them.
+ */
+public final class TransportRequest {
+
+    private final ApiRequest.Method method;
+    private final String url;
+    private final Map<String, String> headers;
+    private final String contentType;
+    private final byte[] body;
+    private final boolean idempotent;
+    private final CallContext context;
+
+    TransportRequest(Builder builder) {
+        method = checkNotNull(builder.method, "method");
+        url = checkNotNull(builder.url, "url");
+        headers = Collections.unmodifiableMap(new LinkedHashMap<>(builder.headers));
+        contentType = builder.contentType;
+        body = builder.body;
+        idempotent = builder.idempotent;
+        context = builder.context;
+    }
+
+    /**
+     * @return HTTP method
+     */
+    public ApiRequest.Method getMethod() {
+        return method;
+    }
+
+    /**
+     * @return URL of the request
+     */
+    public String getUrl() {
+        return url;
+    }
+
+    /**
+     * @return headers in the order they were added
+     */
+    public Map<String, String> getHeaders() {
+        return headers;
+    }
+
+    /**
+     * @return content type of the body or {@code null} if the request has no body
+     */
+    public String getContentType() {
+        return contentType;
+    }
+
+    /**
+     * @return body of the request or {@code null} if the request has no body; the array must not be modified
+     */
+    public byte[] getBody() {
+        return body;
+    }
+
+    /**
+     * @return {@code true} if the request may be sent several times with the same effect
+     * @see IdempotentRequest
+     */
+    public boolean isIdempotent() {
+        return idempotent;
+    }
+
+    /**
+     * @return context of the call or {@code null} if the call has no deadline and can not be cancelled
+     */
+    public CallContext getContext() {
+        return context;
+    }
+
+    /**
+     * Creates {@link TransportRequest}.
+     */
+    public static class Builder {
+
+        final Map<String, String> headers = new LinkedHashMap<>();
+
+        ApiRequest.Method method = ApiRequest.Method.GET;
+        String url;
+        String contentType;
+        byte[] body;
+        boolean idempotent;
+        CallContext context;
+
+        /**
+         * @param method HTTP method, {@link ApiRequest.Method#GET} by default
+         * @return itself
+         */
+        public Builder setMethod(ApiRequest.Method method) {
+            this.method = checkNotNull(method, "method");
+            return this;
+        }
+
+        /**
+         * @param url URL of the request
+         * @return itself
+         */
+        public Builder setUrl(String url) {
+            this.url = checkNotNull(url, "url");
+            return this;
+        }
+
+        /**
+         * Adds header. Headers with {@code null} values are ignored.
+         *
+         * @param name name of the header
+         * @param value value of the header
+         * @return itself
+         */
+        public Builder addHeader(String name, String value) {
+            if (value != null) {
+                headers.put(checkNotNull(name, "name"), value);
+            }
+            return this;
+        }
+
+        /**
+         * @param contentType content type of the body
+         * @param body body of the request
+         * @return itself
+         */
+        public Builder setBody(String contentType, byte[] body) {
+            this.contentType = contentType;
+            this.body = body;
+            return this;
+        }
+
+        /**
+         * @param idempotent {@code true} if the request may be sent several times with the same effect
+         * @return itself
+         */
+        public Builder setIdempotent(boolean idempotent) {
+            this.idempotent = idempotent;
+            return this;
+        }
+
+        /**
+         * @param context context of the call
+         * @return itself
+         */
+        public Builder setContext(CallContext context) {
+            this.context = context;
+            return this;
+        }
+
+        /**
+         * @return transport request
+         */
+        public TransportRequest create() {
+            return new TransportRequest(this);
+        }
+    }
+}
@@ -0,0 +1,457 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2020 NBCO YooMoney LLC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.yoo.money.api.net.clients;
+
+import com.yoo.money.api.net.providers.DefaultApiV1HostsProvider;
+import com.yoo.money.api.net.providers.HostsProvider;
+import okhttp3.Dns;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.MalformedURLException;
+import java.net.Socket;
+import java.net.URL;
+import java.net.UnknownHostException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.yoo.money.api.util.Common.checkNotNull;
+
+/**
+ * Caching implementation of OkHttp {@link Dns}. Resolved addresses are cached for a time to live independently of JVM
+ * DNS cache settings and are refreshed in background before they expire, so lookups on the request path are served
+ * from the cache. If resolution fails, expired addresses are used for a while.
+ * <p>
+ * OkHttp tries addresses of a host one after another and waits for the connect timeout on each unreachable one. To
+ * avoid this, racing can be enabled with {@link Builder#setRacing(boolean)}: when a host has several addresses, TCP
+ * connections to all of them are raced in background and the address which connects first is moved to the head of
+ * the cached list; addresses which fail to connect are moved to its end. Lookups never wait for a race: the first
+ * lookup of a host returns addresses in the resolver's order. Addresses are raced when they are resolved for the first
+ * time; on refresh they are raced again only if the previous race had a connect failure or the resolver returned
+ * other addresses, so healthy hosts do not get extra connections. Only hosts of the {@link HostsProvider} set with
+ * {@link Builder#setHostsProvider(HostsProvider)} are raced, using ports of its URLs; addresses of other hosts are
+ * not reordered.
+ * <p>
+ * This class is thread safe. One instance can be shared by several clients. Use {@link Builder} to create it.
+ *
+ * @see DefaultApiClient.Builder#setDns(Dns)
+ */
+public final class CachingDns implements Dns {
+
+    private final Dns delegate;
+    private final long ttl;
+    private final long refreshAfter;
+    private final long maxStale;
+    private final Map<String, Integer> racePorts;
+    private final int raceTimeout;
+
+    private final ConcurrentMap<String, Entry> cache = new ConcurrentHashMap<>();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong refreshes = new AtomicLong();
+    private final AtomicLong staleHits = new AtomicLong();
+
+    private ExecutorService executor;
+
+    CachingDns(Builder builder) {
+        delegate = builder.delegate;
+        ttl = builder.ttl;
+        refreshAfter = builder.refreshAfter < 0 ? builder.ttl * 3 / 4 : Math.min(builder.refreshAfter, builder.ttl);
+        maxStale = builder.maxStale;
+        racePorts = builder.racing ? getPorts(builder.hostsProvider) : Collections.<String, Integer>emptyMap();
+        raceTimeout = builder.raceTimeout;
+    }
+
+    @Override
+    public List<InetAddress> lookup(final String hostname) throws UnknownHostException {
+        checkNotNull(hostname, "hostname");
+        Entry entry = cache.get(hostname);
+        long now = System.currentTimeMillis();
+        if (entry != null && now - entry.resolved < ttl) {
+            hits.incrementAndGet();
+            if (now - entry.resolved >= refreshAfter && entry.refreshing.compareAndSet(false, true)) {
+                getExecutor().execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        refresh(hostname);
+                    }
+                });
+            }
+            return entry.addresses;
+        }
+
+        misses.incrementAndGet();
+        try {
+            return resolve(hostname, false).addresses;
+        } catch (UnknownHostException e) {
+            if (entry != null && now - entry.resolved < ttl + maxStale) {
+                staleHits.incrementAndGet();
+                return entry.addresses;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Removes all cached addresses.
+     */
+    public void clear() {
+        cache.clear();
+    }
+
+    /**
+     * @return number of lookups served from the cache
+     */
+    public long getHits() {
+        return hits.get();
+    }
+
+    /**
+     * @return number of lookups which waited for resolution
+     */
+    public long getMisses() {
+        return misses.get();
+    }
+
+    /**
+     * @return number of background refreshes
+     */
+    public long getRefreshes() {
+        return refreshes.get();
+    }
+
+    /**
+     * @return number of lookups served with expired addresses because resolution failed
+     */
+    public long getStaleHits() {
+        return staleHits.get();
+    }
+
+    private void refresh(String hostname) {
+        refreshes.incrementAndGet();
+        try {
+            resolve(hostname, true);
+        } catch (UnknownHostException e) {
+            // cached addresses are used until they expire
+            Entry entry = cache.get(hostname);
+            if (entry != null) {
+                entry.refreshing.set(false);
+            }
+        }
+    }
+
+    /**
+     * Resolves addresses and caches them.
+     *
+     * @param hostname host name
+     * @param background {@code true} if called in background, so addresses can be raced before they are cached;
+     *                   otherwise they are cached as is and raced afterwards
+     * @return cached entry
+     */
+    private Entry resolve(final String hostname, boolean background) throws UnknownHostException {
+        List<InetAddress> addresses = delegate.lookup(hostname);
+        Integer port = addresses.size() > 1 ? racePorts.get(hostname) : null;
+        Entry previous = cache.get(hostname);
+        boolean connected = false;
+        if (port != null && previous != null && previous.connected && sameAddresses(previous.addresses, addresses)) {
+            // all addresses connected in the last race, so its order is kept
+            addresses = previous.addresses;
+            connected = true;
+            port = null;
+        } else if (port != null && background) {
+            Ranking ranking = race(addresses, port);
+            addresses = ranking.addresses;
+            connected = ranking.connected;
+            port = null;
+        }
+        final Entry entry = new Entry(Collections.unmodifiableList(new ArrayList<>(addresses)),
+                System.currentTimeMillis(), connected);
+        cache.put(hostname, entry);
+
+        if (port != null) {
+            final int racePort = port;
+            getExecutor().execute(new Runnable() {
+                @Override
+                public void run() {
+                    Ranking ranking = race(entry.addresses, racePort);
+                    // keeps newer addresses if the entry has been replaced in the meantime
+                    cache.replace(hostname, entry, new Entry(Collections.unmodifiableList(ranking.addresses),
+                            entry.resolved, ranking.connected));
+                }
+            });
+        }
+        return entry;
+    }
+
+    private static boolean sameAddresses(List<InetAddress> cached, List<InetAddress> resolved) {
+        return cached.size() == resolved.size() && new HashSet<>(cached).equals(new HashSet<>(resolved));
+    }
+
+    /**
+     * Connects to all addresses concurrently and waits for the first one to connect.
+     */
+    private Ranking race(List<InetAddress> addresses, final int port) {
+        final BlockingQueue<Probe> results = new ArrayBlockingQueue<>(addresses.size());
+        for (final InetAddress address : addresses) {
+            getExecutor().execute(new Runnable() {
+                @Override
+                public void run() {
+                    boolean connected;
+                    try (Socket socket = new Socket()) {
+                        socket.connect(new InetSocketAddress(address, port), raceTimeout);
+                        connected = true;
+                    } catch (IOException e) {
+                        connected = false;
+                    }
+                    results.add(new Probe(address, connected));
+                }
+            });
+        }
+
+        List<InetAddress> failed = new ArrayList<>();
+        InetAddress winner = null;
+        int received = 0;
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(raceTimeout);
+        try {
+            // waits for all probes within the timeout to know whether any address fails
+            while (received < addresses.size()) {
+                Probe probe = results.poll(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+                if (probe == null) {
+                    break;
+                }
+                ++received;
+                if (!probe.connected) {
+                    failed.add(probe.address);
+                } else if (winner == null) {
+                    winner = probe.address;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        List<InetAddress> ordered = new ArrayList<>(addresses.size());
+        if (winner != null) {
+            ordered.add(winner);
+        }
+        for (InetAddress address : addresses) {
+            if (address != winner && !failed.contains(address)) {
+                ordered.add(address);
+            }
+        }
+        ordered.addAll(failed);
+        return new Ranking(ordered, received == addresses.size() && failed.isEmpty());
+    }
+
+    /**
+     * @return ports of URLs of the provider by host name
+     */
+    private static Map<String, Integer> getPorts(HostsProvider hostsProvider) {
+        Map<String, Integer> ports = new HashMap<>();
+        for (String url : Arrays.asList(hostsProvider.getMoneyApi(), hostsProvider.getPaymentApi(),
+                hostsProvider.getMoney(), hostsProvider.getMobileMoney(), hostsProvider.getWebUrl())) {
+            if (url == null) {
+                continue;
+            }
+            try {
+                URL parsed = new URL(url);
+                int port = parsed.getPort() == -1 ? parsed.getDefaultPort() : parsed.getPort();
+                if (port != -1 && !ports.containsKey(parsed.getHost())) {
+                    ports.put(parsed.getHost(), port);
+                }
+            } catch (MalformedURLException e) {
+                throw new IllegalArgumentException("invalid host URL: " + url, e);
+            }
+        }
+        return ports;
+    }
+
+    private synchronized ExecutorService getExecutor() {
+        if (executor == null) {
+            executor = Executors.newCachedThreadPool(new DaemonThreadFactory("CachingDns"));
+        }
+        return executor;
+    }
+
+    private static final class Entry {
+
+        final List<InetAddress> addresses;
+        final long resolved;
+        final boolean connected;
+        final AtomicBoolean refreshing = new AtomicBoolean();
+
+        Entry(List<InetAddress> addresses, long resolved, boolean connected) {
+            this.addresses = addresses;
+            this.resolved = resolved;
+            this.connected = connected;
+        }
+    }
+
+    private static final class Ranking {
+
+        final List<InetAddress> addresses;
+        final boolean connected;
+
+        Ranking(List<InetAddress> addresses, boolean connected) {
+            this.addresses = addresses;
+            this.connected = connected;
+        }
+    }
+
+    private static final class Probe {
+
+        final InetAddress address;
+        final boolean connected;
+
+        Probe(InetAddress address, boolean connected) {
+            this.address = address;
+            this.connected = connected;
+        }
+    }
+
+    /**
+     * Creates {@link CachingDns}.
+     */
+    public static class Builder {
+
+        Dns delegate = Dns.SYSTEM;
+        long ttl = TimeUnit.MINUTES.toMillis(1);
+        long refreshAfter = -1;
+        long maxStale = TimeUnit.MINUTES.toMillis(5);
+        boolean racing = false;
+        HostsProvider hostsProvider = new DefaultApiV1HostsProvider(false);
+        int raceTimeout = 1000;
+
+        /**
+         * @param delegate resolver to get addresses from, {@link Dns#SYSTEM} by default
+         * @return itself
+         */
+        public Builder setDelegate(Dns delegate) {
+            this.delegate = checkNotNull(delegate, "delegate");
+            return this;
+        }
+
+        /**
+         * @param ttl time to live of cached addresses in milliseconds, 1 minute by default
+         * @return itself
+         */
+        public Builder setTtl(long ttl) {
+            if (ttl < 1) {
+                throw new IllegalArgumentException("ttl should be positive");
+            }
+            this.ttl = ttl;
+            return this;
+        }
+
+        /**
+         * Sets age of cached addresses after which they are refreshed in background on the next lookup.
+         *
+         * @param refreshAfter age in milliseconds, three quarters of time to live by default
+         * @return itself
+         */
+        public Builder setRefreshAfter(long refreshAfter) {
+            if (refreshAfter < 0) {
+                throw new IllegalArgumentException("refreshAfter should not be negative");
+            }
+            this.refreshAfter = refreshAfter;
+            return this;
+        }
+
+        /**
+         * Sets time after expiration during which cached addresses are used if resolution fails.
+         *
+         * @param maxStale time in milliseconds, 5 minutes by default
+         * @return itself
+         */
+        public Builder setMaxStale(long maxStale) {
+            if (maxStale < 0) {
+                throw new IllegalArgumentException("maxStale should not be negative");
+            }
+            this.maxStale = maxStale;
+            return this;
+        }
+
+        /**
+         * Sets racing of connections to resolved addresses. Racing is disabled by default.
+         *
+         * @param racing {@code true} to order addresses by connection racing
+         * @return itself
+         */
+        public Builder setRacing(boolean racing) {
+            this.racing = racing;
+            return this;
+        }
+
+        /**
+         * Sets hosts to race connections to. Ports to connect to are taken from the provider's URLs. Should be the
+         * same provider as the one of the clients using this resolver.
+         *
+         * @param hostsProvider hosts provider, {@link DefaultApiV1HostsProvider} by default
+         * @return itself
+         */
+        public Builder setHostsProvider(HostsProvider hostsProvider) {
+            this.hostsProvider = checkNotNull(hostsProvider, "hostsProvider");
+            return this;
+        }
+
+        /**
+         * Sets time to wait for the first address to connect when racing. Addresses are not reordered if none of them
+         * connects within this time.
+         *
+         * @param raceTimeout timeout in milliseconds, 1 second by default
+         * @return itself
+         */
+        public Builder setRaceTimeout(int raceTimeout) {
+            if (raceTimeout < 1) {
+                throw new IllegalArgumentException("raceTimeout should be positive");
+            }
+            this.raceTimeout = raceTimeout;
+            return this;
+        }
+
+        /**
+         * @return caching resolver
+         * @throws IllegalArgumentException if racing is enabled and the hosts provider returns an invalid URL
+         */
+        public CachingDns create() {
+            return new CachingDns(this);
+        }
+    }
+}
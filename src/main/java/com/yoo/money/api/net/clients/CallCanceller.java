@@ -0,0 +1,168 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2020 NBCO YooMoney LLC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.yoo.money.api.net.clients;
+
+import com.yoo.money.api.exceptions.CallCancelledException;
+import com.yoo.money.api.net.CallContext;
+import okhttp3.Call;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import okio.Buffer;
+import okio.ForwardingSource;
+import okio.Okio;
+
+import java.io.IOException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Cancels an OkHttp call when its {@link CallContext} is cancelled or the deadline of the context passes. The call
+ * stays cancellable until the body of its response is closed, so reading of a slow body is cancelled as well.
+ */
+final class CallCanceller implements CallContext.Listener, Runnable {
+
+    private static ScheduledThreadPoolExecutor scheduler;
+
+    private final Call call;
+    private final CallContext context;
+    private final ScheduledFuture<?> deadline;
+    private final AtomicBoolean released = new AtomicBoolean();
+
+    private CallCanceller(Call call, CallContext context) {
+        this.call = call;
+        this.context = context;
+        long remaining = context.getRemainingMillis();
+        deadline = remaining == Long.MAX_VALUE
+                ? null
+                : getScheduler().schedule(this, remaining, TimeUnit.MILLISECONDS);
+        context.addListener(this);
+    }
+
+    /**
+     * Executes a call within a context.
+     *
+     * @param call call to execute
+     * @param context context of the call
+     * @return response which body releases the canceller when it is closed
+     * @throws CallCancelledException if the context was cancelled or expired during the call
+     * @throws IOException if the call has failed
+     */
+    static Response execute(Call call, CallContext context) throws IOException {
+        CallCanceller canceller = new CallCanceller(call, context);
+        Response response;
+        try {
+            response = call.execute();
+        } catch (IOException e) {
+            canceller.release();
+            throw canceller.translate(e);
+        } catch (RuntimeException | Error e) {
+            canceller.release();
+            throw e;
+        }
+        return canceller.attachTo(response);
+    }
+
+    /**
+     * Keeps a call which has already been executed cancellable until its response is closed.
+     *
+     * @param call executed call
+     * @param context context of the call
+     * @param response response of the call
+     * @return response which body releases the canceller when it is closed
+     */
+    static Response attach(Call call, CallContext context, Response response) {
+        return new CallCanceller(call, context).attachTo(response);
+    }
+
+    @Override
+    public void onCancelled() {
+        call.cancel();
+    }
+
+    @Override
+    public void run() {
+        call.cancel();
+    }
+
+    private Response attachTo(Response response) {
+        final ResponseBody body = response.body();
+        if (body == null) {
+            release();
+            return response;
+        }
+
+        ForwardingSource source = new ForwardingSource(body.source()) {
+            @Override
+            public long read(Buffer sink, long byteCount) throws IOException {
+                try {
+                    return super.read(sink, byteCount);
+                } catch (IOException e) {
+                    throw translate(e);
+                }
+            }
+
+            @Override
+            public void close() throws IOException {
+                try {
+                    super.close();
+                } finally {
+                    release();
+                }
+            }
+        };
+        return response.newBuilder()
+                .body(ResponseBody.create(body.contentType(), body.contentLength(), Okio.buffer(source)))
+                .build();
+    }
+
+    private void release() {
+        if (released.compareAndSet(false, true)) {
+            context.removeListener(this);
+            if (deadline != null) {
+                deadline.cancel(false);
+            }
+        }
+    }
+
+    private IOException translate(IOException e) {
+        if (e instanceof CallCancelledException || context.isActive()) {
+            return e;
+        }
+        IOException cancelled = new CallCancelledException(!context.isCancelled());
+        cancelled.initCause(e);
+        return cancelled;
+    }
+
+    private static synchronized ScheduledThreadPoolExecutor getScheduler() {
+        if (scheduler == null) {
+            scheduler = new ScheduledThreadPoolExecutor(1, new DaemonThreadFactory("CallCanceller"));
+            // released calls should not be kept until their deadlines
+            scheduler.setRemoveOnCancelPolicy(true);
+        }
+        return scheduler;
+    }
+}
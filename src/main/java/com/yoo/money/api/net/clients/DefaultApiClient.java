@@ -26,23 +26,51 @@ package com.yoo.money.api.net.clients;
 
 import com.yoo.money.api.authorization.AuthorizationData;
 import com.yoo.money.api.authorization.AuthorizationParameters;
+import com.yoo.money.api.exceptions.CallCancelledException;
+import com.yoo.money.api.methods.AuxToken;
+import com.yoo.money.api.methods.InstanceId;
+import com.yoo.money.api.methods.ShowcaseSearch;
+import com.yoo.money.api.methods.Token;
+import com.yoo.money.api.methods.payment.ProcessExternalPayment;
+import com.yoo.money.api.methods.payment.ProcessPayment;
+import com.yoo.money.api.methods.payment.RequestExternalPayment;
+import com.yoo.money.api.methods.payment.RequestPayment;
+import com.yoo.money.api.methods.wallet.AccountInfo;
+import com.yoo.money.api.methods.wallet.IncomingTransferAccept;
+import com.yoo.money.api.methods.wallet.IncomingTransferReject;
+import com.yoo.money.api.methods.wallet.OperationDetails;
+import com.yoo.money.api.methods.wallet.OperationHistory;
 import com.yoo.money.api.net.ApiRequest;
+import com.yoo.money.api.net.CallContext;
 import com.yoo.money.api.net.DefaultUserAgent;
+import com.yoo.money.api.net.HttpTransport;
+import com.yoo.money.api.net.IdempotentRequest;
+import com.yoo.money.api.net.TransportRequest;
 import com.yoo.money.api.net.UserAgent;
 import com.yoo.money.api.net.providers.DefaultApiV1HostsProvider;
 import com.yoo.money.api.net.providers.HostsProvider;
+import com.yoo.money.api.typeadapters.GsonProvider;
+import com.yoo.money.api.typeadapters.model.showcase.ShowcaseTypeAdapter;
 import com.yoo.money.api.util.HttpHeaders;
 import com.yoo.money.api.util.Language;
 import com.yoo.money.api.util.Strings;
-import okhttp3.CacheControl;
-import okhttp3.MediaType;
+import com.yoo.money.api.util.logging.Log;
+import okhttp3.Dns;
 import okhttp3.OkHttpClient;
-import okhttp3.Request;
-import okhttp3.RequestBody;
-import okhttp3.Response;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import static com.yoo.money.api.util.Common.checkNotNull;
 
@@ -54,16 +82,26 @@ import static com.yoo.money.api.util.Common.checkNotNull;
  */
 public class DefaultApiClient implements ApiClient {
 
-    private final CacheControl cacheControl = new CacheControl.Builder().noCache().build();
+    /**
+     * Responses parsed with GSON, their adapters are created by {@link #warmUp(int)}.
+     */
+    private static final Class<?>[] RESPONSE_TYPES = {
+            AccountInfo.class, OperationHistory.class, OperationDetails.class, IncomingTransferAccept.class,
+            IncomingTransferReject.class, RequestPayment.class, ProcessPayment.class, RequestExternalPayment.class,
+            ProcessExternalPayment.class, InstanceId.class, Token.class, AuxToken.class, ShowcaseSearch.class
+    };
 
     private final String clientId;
     private final HostsProvider hostsProvider;
     private final UserAgent userAgent;
     private final Language language;
     private final boolean debugMode;
-    private final OkHttpClient httpClient;
+    private final HttpTransport transport;
+    private final SingleFlight singleFlight;
+    private final RequestScheduler requestScheduler;
 
-    private String accessToken;
+    private volatile String accessToken;
+    private volatile boolean ready;
 
     /**
      * Constructor.
@@ -77,10 +115,23 @@ public class DefaultApiClient implements ApiClient {
         language = checkNotNull(builder.language, "language");
         debugMode = builder.debugMode;
 
-        if (builder.httpClient == null) {
-            builder.httpClient = HttpClientFactory.newOkHttpClient(debugMode);
+        if (builder.transport == null) {
+            transport = new OkHttpTransport.Builder()
+                    .setHttpClient(builder.httpClient)
+                    .setDebugMode(debugMode)
+                    .setHedgingPolicy(builder.hedgingPolicy)
+                    .setDns(builder.dns)
+                    .setMaxBodySize(builder.maxBodySize)
+                    .create();
+        } else if (builder.httpClient != null || builder.hedgingPolicy != null || builder.dns != null
+                || builder.maxBodySize != OkHttpTransport.DEFAULT_MAX_BODY_SIZE) {
+            throw new IllegalArgumentException(
+                    "HTTP client, hedging policy, DNS and maximum body size should be set to the transport");
+        } else {
+            transport = builder.transport;
         }
-        httpClient = builder.httpClient;
+        singleFlight = builder.singleFlight ? new SingleFlight() : null;
+        requestScheduler = builder.requestScheduler;
     }
 
     @Override
@@ -105,8 +156,57 @@ public class DefaultApiClient implements ApiClient {
 
     @Override
     public <T> T execute(ApiRequest<T> request) throws Exception {
-        Response response = httpClient.newCall(prepareRequest(request)).execute();
-        return request.parse(new OkHttpClientResponse(response, debugMode));
+        return execute(request, accessToken);
+    }
+
+    /**
+     * Executes request with specified access token instead of the token of this client. Allows to
+     * run requests on behalf of different users with one client.
+     *
+     * @param request request to execute
+     * @param accessToken access token or {@code null} if authorization is not required
+     * @param <T> type of response
+     * @return response
+     * @throws Exception if something went wrong
+     * @see MultiTenantApiClient
+     */
+    public <T> T execute(final ApiRequest<T> request, final String accessToken) throws Exception {
+        checkNotNull(request, "request");
+        CallContext context = CallContext.current();
+        if (context != null) {
+            context.checkActive();
+        }
+        final String url = request.requestUrl(getHostsProvider());
+        if (singleFlight != null && isIdempotent(request)) {
+            return singleFlight.execute(request, url, accessToken, new Callable<T>() {
+                @Override
+                public T call() throws Exception {
+                    return execute(request, url, accessToken);
+                }
+            });
+        }
+        return execute(request, url, accessToken);
+    }
+
+    /**
+     * Executes request within a call context. HTTP timeouts do not exceed the time remaining until the deadline of
+     * the context and the call is cancelled when the context is cancelled.
+     *
+     * @param request request to execute
+     * @param context call context
+     * @param <T> type of response
+     * @return response
+     * @throws CallCancelledException if the context is cancelled or its deadline is exceeded
+     * @throws Exception if something went wrong
+     * @see CallContext
+     */
+    public <T> T execute(final ApiRequest<T> request, CallContext context) throws Exception {
+        return checkNotNull(context, "context").call(new Callable<T>() {
+            @Override
+            public T call() throws Exception {
+                return execute(request);
+            }
+        });
     }
 
     @Override
@@ -125,6 +225,102 @@ public class DefaultApiClient implements ApiClient {
         return !Strings.isNullOrEmpty(accessToken);
     }
 
+    /**
+     * Prepares this client for the first requests. Opens connections to API hosts of {@link HostsProvider}
+     * concurrently, so the first calls do not pay for DNS lookup and TCP and TLS handshakes, and meanwhile creates
+     * GSON and type adapters of this SDK. Opened connections are kept by the transport as long as its connection pool
+     * allows. Blocks until every host responds or fails.
+     *
+     * @param connections number of connections to open to each host
+     * @return {@code true} if every host is reachable, so the client is ready
+     * @throws InterruptedException if the thread is interrupted while waiting for hosts
+     * @see #isReady()
+     */
+    public final boolean warmUp(int connections) throws InterruptedException {
+        if (connections < 1) {
+            throw new IllegalArgumentException("connections should be positive");
+        }
+
+        // one URL for each origin, so connections are not opened twice to the same host
+        Map<String, String> urls = new LinkedHashMap<>();
+        for (String url : Arrays.asList(hostsProvider.getMoneyApi(), hostsProvider.getPaymentApi(),
+                hostsProvider.getMoney())) {
+            try {
+                URL parsed = new URL(url);
+                String origin = parsed.getProtocol() + "://" + parsed.getAuthority();
+                if (!urls.containsKey(origin)) {
+                    urls.put(origin, url);
+                }
+            } catch (IOException e) {
+                throw new IllegalStateException("invalid host URL: " + url, e);
+            }
+        }
+
+        final CallContext context = CallContext.current();
+        ExecutorService executor = Executors.newFixedThreadPool(urls.size() * connections);
+        boolean success = true;
+        try {
+            List<Future<Void>> futures = new ArrayList<>(urls.size() * connections);
+            for (final String url : urls.values()) {
+                for (int i = 0; i < connections; ++i) {
+                    futures.add(executor.submit(new Callable<Void>() {
+                        @Override
+                        public Void call() throws Exception {
+                            openConnection(url, context);
+                            return null;
+                        }
+                    }));
+                }
+            }
+
+            // the network is busy now, so adapters are created at no cost
+            //noinspection ResultOfMethodCallIgnored
+            ShowcaseTypeAdapter.getInstance();
+            for (Class<?> type : RESPONSE_TYPES) {
+                GsonProvider.getGson().getAdapter(type);
+            }
+
+            for (Future<Void> future : futures) {
+                try {
+                    future.get();
+                } catch (ExecutionException e) {
+                    Log.w("unable to warm up connection", e.getCause());
+                    success = false;
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        if (success) {
+            ready = true;
+        }
+        return success;
+    }
+
+    /**
+     * @return {@code true} if {@link #warmUp(int)} has succeeded
+     */
+    public final boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * @return single-flight layer of this client with its metrics or {@code null} if it is disabled
+     * @see Builder#setSingleFlight(boolean)
+     */
+    public final SingleFlight getSingleFlight() {
+        return singleFlight;
+    }
+
+    /**
+     * @return transport used to send requests
+     * @see Builder#setTransport(HttpTransport)
+     */
+    public final HttpTransport getTransport() {
+        return transport;
+    }
+
     /**
      * @return {@code true} if debug mode is enabled
      */
@@ -132,43 +328,80 @@ public class DefaultApiClient implements ApiClient {
         return debugMode;
     }
 
-    private Request prepareRequest(ApiRequest<?> request) {
-        checkNotNull(request, "request");
+    private <T> T execute(ApiRequest<T> request, String url, String accessToken) throws Exception {
+        CallContext context = CallContext.current();
+        TransportRequest transportRequest = prepareRequest(request, url, accessToken, context);
+        RequestScheduler.Lane lane = null;
+        try {
+            if (requestScheduler != null) {
+                RequestScheduler.Lane requestLane = requestScheduler.getLane(request);
+                requestScheduler.acquire(requestLane, context);
+                lane = requestLane;
+            }
+            // the slot is held until the body is read
+            return request.parse(transport.execute(transportRequest));
+        } catch (IOException e) {
+            if (context != null && !(e instanceof CallCancelledException) && !context.isActive()) {
+                CallCancelledException exception = new CallCancelledException(!context.isCancelled());
+                exception.initCause(e);
+                throw exception;
+            }
+            throw e;
+        } finally {
+            if (lane != null) {
+                requestScheduler.release(lane);
+            }
+        }
+    }
 
-        Request.Builder builder = new Request.Builder()
-                .cacheControl(cacheControl)
-                .url(request.requestUrl(getHostsProvider()))
+    private void openConnection(String url, CallContext context) throws IOException {
+        TransportRequest request = new TransportRequest.Builder()
+                .setUrl(url)
+                .setContext(context)
+                .addHeader(HttpHeaders.USER_AGENT, getUserAgent().getName())
+                .create();
+        InputStream stream = transport.execute(request).getByteStream();
+        if (stream != null) {
+            // connection is returned to the pool when its response is consumed
+            try {
+                byte[] buffer = new byte[4096];
+                //noinspection StatementWithEmptyBody
+                while (stream.read(buffer) != -1) {
+                }
+            } finally {
+                stream.close();
+            }
+        }
+    }
+
+    private static boolean isIdempotent(ApiRequest<?> request) {
+        return request instanceof IdempotentRequest || request.getMethod() == ApiRequest.Method.GET;
+    }
+
+    private TransportRequest prepareRequest(ApiRequest<?> request, String url, String accessToken,
+                                            CallContext context) {
+        TransportRequest.Builder builder = new TransportRequest.Builder()
+                .setMethod(request.getMethod())
+                .setUrl(url)
+                .setIdempotent(isIdempotent(request))
+                .setContext(context)
+                .addHeader(HttpHeaders.CACHE_CONTROL, "no-cache")
                 .addHeader(HttpHeaders.USER_AGENT, getUserAgent().getName())
                 .addHeader(HttpHeaders.ACCEPT_LANGUAGE, getLanguage().iso6391Code);
 
-        if (isAuthorized()) {
+        if (!Strings.isNullOrEmpty(accessToken)) {
             builder.addHeader(HttpHeaders.AUTHORIZATION, "Bearer " + accessToken);
         }
 
         for (Map.Entry<String, String> entry : request.getHeaders().entrySet()) {
-            String value = entry.getValue();
-            if (value != null) {
-                builder.addHeader(entry.getKey(), value);
-            }
+            builder.addHeader(entry.getKey(), entry.getValue());
         }
 
-        ApiRequest.Method method = request.getMethod();
-        if (method != ApiRequest.Method.GET) {
-            RequestBody body = RequestBody.create(MediaType.parse(request.getContentType()), request.getBody());
-            switch (method) {
-                case POST:
-                    builder.post(body);
-                    break;
-                case PUT:
-                    builder.put(body);
-                    break;
-                case DELETE:
-                    builder.delete();
-                    break;
-            }
+        if (request.getMethod() != ApiRequest.Method.GET) {
+            builder.setBody(request.getContentType(), request.getBody());
         }
 
-        return builder.build();
+        return builder.create();
     }
 
     /**
@@ -182,6 +415,12 @@ public class DefaultApiClient implements ApiClient {
         HostsProvider hostsProvider = new DefaultApiV1HostsProvider(false);
         Language language = Language.getDefault();
         OkHttpClient httpClient;
+        HttpTransport transport;
+        Dns dns;
+        long maxBodySize = OkHttpTransport.DEFAULT_MAX_BODY_SIZE;
+        boolean singleFlight = false;
+        HedgingPolicy hedgingPolicy;
+        RequestScheduler requestScheduler;
 
         /**
          * Sets debug mode. Enables logging. Default value is {@code false}.
@@ -239,16 +478,97 @@ public class DefaultApiClient implements ApiClient {
         }
 
         /**
-         * Sets HTTP client to use.
+         * Sets HTTP client to use. If not set, the client returned by
+         * {@link HttpClientFactory#getSharedOkHttpClient(boolean)} is used.
          *
          * @param httpClient HTTP client
          * @return itself
+         * @see OkHttpTransport.Builder#setHttpClient(OkHttpClient)
          */
         public final Builder setHttpClient(OkHttpClient httpClient) {
             this.httpClient = httpClient;
             return this;
         }
 
+        /**
+         * Sets transport to send requests with. If not set, {@link OkHttpTransport} is used. HTTP client, hedging
+         * policy, DNS and maximum body size can not be set together with a transport, they are options of
+         * {@link OkHttpTransport}.
+         *
+         * @param transport transport
+         * @return itself
+         * @see UrlConnectionTransport
+         */
+        public final Builder setTransport(HttpTransport transport) {
+            this.transport = transport;
+            return this;
+        }
+
+        /**
+         * Sets resolver of host names. If not set, the resolver of HTTP client is used, which is {@link Dns#SYSTEM} by
+         * default.
+         *
+         * @param dns resolver
+         * @return itself
+         * @see CachingDns
+         */
+        public final Builder setDns(Dns dns) {
+            this.dns = dns;
+            return this;
+        }
+
+        /**
+         * Sets maximum size of a response body. Reading of a larger body fails with {@link IOException}.
+         *
+         * @param maxBodySize maximum size in bytes, 16 MiB by default
+         * @return itself
+         * @see OkHttpTransport.Builder#setMaxBodySize(long)
+         */
+        public final Builder setMaxBodySize(long maxBodySize) {
+            if (maxBodySize < 1) {
+                throw new IllegalArgumentException("maxBodySize should be positive");
+            }
+            this.maxBodySize = maxBodySize;
+            return this;
+        }
+
+        /**
+         * Enables coalescing of identical idempotent requests executed concurrently. Default value is {@code false}.
+         *
+         * @param singleFlight {@code true} to share one network call among identical requests in flight
+         * @return itself
+         * @see SingleFlight
+         */
+        public final Builder setSingleFlight(boolean singleFlight) {
+            this.singleFlight = singleFlight;
+            return this;
+        }
+
+        /**
+         * Sets hedging policy for idempotent requests. Hedging is disabled by default.
+         *
+         * @param hedgingPolicy hedging policy or {@code null} to disable hedging
+         * @return itself
+         * @see HedgingPolicy
+         */
+        public final Builder setHedgingPolicy(HedgingPolicy hedgingPolicy) {
+            this.hedgingPolicy = hedgingPolicy;
+            return this;
+        }
+
+        /**
+         * Sets scheduler which limits requests in flight and orders waiting requests by priority. Requests are not
+         * scheduled by default. One scheduler can be shared by several clients.
+         *
+         * @param requestScheduler request scheduler or {@code null} to send requests immediately
+         * @return itself
+         * @see RequestScheduler
+         */
+        public final Builder setRequestScheduler(RequestScheduler requestScheduler) {
+            this.requestScheduler = requestScheduler;
+            return this;
+        }
+
         /**
          * Creates instance of {@link DefaultApiClient}.
          *
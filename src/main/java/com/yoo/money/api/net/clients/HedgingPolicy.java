@@ -0,0 +1,412 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2020 NBCO YooMoney LLC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.yoo.money.api.net.clients;
+
+import com.yoo.money.api.net.CallContext;
+import okhttp3.Call;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Hedging of idempotent requests. If there is no response to a request within a delay, a second attempt is sent and
+ * the first successful response wins; the other call is cancelled with {@link Call#cancel()}. With HTTP/1.1 the second
+ * attempt uses a different connection from the pool because the first one is busy.
+ * <p>
+ * The delay is a percentile of latencies observed by this policy (95th by default) bounded by minimum and maximum
+ * delays. Latency of the first attempt is observed even if the hedged attempt wins: the time until the hedged
+ * attempt has won is used as its lower bound, so slow first attempts are not excluded from the percentile. A delay of
+ * 0 sends the hedged attempt immediately. Number of hedges is limited by a budget: each request adds {@code budget}
+ * credits, each hedge takes one, so the extra load does not exceed the given fraction of requests.
+ * <p>
+ * This class is thread safe. One instance can be shared by several clients. Use {@link Builder} to create it.
+ *
+ * @see DefaultApiClient.Builder#setHedgingPolicy(HedgingPolicy)
+ */
+public final class HedgingPolicy {
+
+    private static final int MIN_SAMPLES = 20;
+    private static final int RECALCULATE_INTERVAL = 64;
+
+    private final double percentile;
+    private final long minDelay;
+    private final long maxDelay;
+    private final double budget;
+    private final double maxCredits;
+
+    private final long[] samples;
+    private int sampleCount;
+    private int sampleIndex;
+    private long delay;
+    private double credits;
+
+    private final AtomicLong hedged = new AtomicLong();
+    private final AtomicLong hedgeWins = new AtomicLong();
+
+    private ExecutorService executor;
+
+    HedgingPolicy(Builder builder) {
+        percentile = builder.percentile;
+        minDelay = builder.minDelay;
+        maxDelay = builder.maxDelay;
+        budget = builder.budget;
+        maxCredits = builder.maxBurst;
+        samples = new long[builder.window];
+        delay = Math.max(minDelay, Math.min(maxDelay, builder.initialDelay));
+        credits = maxCredits;
+    }
+
+    /**
+     * @return number of hedged attempts sent
+     */
+    public long getHedged() {
+        return hedged.get();
+    }
+
+    /**
+     * @return number of requests completed by a hedged attempt
+     */
+    public long getHedgeWins() {
+        return hedgeWins.get();
+    }
+
+    /**
+     * @return current delay before a hedged attempt in milliseconds
+     */
+    public synchronized long getDelay() {
+        return delay;
+    }
+
+    Response execute(OkHttpClient httpClient, Request request, CallContext context) throws IOException {
+        earnCredit();
+        final Race race = new Race(httpClient, request);
+        long started = System.nanoTime();
+        run(race, race.start());
+
+        CallContext.Listener listener = null;
+        if (context != null) {
+            listener = new CallContext.Listener() {
+                @Override
+                public void onCancelled() {
+                    race.cancel();
+                }
+            };
+            context.addListener(listener);
+        }
+
+        Response response;
+        try {
+            if (!race.await(getDelay()) && takeCredit()) {
+                Call second = race.start();
+                if (second == null) {
+                    releaseCredit();
+                } else {
+                    hedged.incrementAndGet();
+                    run(race, second);
+                }
+            }
+
+            race.await();
+            response = race.getResponse();
+        } finally {
+            if (listener != null) {
+                context.removeListener(listener);
+            }
+        }
+        // if the hedged attempt has won, the first one would have taken at least this long
+        addSample(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+        if (race.winner != race.first) {
+            hedgeWins.incrementAndGet();
+        }
+        // the body of the winner is still to be read
+        return context == null ? response : CallCanceller.attach(race.winner, context, response);
+    }
+
+    private void run(final Race race, final Call call) {
+        getExecutor().execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    race.complete(call, call.execute(), null);
+                } catch (IOException e) {
+                    race.complete(call, null, e);
+                }
+            }
+        });
+    }
+
+    private synchronized void earnCredit() {
+        credits = Math.min(maxCredits, credits + budget);
+    }
+
+    private synchronized boolean takeCredit() {
+        if (credits < 1) {
+            return false;
+        }
+        credits -= 1;
+        return true;
+    }
+
+    private synchronized void releaseCredit() {
+        credits = Math.min(maxCredits, credits + 1);
+    }
+
+    private synchronized void addSample(long latency) {
+        samples[sampleIndex] = latency;
+        sampleIndex = (sampleIndex + 1) % samples.length;
+        if (sampleCount < samples.length) {
+            ++sampleCount;
+        }
+        if (sampleCount >= MIN_SAMPLES && sampleIndex % RECALCULATE_INTERVAL == 0) {
+            long[] sorted = Arrays.copyOf(samples, sampleCount);
+            Arrays.sort(sorted);
+            long value = sorted[(int) Math.min(sorted.length - 1, Math.ceil(percentile * sorted.length) - 1)];
+            delay = Math.max(minDelay, Math.min(maxDelay, value));
+        }
+    }
+
+    private synchronized ExecutorService getExecutor() {
+        if (executor == null) {
+            executor = Executors.newCachedThreadPool(new DaemonThreadFactory("HedgingPolicy"));
+        }
+        return executor;
+    }
+
+    /**
+     * Attempts of one request racing for the first successful response. Attempts run on the executor, so the caller
+     * is never blocked by a slow attempt which is being cancelled.
+     */
+    private static final class Race {
+
+        final OkHttpClient httpClient;
+        final Request request;
+
+        Call first;
+        Call second;
+        Call winner;
+        Response response;
+        IOException exception;
+        int pending;
+
+        Race(OkHttpClient httpClient, Request request) {
+            this.httpClient = httpClient;
+            this.request = request;
+        }
+
+        /**
+         * @return new attempt or {@code null} if the race is over or both attempts have been started
+         */
+        synchronized Call start() {
+            if (second != null || (first != null && isOver())) {
+                return null;
+            }
+            Call call = httpClient.newCall(request);
+            if (first == null) {
+                first = call;
+            } else {
+                second = call;
+            }
+            ++pending;
+            return call;
+        }
+
+        synchronized void complete(Call call, Response response, IOException exception) {
+            --pending;
+            if (response == null) {
+                if (this.exception == null) {
+                    this.exception = exception;
+                }
+            } else if (winner == null) {
+                winner = call;
+                this.response = response;
+                Call other = call == first ? second : first;
+                if (other != null) {
+                    other.cancel();
+                }
+            } else {
+                response.close();
+            }
+            notifyAll();
+        }
+
+        synchronized void cancel() {
+            first.cancel();
+            if (second != null) {
+                second.cancel();
+            }
+        }
+
+        /**
+         * Waits for the race to be over.
+         *
+         * @param timeout timeout in milliseconds, does not wait if it is not positive
+         * @return {@code true} if the race is over
+         */
+        synchronized boolean await(long timeout) throws IOException {
+            long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeout);
+            while (!isOver()) {
+                long remaining = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+                if (remaining <= 0) {
+                    return false;
+                }
+                waitForCompletion(remaining);
+            }
+            return true;
+        }
+
+        /**
+         * Waits for the race to be over without timeout.
+         */
+        synchronized void await() throws IOException {
+            while (!isOver()) {
+                waitForCompletion(0);
+            }
+        }
+
+        /**
+         * @return response of the winner
+         * @throws IOException the first failure if all attempts have failed
+         */
+        synchronized Response getResponse() throws IOException {
+            if (winner == null) {
+                throw exception;
+            }
+            return response;
+        }
+
+        private boolean isOver() {
+            return winner != null || pending == 0;
+        }
+
+        private void waitForCompletion(long timeout) throws InterruptedIOException {
+            try {
+                wait(timeout);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                cancel();
+                throw new InterruptedIOException("interrupted while waiting for response");
+            }
+        }
+    }
+
+    /**
+     * Creates {@link HedgingPolicy}.
+     */
+    public static class Builder {
+
+        double percentile = 0.95;
+        long initialDelay = 100;
+        long minDelay = 10;
+        long maxDelay = 2000;
+        double budget = 0.05;
+        int maxBurst = 10;
+        int window = 1000;
+
+        /**
+         * @param percentile percentile of observed latencies to use as a delay, from 0 to 1, 0.95 by default
+         * @return itself
+         */
+        public Builder setPercentile(double percentile) {
+            if (percentile <= 0 || percentile > 1) {
+                throw new IllegalArgumentException("percentile should be in range (0, 1]");
+            }
+            this.percentile = percentile;
+            return this;
+        }
+
+        /**
+         * @param initialDelay delay in milliseconds used until enough latencies are observed, 100 by default
+         * @return itself
+         */
+        public Builder setInitialDelay(long initialDelay) {
+            this.initialDelay = initialDelay;
+            return this;
+        }
+
+        /**
+         * @param minDelay minimum delay in milliseconds, 10 by default
+         * @param maxDelay maximum delay in milliseconds, 2000 by default
+         * @return itself
+         */
+        public Builder setDelayBounds(long minDelay, long maxDelay) {
+            if (minDelay < 0 || maxDelay < minDelay) {
+                throw new IllegalArgumentException("invalid delay bounds: " + minDelay + ", " + maxDelay);
+            }
+            this.minDelay = minDelay;
+            this.maxDelay = maxDelay;
+            return this;
+        }
+
+        /**
+         * @param budget maximum fraction of requests which can be hedged, 0.05 by default
+         * @return itself
+         */
+        public Builder setBudget(double budget) {
+            if (budget < 0 || budget > 1) {
+                throw new IllegalArgumentException("budget should be in range [0, 1]");
+            }
+            this.budget = budget;
+            return this;
+        }
+
+        /**
+         * @param maxBurst maximum number of hedges which can be sent in a row, 10 by default
+         * @return itself
+         */
+        public Builder setMaxBurst(int maxBurst) {
+            if (maxBurst < 1) {
+                throw new IllegalArgumentException("maxBurst should be positive");
+            }
+            this.maxBurst = maxBurst;
+            return this;
+        }
+
+        /**
+         * @param window number of latest latencies to calculate the percentile from, 1000 by default
+         * @return itself
+         */
+        public Builder setWindow(int window) {
+            if (window < MIN_SAMPLES) {
+                throw new IllegalArgumentException("window should be at least " + MIN_SAMPLES);
+            }
+            this.window = window;
+            return this;
+        }
+
+        /**
+         * @return hedging policy
+         */
+        public HedgingPolicy create() {
+            return new HedgingPolicy(this);
+        }
+    }
+}
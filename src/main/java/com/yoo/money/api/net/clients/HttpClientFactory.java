@@ -59,6 +59,18 @@ public final class HttpClientFactory {
         return builder.build();
     }
 
+    /**
+     * Gets {@link OkHttpClient} instance shared by all clients created without an explicit HTTP
+     * client. Shared instance has one connection pool and one dispatcher, so the number of
+     * connections and threads does not grow with the number of clients.
+     *
+     * @param enableLogging {@code true} if logging is required
+     * @return shared HTTP client
+     */
+    public static OkHttpClient getSharedOkHttpClient(boolean enableLogging) {
+        return enableLogging ? LoggingClientHolder.INSTANCE : ClientHolder.INSTANCE;
+    }
+
     /**
      * Creates {@link OkHttpClient.Builder} initialized with default parameters.
      *
@@ -112,4 +124,15 @@ public final class HttpClientFactory {
         }
         return loggingInterceptor;
     }
+
+    private static final class ClientHolder {
+        static final OkHttpClient INSTANCE = newOkHttpClient(false);
+    }
+
+    private static final class LoggingClientHolder {
+        // derived from the plain client to share its connection pool and dispatcher
+        static final OkHttpClient INSTANCE = ClientHolder.INSTANCE.newBuilder()
+                .addInterceptor(getLoggingInterceptor())
+                .build();
+    }
 }
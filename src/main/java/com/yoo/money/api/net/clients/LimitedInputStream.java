@@ -0,0 +1,104 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2020 NBCO YooMoney LLC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.yoo.money.api.net.clients;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Fails reading of a response body which is larger than a limit, so a broken or malicious server can not exhaust
+ * memory of a client.
+ */
+final class LimitedInputStream extends FilterInputStream {
+
+    private final long limit;
+    private final boolean exceeded;
+
+    private long count;
+
+    /**
+     * Constructor.
+     *
+     * @param in stream to read
+     * @param contentLength expected length of the stream or {@code -1} if it is unknown
+     * @param limit maximum number of bytes to read
+     */
+    LimitedInputStream(InputStream in, long contentLength, long limit) {
+        super(in);
+        this.limit = limit;
+        // fails on the first read without reading the stream
+        this.exceeded = contentLength > limit;
+    }
+
+    @Override
+    public int read() throws IOException {
+        check(0);
+        int b = super.read();
+        if (b != -1) {
+            check(1);
+        }
+        return b;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        check(0);
+        int read = super.read(b, off, len);
+        if (read > 0) {
+            check(read);
+        }
+        return read;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        check(0);
+        long skipped = super.skip(n);
+        check(skipped);
+        return skipped;
+    }
+
+    @Override
+    public boolean markSupported() {
+        return false;
+    }
+
+    @Override
+    public synchronized void mark(int readlimit) {
+    }
+
+    @Override
+    public synchronized void reset() throws IOException {
+        throw new IOException("mark is not supported");
+    }
+
+    private void check(long read) throws IOException {
+        count += read;
+        if (exceeded || count > limit) {
+            throw new IOException("response body exceeds " + limit + " bytes");
+        }
+    }
+}
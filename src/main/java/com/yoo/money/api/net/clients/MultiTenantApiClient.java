@@ -0,0 +1,166 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2020 NBCO YooMoney LLC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.yoo.money.api.net.clients;
+
+import com.yoo.money.api.authorization.AuthorizationData;
+import com.yoo.money.api.authorization.AuthorizationParameters;
+import com.yoo.money.api.net.ApiRequest;
+import com.yoo.money.api.net.UserAgent;
+import com.yoo.money.api.net.providers.HostsProvider;
+import com.yoo.money.api.util.Language;
+import com.yoo.money.api.util.Strings;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import static com.yoo.money.api.util.Common.checkNotNull;
+
+/**
+ * Client for many users (tenants) on top of one {@link DefaultApiClient}. Access token is looked up
+ * by tenant id for each request, so all tenants share the HTTP client with its connection pool and
+ * dispatcher, and adding a tenant costs a single map entry. Token lookup does not block.
+ * <p>
+ * Use {@link #getClient(String)} to get an {@link ApiClient} bound to a tenant, e.g. to run payment
+ * processes for it.
+ * <p>
+ * This class is thread safe.
+ */
+public final class MultiTenantApiClient {
+
+    private final DefaultApiClient client;
+    private final ConcurrentMap<String, String> accessTokens = new ConcurrentHashMap<>();
+
+    /**
+     * Constructor.
+     *
+     * @param client client to execute requests with, its own access token is not used
+     */
+    public MultiTenantApiClient(DefaultApiClient client) {
+        this.client = checkNotNull(client, "client");
+    }
+
+    /**
+     * Sets access token of a tenant.
+     *
+     * @param tenantId tenant id
+     * @param accessToken access token, {@code null} or empty string removes the tenant
+     */
+    public void setAccessToken(String tenantId, String accessToken) {
+        checkNotNull(tenantId, "tenantId");
+        if (Strings.isNullOrEmpty(accessToken)) {
+            accessTokens.remove(tenantId);
+        } else {
+            accessTokens.put(tenantId, accessToken);
+        }
+    }
+
+    /**
+     * @param tenantId tenant id
+     * @return access token of the tenant or {@code null} if there is no such tenant
+     */
+    public String getAccessToken(String tenantId) {
+        return accessTokens.get(checkNotNull(tenantId, "tenantId"));
+    }
+
+    /**
+     * @return number of tenants with access tokens
+     */
+    public int getTenantCount() {
+        return accessTokens.size();
+    }
+
+    /**
+     * Executes request on behalf of a tenant. If the tenant has no access token the request is
+     * executed without authorization.
+     *
+     * @param tenantId tenant id
+     * @param request request to execute
+     * @param <T> response document type
+     * @return response document
+     * @throws Exception if something goes wrong
+     */
+    public <T> T execute(String tenantId, ApiRequest<T> request) throws Exception {
+        return client.execute(request, getAccessToken(tenantId));
+    }
+
+    /**
+     * Gets a client bound to a tenant. The returned client holds no state except tenant id:
+     * {@link ApiClient#setAccessToken(String)} updates the token of the tenant in this client.
+     *
+     * @param tenantId tenant id
+     * @return client of the tenant
+     */
+    public ApiClient getClient(String tenantId) {
+        return new TenantApiClient(checkNotNull(tenantId, "tenantId"));
+    }
+
+    private final class TenantApiClient implements ApiClient {
+
+        private final String tenantId;
+
+        TenantApiClient(String tenantId) {
+            this.tenantId = tenantId;
+        }
+
+        @Override
+        public String getClientId() {
+            return client.getClientId();
+        }
+
+        @Override
+        public Language getLanguage() {
+            return client.getLanguage();
+        }
+
+        @Override
+        public HostsProvider getHostsProvider() {
+            return client.getHostsProvider();
+        }
+
+        @Override
+        public UserAgent getUserAgent() {
+            return client.getUserAgent();
+        }
+
+        @Override
+        public <T> T execute(ApiRequest<T> request) throws Exception {
+            return MultiTenantApiClient.this.execute(tenantId, request);
+        }
+
+        @Override
+        public AuthorizationData createAuthorizationData(AuthorizationParameters parameters) {
+            return client.createAuthorizationData(parameters);
+        }
+
+        @Override
+        public void setAccessToken(String accessToken) {
+            MultiTenantApiClient.this.setAccessToken(tenantId, accessToken);
+        }
+
+        @Override
+        public boolean isAuthorized() {
+            return accessTokens.containsKey(tenantId);
+        }
+    }
+}
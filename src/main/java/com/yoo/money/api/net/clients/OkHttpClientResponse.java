@@ -25,6 +25,7 @@
 package com.yoo.money.api.net.clients;
 
 import com.yoo.money.api.net.HttpClientResponse;
+import com.yoo.money.api.util.Utf8Reader;
 import com.yoo.money.api.util.logging.Log;
 import okhttp3.Response;
 import okhttp3.ResponseBody;
@@ -35,16 +36,19 @@ import java.io.InputStream;
 import static com.yoo.money.api.util.Common.checkNotNull;
 
 /**
- * Implementation of {@link HttpClientResponse} for OkHttp.
+ * Implementation of {@link HttpClientResponse} for OkHttp. The body is streamed from OkHttp buffers and is limited by
+ * the maximum size, it is not read into a string unless {@link #getBody()} is called.
  */
 final class OkHttpClientResponse implements HttpClientResponse {
 
     private final Response response;
     private final boolean debug;
+    private final long maxBodySize;
 
-    OkHttpClientResponse(Response response, boolean debug) {
+    OkHttpClientResponse(Response response, boolean debug, long maxBodySize) {
         this.response = checkNotNull(response, "response");
         this.debug = debug;
+        this.maxBodySize = maxBodySize;
     }
 
     @Override
@@ -69,14 +73,20 @@ final class OkHttpClientResponse implements HttpClientResponse {
 
     @Override
     public String getBody() throws IOException {
-        ResponseBody body = response.body();
-        if (body == null) {
-            Log.i("body is empty");
+        InputStream stream = getByteStream();
+        if (stream == null) {
             return null;
         }
 
-        String data = body.string();
-        Log.i(data);
+        String data;
+        try {
+            data = Utf8Reader.readString(stream);
+        } finally {
+            stream.close();
+        }
+        if (debug) {
+            Log.i(data);
+        }
         return data;
     }
 
@@ -87,6 +97,6 @@ final class OkHttpClientResponse implements HttpClientResponse {
             Log.i("body is empty");
             return null;
         }
-        return body.byteStream();
+        return new LimitedInputStream(body.byteStream(), body.contentLength(), maxBodySize);
     }
 }
@@ -0,0 +1,230 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2020 NBCO YooMoney LLC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.yoo.money.api.net.clients;
+
+import com.yoo.money.api.net.ApiRequest;
+import com.yoo.money.api.net.CallContext;
+import com.yoo.money.api.net.HttpClientResponse;
+import com.yoo.money.api.net.HttpTransport;
+import com.yoo.money.api.net.TransportRequest;
+import okhttp3.Call;
+import okhttp3.Dns;
+import okhttp3.Interceptor;
+import okhttp3.MediaType;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static com.yoo.money.api.util.Common.checkNotNull;
+
+/**
+ * Implementation of {@link HttpTransport} for OkHttp. This is the default transport of {@link DefaultApiClient}.
+ * <p>
+ * Instances of this class are thread safe. Use {@link Builder} to create them.
+ */
+public final class OkHttpTransport implements HttpTransport {
+
+    static final long DEFAULT_MAX_BODY_SIZE = 16 * 1024 * 1024;
+
+    /**
+     * Limits timeouts of a call by the remaining time of its {@link CallContext}.
+     */
+    private static final Interceptor CALL_CONTEXT_INTERCEPTOR = new Interceptor() {
+        @Override
+        public Response intercept(Chain chain) throws IOException {
+            Object tag = chain.request().tag();
+            if (tag instanceof CallContext) {
+                CallContext context = (CallContext) tag;
+                context.checkActive();
+                long remaining = context.getRemainingMillis();
+                if (remaining < Integer.MAX_VALUE) {
+                    int timeout = (int) Math.max(1, remaining);
+                    chain = chain
+                            .withConnectTimeout(limit(chain.connectTimeoutMillis(), timeout), TimeUnit.MILLISECONDS)
+                            .withReadTimeout(limit(chain.readTimeoutMillis(), timeout), TimeUnit.MILLISECONDS)
+                            .withWriteTimeout(limit(chain.writeTimeoutMillis(), timeout), TimeUnit.MILLISECONDS);
+                }
+            }
+            return chain.proceed(chain.request());
+        }
+
+        private int limit(int timeout, int remaining) {
+            // zero means no timeout
+            return timeout == 0 ? remaining : Math.min(timeout, remaining);
+        }
+    };
+
+    private final OkHttpClient httpClient;
+    private final boolean debugMode;
+    private final HedgingPolicy hedgingPolicy;
+    private final long maxBodySize;
+
+    OkHttpTransport(Builder builder) {
+        debugMode = builder.debugMode;
+        maxBodySize = builder.maxBodySize;
+        OkHttpClient client = builder.httpClient == null
+                ? HttpClientFactory.getSharedOkHttpClient(debugMode)
+                : builder.httpClient;
+        // derived client shares connection pool and dispatcher with the original one
+        OkHttpClient.Builder clientBuilder = client.newBuilder()
+                .addInterceptor(CALL_CONTEXT_INTERCEPTOR);
+        if (builder.dns != null) {
+            clientBuilder.dns(builder.dns);
+        }
+        httpClient = clientBuilder.build();
+        hedgingPolicy = builder.hedgingPolicy;
+    }
+
+    @Override
+    public HttpClientResponse execute(TransportRequest request) throws IOException {
+        checkNotNull(request, "request");
+        CallContext context = request.getContext();
+        Request httpRequest = prepareRequest(request);
+        Response response = hedgingPolicy != null && request.isIdempotent()
+                ? hedgingPolicy.execute(httpClient, httpRequest, context)
+                : execute(httpClient.newCall(httpRequest), context);
+        return new OkHttpClientResponse(response, debugMode, maxBodySize);
+    }
+
+    private static Response execute(Call call, CallContext context) throws IOException {
+        return context == null ? call.execute() : CallCanceller.execute(call, context);
+    }
+
+    private static Request prepareRequest(TransportRequest request) {
+        Request.Builder builder = new Request.Builder()
+                .tag(request.getContext())
+                .url(request.getUrl());
+
+        for (Map.Entry<String, String> entry : request.getHeaders().entrySet()) {
+            builder.addHeader(entry.getKey(), entry.getValue());
+        }
+
+        ApiRequest.Method method = request.getMethod();
+        if (method != ApiRequest.Method.GET) {
+            String contentType = request.getContentType();
+            byte[] body = request.getBody();
+            RequestBody requestBody = RequestBody.create(contentType == null ? null : MediaType.parse(contentType),
+                    body == null ? new byte[0] : body);
+            switch (method) {
+                case POST:
+                    builder.post(requestBody);
+                    break;
+                case PUT:
+                    builder.put(requestBody);
+                    break;
+                case DELETE:
+                    builder.delete();
+                    break;
+            }
+        }
+
+        return builder.build();
+    }
+
+    /**
+     * Creates {@link OkHttpTransport}.
+     */
+    public static class Builder {
+
+        OkHttpClient httpClient;
+        boolean debugMode;
+        HedgingPolicy hedgingPolicy;
+        Dns dns;
+        long maxBodySize = DEFAULT_MAX_BODY_SIZE;
+
+        /**
+         * Sets HTTP client to use. If not set, the client returned by
+         * {@link HttpClientFactory#getSharedOkHttpClient(boolean)} is used.
+         *
+         * @param httpClient HTTP client
+         * @return itself
+         */
+        public Builder setHttpClient(OkHttpClient httpClient) {
+            this.httpClient = httpClient;
+            return this;
+        }
+
+        /**
+         * Sets debug mode. Enables logging of response bodies. Default value is {@code false}.
+         *
+         * @param debugMode {@code true}, if debug mode is enabled
+         * @return itself
+         */
+        public Builder setDebugMode(boolean debugMode) {
+            this.debugMode = debugMode;
+            return this;
+        }
+
+        /**
+         * Sets hedging policy for idempotent requests. Hedging is disabled by default.
+         *
+         * @param hedgingPolicy hedging policy or {@code null} to disable hedging
+         * @return itself
+         * @see HedgingPolicy
+         */
+        public Builder setHedgingPolicy(HedgingPolicy hedgingPolicy) {
+            this.hedgingPolicy = hedgingPolicy;
+            return this;
+        }
+
+        /**
+         * Sets resolver of host names. If not set, the resolver of HTTP client is used.
+         *
+         * @param dns resolver
+         * @return itself
+         * @see CachingDns
+         */
+        public Builder setDns(Dns dns) {
+            this.dns = dns;
+            return this;
+        }
+
+        /**
+         * Sets maximum size of a response body. Reading of a larger body fails with {@link java.io.IOException}.
+         *
+         * @param maxBodySize maximum size in bytes, 16 MiB by default
+         * @return itself
+         */
+        public Builder setMaxBodySize(long maxBodySize) {
+            if (maxBodySize < 1) {
+                throw new IllegalArgumentException("maxBodySize should be positive");
+            }
+            this.maxBodySize = maxBodySize;
+            return this;
+        }
+
+        /**
+         * @return transport
+         */
+        public OkHttpTransport create() {
+            return new OkHttpTransport(this);
+        }
+    }
+}
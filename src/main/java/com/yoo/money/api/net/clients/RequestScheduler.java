@@ -0,0 +1,369 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2020 NBCO YooMoney LLC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.yoo.money.api.net.clients;
+
+import com.yoo.money.api.exceptions.CallCancelledException;
+import com.yoo.money.api.methods.payment.ProcessExternalPayment;
+import com.yoo.money.api.methods.payment.ProcessPayment;
+import com.yoo.money.api.methods.payment.RequestExternalPayment;
+import com.yoo.money.api.methods.payment.RequestPayment;
+import com.yoo.money.api.methods.wallet.OperationHistory;
+import com.yoo.money.api.net.ApiRequest;
+import com.yoo.money.api.net.CallContext;
+
+import java.io.InterruptedIOException;
+import java.util.ArrayDeque;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import static com.yoo.money.api.util.Common.checkNotNull;
+
+/**
+ * Schedules requests of a client by priority. Each request belongs to a {@link Lane}; a request is sent only when
+ * the total number of requests in flight and the number of requests in flight of its lane are below their limits.
+ * When a request completes, the next waiting request is chosen among lanes by smooth weighted round-robin, so
+ * interactive requests do not queue behind thousands of bulk ones while bulk requests still make progress.
+ * <p>
+ * By default payment requests go to {@link Lane#INTERACTIVE} lane, {@link OperationHistory.Request} goes to
+ * {@link Lane#BULK} lane and other requests go to {@link Lane#NORMAL} lane.
+ * <p>
+ * Waiting respects {@link CallContext} of a call: a request which is cancelled or whose deadline is exceeded while
+ * queued fails with {@link CallCancelledException}.
+ * <p>
+ * This class is thread safe. Use {@link Builder} to create it.
+ *
+ * @see DefaultApiClient.Builder#setRequestScheduler(RequestScheduler)
+ */
+public final class RequestScheduler {
+
+    private static final Lane[] LANES = Lane.values();
+
+    private final int maxConcurrency;
+    private final int[] weights = new int[LANES.length];
+    private final int[] limits = new int[LANES.length];
+    private final Map<Class<?>, Lane> classes;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final int[] inFlight = new int[LANES.length];
+    private final int[] current = new int[LANES.length];
+    private final ArrayDeque<Waiter>[] queues;
+    private int totalInFlight;
+
+    @SuppressWarnings("unchecked")
+    RequestScheduler(Builder builder) {
+        maxConcurrency = builder.maxConcurrency;
+        for (Lane lane : LANES) {
+            weights[lane.ordinal()] = builder.weights.get(lane);
+            limits[lane.ordinal()] = builder.limits.get(lane);
+        }
+        classes = new HashMap<>(builder.classes);
+        queues = newQueues(LANES.length);
+        for (int i = 0; i < queues.length; ++i) {
+            queues[i] = new ArrayDeque<>();
+        }
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static ArrayDeque<Waiter>[] newQueues(int length) {
+        return new ArrayDeque[length];
+    }
+
+    /**
+     * @param request request
+     * @return lane assigned to the class of the request or to its nearest superclass, {@link Lane#NORMAL} if there
+     * is none
+     */
+    public Lane getLane(ApiRequest<?> request) {
+        for (Class<?> cls = checkNotNull(request, "request").getClass(); cls != null; cls = cls.getSuperclass()) {
+            Lane lane = classes.get(cls);
+            if (lane != null) {
+                return lane;
+            }
+        }
+        return Lane.NORMAL;
+    }
+
+    /**
+     * @param lane lane
+     * @return number of requests of the lane waiting to be sent
+     */
+    public int getQueued(Lane lane) {
+        lock.lock();
+        try {
+            return queues[lane.ordinal()].size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @param lane lane
+     * @return number of requests of the lane in flight
+     */
+    public int getInFlight(Lane lane) {
+        lock.lock();
+        try {
+            return inFlight[lane.ordinal()];
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Waits until a request of the lane can be sent. Every successful call must be followed by
+     * {@link #release(Lane)}.
+     */
+    void acquire(Lane lane, CallContext context) throws InterruptedIOException {
+        final int index = lane.ordinal();
+        final Waiter waiter;
+        lock.lock();
+        try {
+            if (totalInFlight < maxConcurrency && inFlight[index] < limits[index] && queues[index].isEmpty()) {
+                grant(index);
+                return;
+            }
+            waiter = new Waiter(lock.newCondition());
+            queues[index].add(waiter);
+        } finally {
+            lock.unlock();
+        }
+
+        CallContext.Listener listener = null;
+        if (context != null) {
+            listener = new CallContext.Listener() {
+                @Override
+                public void onCancelled() {
+                    lock.lock();
+                    try {
+                        waiter.condition.signal();
+                    } finally {
+                        lock.unlock();
+                    }
+                }
+            };
+            context.addListener(listener);
+        }
+
+        lock.lock();
+        try {
+            while (!waiter.granted) {
+                if (context != null && !context.isActive()) {
+                    queues[index].remove(waiter);
+                    context.checkActive();
+                }
+                long remaining = context == null ? Long.MAX_VALUE : context.getRemainingMillis();
+                if (remaining == Long.MAX_VALUE) {
+                    waiter.condition.await();
+                } else {
+                    waiter.condition.await(remaining, TimeUnit.MILLISECONDS);
+                }
+            }
+        } catch (InterruptedException e) {
+            if (waiter.granted) {
+                releaseLocked(index);
+            } else {
+                queues[index].remove(waiter);
+            }
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("interrupted while waiting for a request slot");
+        } finally {
+            lock.unlock();
+            if (listener != null) {
+                context.removeListener(listener);
+            }
+        }
+    }
+
+    /**
+     * Releases a slot acquired with {@link #acquire(Lane, CallContext)}.
+     */
+    void release(Lane lane) {
+        lock.lock();
+        try {
+            releaseLocked(lane.ordinal());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void releaseLocked(int index) {
+        --inFlight[index];
+        --totalInFlight;
+        dispatch();
+    }
+
+    private void grant(int index) {
+        ++inFlight[index];
+        ++totalInFlight;
+    }
+
+    private void dispatch() {
+        while (totalInFlight < maxConcurrency) {
+            int selected = -1;
+            int totalWeight = 0;
+            for (int i = 0; i < LANES.length; ++i) {
+                if (queues[i].isEmpty() || inFlight[i] >= limits[i]) {
+                    continue;
+                }
+                current[i] += weights[i];
+                totalWeight += weights[i];
+                if (selected == -1 || current[i] > current[selected]) {
+                    selected = i;
+                }
+            }
+            if (selected == -1) {
+                return;
+            }
+
+            current[selected] -= totalWeight;
+            Waiter waiter = queues[selected].poll();
+            grant(selected);
+            waiter.granted = true;
+            waiter.condition.signal();
+        }
+    }
+
+    private static final class Waiter {
+
+        final Condition condition;
+        boolean granted;
+
+        Waiter(Condition condition) {
+            this.condition = condition;
+        }
+    }
+
+    /**
+     * Priority lane.
+     */
+    public enum Lane {
+        /**
+         * Requests a user is waiting for, e.g. payments.
+         */
+        INTERACTIVE,
+        /**
+         * Regular requests.
+         */
+        NORMAL,
+        /**
+         * Background requests, e.g. history backfills.
+         */
+        BULK
+    }
+
+    /**
+     * Creates {@link RequestScheduler}.
+     */
+    public static class Builder {
+
+        int maxConcurrency = 16;
+        final Map<Lane, Integer> weights = new EnumMap<>(Lane.class);
+        final Map<Lane, Integer> limits = new EnumMap<>(Lane.class);
+        final Map<Class<?>, Lane> classes = new HashMap<>();
+
+        public Builder() {
+            weights.put(Lane.INTERACTIVE, 8);
+            weights.put(Lane.NORMAL, 4);
+            weights.put(Lane.BULK, 1);
+            for (Lane lane : LANES) {
+                limits.put(lane, Integer.MAX_VALUE);
+            }
+            classes.put(RequestPayment.Request.class, Lane.INTERACTIVE);
+            classes.put(ProcessPayment.Request.class, Lane.INTERACTIVE);
+            classes.put(RequestExternalPayment.Request.class, Lane.INTERACTIVE);
+            classes.put(ProcessExternalPayment.Request.class, Lane.INTERACTIVE);
+            classes.put(OperationHistory.Request.class, Lane.BULK);
+        }
+
+        /**
+         * @param maxConcurrency maximum number of requests in flight, 16 by default
+         * @return itself
+         */
+        public Builder setMaxConcurrency(int maxConcurrency) {
+            if (maxConcurrency < 1) {
+                throw new IllegalArgumentException("maxConcurrency should be positive");
+            }
+            this.maxConcurrency = maxConcurrency;
+            return this;
+        }
+
+        /**
+         * Sets weight of a lane. Weights are 8, 4 and 1 for interactive, normal and bulk lanes by default.
+         *
+         * @param lane lane
+         * @param weight relative share of slots given to the lane when several lanes have waiting requests
+         * @return itself
+         */
+        public Builder setWeight(Lane lane, int weight) {
+            if (weight < 1) {
+                throw new IllegalArgumentException("weight should be positive");
+            }
+            weights.put(checkNotNull(lane, "lane"), weight);
+            return this;
+        }
+
+        /**
+         * Sets limit of a lane. Lanes are not limited by default.
+         *
+         * @param lane lane
+         * @param limit maximum number of requests of the lane in flight
+         * @return itself
+         */
+        public Builder setLimit(Lane lane, int limit) {
+            if (limit < 1) {
+                throw new IllegalArgumentException("limit should be positive");
+            }
+            limits.put(checkNotNull(lane, "lane"), limit);
+            return this;
+        }
+
+        /**
+         * Assigns requests of a class to a lane. Subclasses of the class are assigned to the lane too, unless they
+         * are assigned to another one.
+         *
+         * @param requestClass class of requests implementing {@link ApiRequest}, may be a generic base class
+         * @param lane lane
+         * @return itself
+         * @throws IllegalArgumentException if the class does not implement {@link ApiRequest}
+         */
+        public Builder setLane(Class<?> requestClass, Lane lane) {
+            if (!ApiRequest.class.isAssignableFrom(checkNotNull(requestClass, "requestClass"))) {
+                throw new IllegalArgumentException(requestClass.getName() + " is not an ApiRequest");
+            }
+            classes.put(requestClass, checkNotNull(lane, "lane"));
+            return this;
+        }
+
+        /**
+         * @return request scheduler
+         */
+        public RequestScheduler create() {
+            return new RequestScheduler(this);
+        }
+    }
+}
@@ -0,0 +1,263 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2020 NBCO YooMoney LLC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.yoo.money.api.net.clients;
+
+import com.yoo.money.api.exceptions.CallCancelledException;
+import com.yoo.money.api.exceptions.IllegalAmountException;
+import com.yoo.money.api.net.ApiRequest;
+import com.yoo.money.api.net.CallContext;
+import com.yoo.money.api.net.IdempotentRequest;
+
+import java.io.InterruptedIOException;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Coalesces identical idempotent requests which are in flight at the same time: the first caller executes a request
+ * and all callers that arrive before it completes wait for it and get the same parsed result or an exception of the
+ * same type. Each waiting caller gets its own copy of the exception with the original one as its cause. If the first
+ * caller was interrupted or its call was cancelled, waiting callers execute the request again instead of failing.
+ * A waiting caller stops waiting when its own {@link CallContext} is cancelled or expires.
+ * Requests are identical if they have the same type, URL, headers, body and access token.
+ * <p>
+ * Only requests implementing {@link IdempotentRequest} or using {@link ApiRequest.Method#GET} are coalesced. Results
+ * are shared between callers, so they should not be modified.
+ * <p>
+ * This class is thread safe.
+ *
+ * @see DefaultApiClient.Builder#setSingleFlight(boolean)
+ */
+public final class SingleFlight {
+
+    private final ConcurrentMap<Key, Call> calls = new ConcurrentHashMap<>();
+    private final AtomicLong executed = new AtomicLong();
+    private final AtomicLong coalesced = new AtomicLong();
+
+    SingleFlight() {
+    }
+
+    /**
+     * @return number of requests which have been sent to a server
+     */
+    public long getExecuted() {
+        return executed.get();
+    }
+
+    /**
+     * @return number of requests which have not been sent because an identical request was in flight
+     */
+    public long getCoalesced() {
+        return coalesced.get();
+    }
+
+    /**
+     * @return number of requests in flight at the moment
+     */
+    public int getInFlight() {
+        return calls.size();
+    }
+
+    <T> T execute(ApiRequest<T> request, String url, String accessToken, Callable<T> callable) throws Exception {
+        Key key = new Key(request, url, accessToken);
+        while (true) {
+            Call call = new Call();
+            Call existing = calls.putIfAbsent(key, call);
+            if (existing == null) {
+                return lead(key, call, callable);
+            }
+            existing.await(CallContext.current());
+            if (!existing.isInterrupted()) {
+                coalesced.incrementAndGet();
+                @SuppressWarnings("unchecked")
+                T result = (T) existing.get();
+                return result;
+            }
+            // the leader was interrupted or cancelled, so the request is executed again
+        }
+    }
+
+    private <T> T lead(Key key, Call call, Callable<T> callable) throws Exception {
+        executed.incrementAndGet();
+        try {
+            T result = callable.call();
+            call.complete(result, null, false);
+            return result;
+        } catch (Exception e) {
+            call.complete(null, e, e instanceof InterruptedIOException || e instanceof InterruptedException ||
+                    Thread.currentThread().isInterrupted());
+            throw e;
+        } catch (Error e) {
+            call.complete(null, new RuntimeException(e), false);
+            throw e;
+        } finally {
+            calls.remove(key, call);
+        }
+    }
+
+    /**
+     * Creates a copy of the leader's exception for a waiting caller, so callers do not share the same instance. The
+     * copy has the same type and message and the original exception as its cause.
+     *
+     * @param e exception thrown by the leader
+     * @return copy of the exception or the exception itself if its type can not be instantiated
+     */
+    private static Exception copyOf(Exception e) {
+        Exception copy;
+        if (e instanceof IllegalAmountException) {
+            copy = new IllegalAmountException(((IllegalAmountException) e).minimumAmount);
+        } else {
+            try {
+                copy = e.getClass().getConstructor(String.class).newInstance(e.getMessage());
+            } catch (ReflectiveOperationException | RuntimeException ignored) {
+                return e;
+            }
+        }
+        try {
+            copy.initCause(e);
+        } catch (IllegalStateException ignored) {
+            // cause is set by the constructor
+            return e;
+        }
+        return copy;
+    }
+
+    private static final class Call {
+
+        private Object result;
+        private Exception exception;
+        private boolean interrupted;
+        private boolean completed;
+
+        synchronized void complete(Object result, Exception exception, boolean interrupted) {
+            this.result = result;
+            this.exception = exception;
+            this.interrupted = interrupted;
+            this.completed = true;
+            notifyAll();
+        }
+
+        /**
+         * Waits for the leader to complete the call.
+         *
+         * @param context context of the waiting caller or {@code null} to wait without a deadline
+         * @throws CallCancelledException if the context was cancelled or expired before the call was completed
+         * @throws InterruptedException if the current thread was interrupted
+         */
+        void await(CallContext context) throws CallCancelledException, InterruptedException {
+            if (context == null) {
+                synchronized (this) {
+                    while (!completed) {
+                        wait();
+                    }
+                }
+                return;
+            }
+
+            CallContext.Listener listener = new CallContext.Listener() {
+                @Override
+                public void onCancelled() {
+                    synchronized (Call.this) {
+                        Call.this.notifyAll();
+                    }
+                }
+            };
+            context.addListener(listener);
+            try {
+                synchronized (this) {
+                    while (!completed) {
+                        context.checkActive();
+                        long remaining = context.getRemainingMillis();
+                        wait(remaining == Long.MAX_VALUE ? 0 : Math.max(1, remaining));
+                    }
+                }
+            } finally {
+                context.removeListener(listener);
+            }
+        }
+
+        /**
+         * @return {@code true} if the leader has failed because it was interrupted or its call was cancelled
+         */
+        synchronized boolean isInterrupted() {
+            return interrupted;
+        }
+
+        /**
+         * @return result of the call
+         * @throws Exception copy of the exception thrown by the leader
+         */
+        synchronized Object get() throws Exception {
+            if (exception != null) {
+                throw copyOf(exception);
+            }
+            return result;
+        }
+    }
+
+    private static final class Key {
+
+        final Class<?> type;
+        final String url;
+        final String accessToken;
+        final Map<String, String> headers;
+        final byte[] body;
+        final int hashCode;
+
+        Key(ApiRequest<?> request, String url, String accessToken) {
+            this.type = request.getClass();
+            this.url = url;
+            this.accessToken = accessToken;
+            this.headers = request.getHeaders();
+            this.body = request.getMethod().supportsRequestBody() ? request.getBody() : null;
+
+            int result = type.hashCode();
+            result = 31 * result + url.hashCode();
+            result = 31 * result + (accessToken != null ? accessToken.hashCode() : 0);
+            result = 31 * result + headers.hashCode();
+            result = 31 * result + Arrays.hashCode(body);
+            this.hashCode = result;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+
+            Key that = (Key) o;
+
+            return hashCode == that.hashCode && type == that.type && url.equals(that.url) &&
+                    (accessToken != null ? accessToken.equals(that.accessToken) : that.accessToken == null) &&
+                    headers.equals(that.headers) && Arrays.equals(body, that.body);
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+    }
+}
@@ -0,0 +1,115 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2020 NBCO YooMoney LLC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.yoo.money.api.net.clients;
+
+import com.yoo.money.api.net.HttpClientResponse;
+import com.yoo.money.api.util.Utf8Reader;
+import com.yoo.money.api.util.logging.Log;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+
+import static com.yoo.money.api.util.Common.checkNotNull;
+
+/**
+ * Implementation of {@link HttpClientResponse} for {@link HttpURLConnection}.
+ */
+final class UrlConnectionClientResponse implements HttpClientResponse {
+
+    private final HttpURLConnection connection;
+    private final boolean debug;
+    private final long maxBodySize;
+
+    UrlConnectionClientResponse(HttpURLConnection connection, boolean debug, long maxBodySize) {
+        this.connection = checkNotNull(connection, "connection");
+        this.debug = debug;
+        this.maxBodySize = maxBodySize;
+    }
+
+    @Override
+    public int getCode() {
+        try {
+            return connection.getResponseCode();
+        } catch (IOException e) {
+            // the response is read by the transport already
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @Override
+    public String getMessage() {
+        try {
+            return connection.getResponseMessage();
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @Override
+    public String getUrl() {
+        return connection.getURL().toString();
+    }
+
+    @Override
+    public String getHeader(String name) {
+        return connection.getHeaderField(name);
+    }
+
+    @Override
+    public String getBody() throws IOException {
+        InputStream stream = getByteStream();
+        if (stream == null) {
+            Log.i("body is empty");
+            return null;
+        }
+
+        String data;
+        try {
+            data = Utf8Reader.readString(stream);
+        } finally {
+            // a fully read and closed stream returns the connection to the keep-alive cache
+            stream.close();
+        }
+        if (debug) {
+            Log.i(data);
+        }
+        return data;
+    }
+
+    @Override
+    public InputStream getByteStream() {
+        InputStream stream;
+        try {
+            stream = connection.getInputStream();
+        } catch (IOException e) {
+            // error responses have their bodies in the error stream
+            stream = connection.getErrorStream();
+        }
+        return stream == null
+                ? null
+                : new LimitedInputStream(stream, connection.getContentLengthLong(), maxBodySize);
+    }
+}
@@ -0,0 +1,191 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2020 NBCO YooMoney LLC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.yoo.money.api.net.clients;
+
+import com.yoo.money.api.net.ApiRequest;
+import com.yoo.money.api.net.CallContext;
+import com.yoo.money.api.net.HttpClientResponse;
+import com.yoo.money.api.net.HttpTransport;
+import com.yoo.money.api.net.TransportRequest;
+import com.yoo.money.api.util.HttpHeaders;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static com.yoo.money.api.util.Common.checkNotNull;
+
+/**
+ * Implementation of {@link HttpTransport} based on {@link HttpURLConnection} of the JDK. Does not depend on third
+ * party libraries, connections are kept alive and reused by the JDK.
+ * <p>
+ * Instances of this class are thread safe. Use {@link Builder} to create them.
+ */
+public final class UrlConnectionTransport implements HttpTransport {
+
+    private final int connectTimeout;
+    private final int readTimeout;
+    private final boolean debugMode;
+    private final long maxBodySize;
+
+    UrlConnectionTransport(Builder builder) {
+        connectTimeout = builder.connectTimeout;
+        readTimeout = builder.readTimeout;
+        debugMode = builder.debugMode;
+        maxBodySize = builder.maxBodySize;
+    }
+
+    @Override
+    public HttpClientResponse execute(TransportRequest request) throws IOException {
+        checkNotNull(request, "request");
+        CallContext context = request.getContext();
+        if (context != null) {
+            context.checkActive();
+        }
+
+        final HttpURLConnection connection = (HttpURLConnection) new URL(request.getUrl()).openConnection();
+        int remaining = context == null ? Integer.MAX_VALUE : (int) Math.max(1, Math.min(Integer.MAX_VALUE,
+                context.getRemainingMillis()));
+        connection.setConnectTimeout(limit(connectTimeout, remaining));
+        connection.setReadTimeout(limit(readTimeout, remaining));
+        connection.setInstanceFollowRedirects(false);
+        connection.setUseCaches(false);
+        connection.setRequestMethod(request.getMethod().name());
+        for (Map.Entry<String, String> entry : request.getHeaders().entrySet()) {
+            connection.addRequestProperty(entry.getKey(), entry.getValue());
+        }
+
+        CallContext.Listener listener = null;
+        if (context != null) {
+            listener = new CallContext.Listener() {
+                @Override
+                public void onCancelled() {
+                    // closes the socket, so blocked reads and writes fail immediately
+                    connection.disconnect();
+                }
+            };
+            context.addListener(listener);
+        }
+        try {
+            byte[] body = request.getBody();
+            if (request.getMethod() != ApiRequest.Method.GET && request.getMethod() != ApiRequest.Method.DELETE
+                    && body != null) {
+                if (request.getContentType() != null) {
+                    connection.setRequestProperty(HttpHeaders.CONTENT_TYPE, request.getContentType());
+                }
+                connection.setDoOutput(true);
+                connection.setFixedLengthStreamingMode(body.length);
+                try (OutputStream stream = connection.getOutputStream()) {
+                    stream.write(body);
+                }
+            }
+            // sends the request and reads the status line with headers
+            connection.getResponseCode();
+        } catch (IOException e) {
+            connection.disconnect();
+            throw e;
+        } finally {
+            if (listener != null) {
+                context.removeListener(listener);
+            }
+        }
+        return new UrlConnectionClientResponse(connection, debugMode, maxBodySize);
+    }
+
+    private static int limit(int timeout, int remaining) {
+        // zero means no timeout
+        return timeout == 0 ? remaining == Integer.MAX_VALUE ? 0 : remaining : Math.min(timeout, remaining);
+    }
+
+    /**
+     * Creates {@link UrlConnectionTransport}.
+     */
+    public static class Builder {
+
+        int connectTimeout = (int) TimeUnit.SECONDS.toMillis(30);
+        int readTimeout = (int) TimeUnit.SECONDS.toMillis(30);
+        boolean debugMode;
+        long maxBodySize = OkHttpTransport.DEFAULT_MAX_BODY_SIZE;
+
+        /**
+         * @param connectTimeout connect timeout in milliseconds, zero means no timeout; 30 seconds by default
+         * @return itself
+         */
+        public Builder setConnectTimeout(int connectTimeout) {
+            if (connectTimeout < 0) {
+                throw new IllegalArgumentException("connectTimeout should not be negative");
+            }
+            this.connectTimeout = connectTimeout;
+            return this;
+        }
+
+        /**
+         * @param readTimeout read timeout in milliseconds, zero means no timeout; 30 seconds by default
+         * @return itself
+         */
+        public Builder setReadTimeout(int readTimeout) {
+            if (readTimeout < 0) {
+                throw new IllegalArgumentException("readTimeout should not be negative");
+            }
+            this.readTimeout = readTimeout;
+            return this;
+        }
+
+        /**
+         * Sets debug mode. Enables logging of response bodies. Default value is {@code false}.
+         *
+         * @param debugMode {@code true}, if debug mode is enabled
+         * @return itself
+         */
+        public Builder setDebugMode(boolean debugMode) {
+            this.debugMode = debugMode;
+            return this;
+        }
+
+        /**
+         * Sets maximum size of a response body. Reading of a larger body fails with {@link java.io.IOException}.
+         *
+         * @param maxBodySize maximum size in bytes, 16 MiB by default
+         * @return itself
+         */
+        public Builder setMaxBodySize(long maxBodySize) {
+            if (maxBodySize < 1) {
+                throw new IllegalArgumentException("maxBodySize should be positive");
+            }
+            this.maxBodySize = maxBodySize;
+            return this;
+        }
+
+        /**
+         * @return transport
+         */
+        public UrlConnectionTransport create() {
+            return new UrlConnectionTransport(this);
+        }
+    }
+}
@@ -27,9 +27,12 @@ package com.yoo.money.api.processes;
 import com.yoo.money.api.methods.payment.BaseProcessPayment;
 import com.yoo.money.api.methods.payment.BaseRequestPayment;
 import com.yoo.money.api.net.ApiRequest;
+import com.yoo.money.api.net.CallContext;
 import com.yoo.money.api.net.clients.ApiClient;
 import com.yoo.money.api.util.Threads;
 
+import java.util.concurrent.Callable;
+
 import static com.yoo.money.api.util.Common.checkNotNull;
 
 /**
@@ -50,6 +53,7 @@ public abstract class BasePaymentProcess<RP extends BaseRequestPayment,
     private RP requestPayment;
     private PP processPayment;
     private State state;
+    private StateListener stateListener;
 
     /**
      * Constructor.
@@ -98,6 +102,44 @@ public abstract class BasePaymentProcess<RP extends BaseRequestPayment,
         return isCompleted();
     }
 
+    /**
+     * Proceeds the process within a call context. Requests are not sent and sleeps between retries end once the
+     * context is cancelled or its deadline passes.
+     *
+     * @param context call context
+     * @return {@code true} if the process is completed
+     * @throws com.yoo.money.api.exceptions.CallCancelledException if the context is cancelled or expired
+     * @throws Exception if something goes wrong
+     * @see #proceed()
+     */
+    public final boolean proceed(CallContext context) throws Exception {
+        return checkNotNull(context, "context").call(new Callable<Boolean>() {
+            @Override
+            public Boolean call() throws Exception {
+                return proceed();
+            }
+        });
+    }
+
+    /**
+     * Repeats the last step of the process within a call context.
+     *
+     * @param context call context
+     * @return {@code true} if the process is completed
+     * @throws com.yoo.money.api.exceptions.CallCancelledException if the context is cancelled or expired
+     * @throws Exception if something goes wrong
+     * @see #repeat()
+     * @see #proceed(CallContext)
+     */
+    public final boolean repeat(CallContext context) throws Exception {
+        return checkNotNull(context, "context").call(new Callable<Boolean>() {
+            @Override
+            public Boolean call() throws Exception {
+                return repeat();
+            }
+        });
+    }
+
     @Override
     public final void reset() {
         this.requestPayment = null;
@@ -134,6 +176,16 @@ public abstract class BasePaymentProcess<RP extends BaseRequestPayment,
         return processPayment;
     }
 
+    /**
+     * Sets listener to be notified after each state transition made by {@link #proceed()} or
+     * {@link #repeat()}. Only one listener is supported.
+     *
+     * @param stateListener listener, may be {@code null}
+     */
+    public final void setStateListener(StateListener stateListener) {
+        this.stateListener = stateListener;
+    }
+
     /**
      * Sets access token to a session if required.
      *
@@ -169,7 +221,7 @@ public abstract class BasePaymentProcess<RP extends BaseRequestPayment,
 
     private void executeRequestPayment() throws Exception {
         requestPayment = execute(createRequestPayment());
-        state = State.STARTED;
+        setState(State.STARTED);
     }
 
     private void executeProcessPayment() throws Exception {
@@ -188,20 +240,31 @@ public abstract class BasePaymentProcess<RP extends BaseRequestPayment,
         switch (processPayment.status) {
             case EXT_AUTH_REQUIRED:
                 if (previousStatus != BaseProcessPayment.Status.EXT_AUTH_REQUIRED) {
-                    state = State.PROCESSING;
+                    setState(State.PROCESSING);
                     return;
                 }
             case IN_PROGRESS:
-                state = State.PROCESSING;
+                setState(State.PROCESSING);
                 Threads.sleep(processPayment.nextRetry);
                 executeProcessPayment(request);
                 return;
         }
 
-        state = State.COMPLETED;
+        setState(State.COMPLETED);
+    }
+
+    private void setState(State state) throws Exception {
+        this.state = state;
+        if (stateListener != null) {
+            stateListener.onStateChanged(this);
+        }
     }
 
     private <T> T execute(ApiRequest<T> apiRequest) throws Exception {
+        CallContext context = CallContext.current();
+        if (context != null) {
+            context.checkActive();
+        }
         return client.execute(apiRequest);
     }
 
@@ -231,6 +294,21 @@ public abstract class BasePaymentProcess<RP extends BaseRequestPayment,
         COMPLETED
     }
 
+    /**
+     * Listener of payment process state transitions.
+     */
+    public interface StateListener {
+
+        /**
+         * Called after the process has changed its state. Exception thrown by this method is
+         * propagated to the caller of {@link #proceed()} or {@link #repeat()}.
+         *
+         * @param process payment process
+         * @throws Exception if the state could not be handled
+         */
+        void onStateChanged(BasePaymentProcess<?, ?> process) throws Exception;
+    }
+
     /**
      * Saved state of payment process.
      */
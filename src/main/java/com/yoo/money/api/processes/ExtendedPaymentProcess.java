@@ -29,7 +29,15 @@ import com.yoo.money.api.methods.payment.BaseRequestPayment;
 import com.yoo.money.api.model.ExternalCard;
 import com.yoo.money.api.model.Identifiable;
 import com.yoo.money.api.model.Wallet;
+import com.yoo.money.api.net.CallContext;
 import com.yoo.money.api.net.clients.ApiClient;
+import com.yoo.money.api.util.logging.Log;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
 
 import static com.yoo.money.api.util.Common.checkNotNull;
 
@@ -46,6 +54,12 @@ public final class ExtendedPaymentProcess implements IPaymentProcess {
     private PaymentContext paymentContext;
     private boolean mutablePaymentContext = true;
 
+    private Executor speculativeExecutor;
+    private FutureTask<Boolean> prefetch;
+    private boolean prefetched;
+    private boolean instanceIdChanged;
+    private String instanceId;
+
     /**
      * Constructor.
      *
@@ -63,18 +77,61 @@ public final class ExtendedPaymentProcess implements IPaymentProcess {
     @Override
     public boolean proceed() throws Exception {
         switchContextIfRequired();
-        return paymentContext == PaymentContext.PAYMENT ? paymentProcess.proceed() :
-                externalPaymentProcess.proceed();
+        if (paymentContext == PaymentContext.PAYMENT) {
+            if (speculativeExecutor != null && paymentProcess.getState() == BasePaymentProcess.State.CREATED) {
+                startPrefetch();
+            }
+            return paymentProcess.proceed();
+        }
+
+        awaitPrefetch();
+        if (prefetched) {
+            // request external payment has been done speculatively, so this step is already complete
+            prefetched = false;
+            if (externalPaymentProcess.getState() == BasePaymentProcess.State.STARTED) {
+                return false;
+            }
+        }
+        return externalPaymentProcess.proceed();
     }
 
     @Override
     public boolean repeat() throws Exception {
-        return paymentContext == PaymentContext.PAYMENT ? paymentProcess.repeat() :
-                externalPaymentProcess.repeat();
+        if (paymentContext == PaymentContext.PAYMENT) {
+            return paymentProcess.repeat();
+        }
+        awaitPrefetch();
+        return externalPaymentProcess.repeat();
+    }
+
+    /**
+     * @see BasePaymentProcess#proceed(CallContext)
+     */
+    public boolean proceed(CallContext context) throws Exception {
+        return checkNotNull(context, "context").call(new Callable<Boolean>() {
+            @Override
+            public Boolean call() throws Exception {
+                return proceed();
+            }
+        });
+    }
+
+    /**
+     * @see BasePaymentProcess#repeat(CallContext)
+     */
+    public boolean repeat(CallContext context) throws Exception {
+        return checkNotNull(context, "context").call(new Callable<Boolean>() {
+            @Override
+            public Boolean call() throws Exception {
+                return repeat();
+            }
+        });
     }
 
     @Override
     public void reset() {
+        awaitPrefetch();
+        prefetched = false;
         paymentProcess.reset();
         externalPaymentProcess.reset();
         invalidatePaymentContext();
@@ -82,14 +139,20 @@ public final class ExtendedPaymentProcess implements IPaymentProcess {
 
     @Override
     public BaseRequestPayment getRequestPayment() {
-        return paymentContext == PaymentContext.PAYMENT ? paymentProcess.getRequestPayment() :
-                externalPaymentProcess.getRequestPayment();
+        if (paymentContext == PaymentContext.PAYMENT) {
+            return paymentProcess.getRequestPayment();
+        }
+        awaitPrefetch();
+        return externalPaymentProcess.getRequestPayment();
     }
 
     @Override
     public BaseProcessPayment getProcessPayment() {
-        return paymentContext == PaymentContext.PAYMENT ? paymentProcess.getProcessPayment() :
-                externalPaymentProcess.getProcessPayment();
+        if (paymentContext == PaymentContext.PAYMENT) {
+            return paymentProcess.getProcessPayment();
+        }
+        awaitPrefetch();
+        return externalPaymentProcess.getProcessPayment();
     }
 
     /**
@@ -111,11 +174,54 @@ public final class ExtendedPaymentProcess implements IPaymentProcess {
     }
 
     /**
+     * Enables speculative requests. When an authorized user starts the process with mutable payment
+     * context, {@code request-external-payment} is sent on the executor in parallel with
+     * {@code request-payment}. If the user then selects {@link ExternalCard} as a money source, the
+     * next call of {@link #proceed()} switches to {@link PaymentContext#EXTERNAL_PAYMENT} using the
+     * prefetched response without a network round trip. The speculative response is discarded
+     * otherwise. Must be called right after instance creation, before calling {@link #proceed()}.
+     * <p/>
+     * Instance id should be set with {@link #setInstanceId(String)} for speculative requests to
+     * succeed. A failed or refused speculative request is ignored and sent again if required.
+     * Speculative request is sent within {@link CallContext} of the call of {@link #proceed()} which
+     * started it. Payment parameters are taken from the parameter provider on the thread calling
+     * {@link #proceed()}, the provider is never accessed by the executor.
+     *
+     * @param executor executor to send speculative requests on
+     * @return this instance for chain purposes
+     * @throws IllegalStateException if called when process's state is not {@code CREATED} or
+     * payment context is fixed
+     */
+    public ExtendedPaymentProcess initWithSpeculativeRequests(Executor executor) {
+        if (getState() != BasePaymentProcess.State.CREATED) {
+            throw new IllegalStateException("you should call initWithSpeculativeRequests() after " +
+                    "constructor only");
+        }
+        if (!mutablePaymentContext) {
+            throw new IllegalStateException("speculative requests require mutable payment context");
+        }
+        this.speculativeExecutor = checkNotNull(executor, "executor");
+        return this;
+    }
+
+    /**
+     * Gets saved state. Does not wait for a speculative request in progress: its response is not
+     * included, so the request is sent again after restoring if required.
+     *
      * @return saved state
      */
     public SavedState getSavedState() {
-        return new SavedState(paymentProcess.getSavedState(),
-                externalPaymentProcess.getSavedState(), paymentContext, mutablePaymentContext);
+        ExternalPaymentProcess.SavedState externalPaymentProcessSavedState;
+        if (prefetch != null && !prefetch.isDone()) {
+            // the process is not started until speculative request completes
+            externalPaymentProcessSavedState = new ExternalPaymentProcess.SavedState(null, null,
+                    BasePaymentProcess.State.CREATED);
+        } else {
+            awaitPrefetch();
+            externalPaymentProcessSavedState = externalPaymentProcess.getSavedState();
+        }
+        return new SavedState(paymentProcess.getSavedState(), externalPaymentProcessSavedState,
+                paymentContext, mutablePaymentContext);
     }
 
     /**
@@ -124,6 +230,8 @@ public final class ExtendedPaymentProcess implements IPaymentProcess {
      * @param savedState saved state
      */
     public void restoreSavedState(SavedState savedState) {
+        awaitPrefetch();
+        prefetched = false;
         paymentProcess.restoreSavedState(checkNotNull(savedState, "saved state").paymentProcessSavedState);
         externalPaymentProcess.restoreSavedState(savedState.externalPaymentProcessSavedState);
         paymentContext = savedState.paymentContext;
@@ -142,7 +250,14 @@ public final class ExtendedPaymentProcess implements IPaymentProcess {
      * @see ExternalPaymentProcess#setInstanceId(String)
      */
     public void setInstanceId(String instanceId) {
-        externalPaymentProcess.setInstanceId(instanceId);
+        if (prefetch != null && !prefetch.isDone()) {
+            // applied when speculative request completes
+            this.instanceId = instanceId;
+            this.instanceIdChanged = true;
+        } else {
+            awaitPrefetch();
+            externalPaymentProcess.setInstanceId(instanceId);
+        }
     }
 
     /**
@@ -152,6 +267,81 @@ public final class ExtendedPaymentProcess implements IPaymentProcess {
         return paymentContext;
     }
 
+    private void startPrefetch() {
+        if (externalPaymentProcess.getState() != BasePaymentProcess.State.CREATED) {
+            return;
+        }
+
+        // the provider is not thread safe, so it is accessed on the caller's thread only
+        externalPaymentProcess.snapshotRequestParameters();
+        final Callable<Boolean> request = new Callable<Boolean>() {
+            @Override
+            public Boolean call() throws Exception {
+                return externalPaymentProcess.proceed();
+            }
+        };
+        final CallContext context = CallContext.current();
+        prefetch = new FutureTask<>(context == null ? request : new Callable<Boolean>() {
+            @Override
+            public Boolean call() throws Exception {
+                return context.call(request);
+            }
+        });
+        try {
+            speculativeExecutor.execute(prefetch);
+        } catch (RejectedExecutionException e) {
+            Log.d("speculative request external payment rejected", e);
+            externalPaymentProcess.clearRequestParameters();
+            prefetch = null;
+        }
+    }
+
+    /**
+     * Waits for a speculative request to complete, so {@link #externalPaymentProcess} is not
+     * accessed concurrently. Must be called before any access to {@link #externalPaymentProcess}.
+     */
+    private void awaitPrefetch() {
+        FutureTask<Boolean> prefetch = this.prefetch;
+        if (prefetch == null) {
+            return;
+        }
+
+        this.prefetch = null;
+        boolean interrupted = false;
+        while (true) {
+            try {
+                prefetch.get();
+                prefetched = true;
+                break;
+            } catch (InterruptedException e) {
+                interrupted = true;
+            } catch (ExecutionException e) {
+                Log.d("speculative request external payment failed", e.getCause());
+                break;
+            }
+        }
+        externalPaymentProcess.clearRequestParameters();
+        if (instanceIdChanged) {
+            // speculative response was requested with previous instance id
+            instanceIdChanged = false;
+            prefetched = false;
+            externalPaymentProcess.reset();
+            externalPaymentProcess.setInstanceId(instanceId);
+            instanceId = null;
+        } else if (prefetched && isRefused(externalPaymentProcess.getRequestPayment())) {
+            // refused request is sent again when the process switches to external payment
+            prefetched = false;
+            externalPaymentProcess.reset();
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static boolean isRefused(BaseRequestPayment requestPayment) {
+        return requestPayment != null && requestPayment.status == BaseRequestPayment.Status.REFUSED;
+    }
+
     private void invalidatePaymentContext() {
         this.paymentContext = client.isAuthorized() ? PaymentContext.PAYMENT :
                 PaymentContext.EXTERNAL_PAYMENT;
@@ -171,8 +361,11 @@ public final class ExtendedPaymentProcess implements IPaymentProcess {
     }
 
     private BasePaymentProcess.State getState() {
-        return paymentContext == PaymentContext.PAYMENT ? paymentProcess.getState() :
-                externalPaymentProcess.getState();
+        if (paymentContext == PaymentContext.PAYMENT) {
+            return paymentProcess.getState();
+        }
+        awaitPrefetch();
+        return externalPaymentProcess.getState();
     }
 
     /**
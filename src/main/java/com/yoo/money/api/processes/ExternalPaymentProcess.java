@@ -32,6 +32,9 @@ import com.yoo.money.api.net.ApiRequest;
 import com.yoo.money.api.net.clients.ApiClient;
 import com.yoo.money.api.util.Strings;
 
+import java.util.HashMap;
+import java.util.Map;
+
 /**
  * @author Slava Yasevich (support@yoomoney.ru)
  */
@@ -41,6 +44,8 @@ public final class ExternalPaymentProcess
     private final ParameterProvider parameterProvider;
 
     private String instanceId;
+    private String patternId;
+    private Map<String, String> paymentParameters;
 
     public ExternalPaymentProcess(ApiClient client, ParameterProvider parameterProvider) {
         super(client, parameterProvider);
@@ -59,8 +64,32 @@ public final class ExternalPaymentProcess
         this.instanceId = instanceId;
     }
 
+    /**
+     * Takes pattern id and payment parameters for the next {@code request-external-payment} from
+     * the parameter provider right now, so the provider is not accessed when the request is sent
+     * on another thread.
+     */
+    void snapshotRequestParameters() {
+        patternId = parameterProvider.getPatternId();
+        paymentParameters = new HashMap<>(parameterProvider.getPaymentParameters());
+    }
+
+    /**
+     * Discards parameters taken by {@link #snapshotRequestParameters()}.
+     */
+    void clearRequestParameters() {
+        patternId = null;
+        paymentParameters = null;
+    }
+
     @Override
     protected ApiRequest<RequestExternalPayment> createRequestPayment() {
+        if (paymentParameters != null) {
+            ApiRequest<RequestExternalPayment> request = RequestExternalPayment.Request.newInstance(instanceId,
+                    patternId, paymentParameters);
+            clearRequestParameters();
+            return request;
+        }
         return RequestExternalPayment.Request.newInstance(instanceId,
                 parameterProvider.getPatternId(), parameterProvider.getPaymentParameters());
     }
@@ -0,0 +1,446 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2020 NBCO YooMoney LLC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.yoo.money.api.processes;
+
+import com.yoo.money.api.methods.payment.BaseProcessPayment;
+import com.yoo.money.api.methods.payment.BaseRequestPayment;
+import com.yoo.money.api.methods.payment.ProcessPayment;
+import com.yoo.money.api.methods.payment.RequestPayment;
+import com.yoo.money.api.methods.payment.params.PaymentParams;
+import com.yoo.money.api.model.MoneySource;
+import com.yoo.money.api.net.clients.ApiClient;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import static com.yoo.money.api.util.Common.checkNotNull;
+
+/**
+ * Executes batches of payments for authorized users. Each payment goes through request payment and
+ * process payment stages which run on separate thread pools, so the number of concurrent requests
+ * of each stage is limited independently. Payments which are {@code IN_PROGRESS} are polled with a
+ * timer according to {@link BaseProcessPayment#nextRetry} instead of blocking a thread of the
+ * process stage.
+ * <p>
+ * Payments that require external authorization ({@code EXT_AUTH_REQUIRED}) can not be completed
+ * without a user and are reported as failed with the last process payment response.
+ * <p>
+ * Instances of this class are immutable and thread safe. Use {@link Builder} to create them.
+ */
+public final class PaymentBatchExecutor {
+
+    private static final long DEFAULT_RETRY_DELAY = 1000;
+
+    private final int requestConcurrency;
+    private final int processConcurrency;
+    private final MoneySource moneySource;
+    private final String csc;
+
+    PaymentBatchExecutor(Builder builder) {
+        requestConcurrency = builder.requestConcurrency;
+        processConcurrency = builder.processConcurrency;
+        moneySource = builder.moneySource;
+        csc = builder.csc;
+    }
+
+    /**
+     * Starts execution of payments. Access token of the client should be set. Thread pools of the
+     * batch are shut down when all payments are completed or the batch is cancelled.
+     *
+     * @param client client to use
+     * @param payments payments to execute
+     * @return batch to track progress and get results
+     */
+    public Batch submit(ApiClient client, List<? extends PaymentParams> payments) {
+        Batch batch = new Batch(this, checkNotNull(client, "client"),
+                new ArrayList<PaymentParams>(checkNotNull(payments, "payments")));
+        batch.start();
+        return batch;
+    }
+
+    /**
+     * Batch of payments being executed. Progress counters may be read at any time from any thread.
+     */
+    public static final class Batch {
+
+        private final PaymentBatchExecutor executor;
+        private final ApiClient client;
+        private final List<PaymentParams> payments;
+        private final AtomicReferenceArray<Result> results;
+        /**
+         * 1 for payments which wait for the next poll, {@link #waiting} is their count.
+         */
+        private final AtomicIntegerArray polls;
+        private final CountDownLatch latch;
+        private final ExecutorService requestExecutor;
+        private final ExecutorService processExecutor;
+        private final ScheduledExecutorService scheduler;
+
+        private final AtomicInteger requested = new AtomicInteger();
+        private final AtomicInteger waiting = new AtomicInteger();
+        private final AtomicInteger succeeded = new AtomicInteger();
+        private final AtomicInteger failed = new AtomicInteger();
+
+        Batch(PaymentBatchExecutor executor, ApiClient client, List<PaymentParams> payments) {
+            this.executor = executor;
+            this.client = client;
+            this.payments = payments;
+            this.results = new AtomicReferenceArray<>(payments.size());
+            this.polls = new AtomicIntegerArray(payments.size());
+            this.latch = new CountDownLatch(payments.size());
+            this.requestExecutor = Executors.newFixedThreadPool(executor.requestConcurrency);
+            this.processExecutor = Executors.newFixedThreadPool(executor.processConcurrency);
+            this.scheduler = Executors.newSingleThreadScheduledExecutor();
+        }
+
+        /**
+         * @return total number of payments in the batch
+         */
+        public int getTotal() {
+            return payments.size();
+        }
+
+        /**
+         * @return number of payments which have passed request payment stage
+         */
+        public int getRequested() {
+            return requested.get();
+        }
+
+        /**
+         * @return number of payments which are {@code IN_PROGRESS} and wait for the next poll
+         */
+        public int getWaiting() {
+            return waiting.get();
+        }
+
+        /**
+         * @return number of successfully completed payments
+         */
+        public int getSucceeded() {
+            return succeeded.get();
+        }
+
+        /**
+         * @return number of failed or cancelled payments
+         */
+        public int getFailed() {
+            return failed.get();
+        }
+
+        /**
+         * @return number of completed payments, both successful and failed
+         */
+        public int getCompleted() {
+            return succeeded.get() + failed.get();
+        }
+
+        /**
+         * @return {@code true} if all payments are completed
+         */
+        public boolean isDone() {
+            return latch.getCount() == 0;
+        }
+
+        /**
+         * Waits until all payments are completed.
+         *
+         * @return results in the order of submitted payments
+         * @throws InterruptedException if the current thread was interrupted while waiting
+         */
+        public List<Result> await() throws InterruptedException {
+            latch.await();
+            return getResults();
+        }
+
+        /**
+         * Waits until all payments are completed or the timeout elapses.
+         *
+         * @param timeout maximum time to wait
+         * @param unit unit of the timeout
+         * @return results in the order of submitted payments or {@code null} if the timeout has
+         * elapsed
+         * @throws InterruptedException if the current thread was interrupted while waiting
+         */
+        public List<Result> await(long timeout, TimeUnit unit) throws InterruptedException {
+            return latch.await(timeout, unit) ? getResults() : null;
+        }
+
+        /**
+         * Cancels payments which are not completed yet. Payments that have already been requested
+         * may still be processed by the server, their results contain the last known responses.
+         */
+        public void cancel() {
+            shutdown();
+            for (int i = 0; i < payments.size(); ++i) {
+                complete(i, null, null, new CancellationException("batch is cancelled"));
+            }
+        }
+
+        void start() {
+            if (payments.isEmpty()) {
+                shutdown();
+            }
+            for (int i = 0; i < payments.size(); ++i) {
+                requestPayment(i);
+            }
+        }
+
+        private List<Result> getResults() {
+            List<Result> list = new ArrayList<>(results.length());
+            for (int i = 0; i < results.length(); ++i) {
+                list.add(results.get(i));
+            }
+            return Collections.unmodifiableList(list);
+        }
+
+        private void requestPayment(final int index) {
+            execute(requestExecutor, index, null, null, new Runnable() {
+                @Override
+                public void run() {
+                    RequestPayment requestPayment = null;
+                    try {
+                        requestPayment = client.execute(RequestPayment.Request.newInstance(payments.get(index)));
+                        if (requestPayment.status == BaseRequestPayment.Status.REFUSED) {
+                            complete(index, requestPayment, null, null);
+                            return;
+                        }
+                        requested.incrementAndGet();
+                        processPayment(index, requestPayment, new ProcessPayment.Request(requestPayment.requestId,
+                                executor.moneySource, executor.csc, null, null));
+                    } catch (Exception e) {
+                        complete(index, requestPayment, null, e);
+                    }
+                }
+            });
+        }
+
+        private void processPayment(final int index, final RequestPayment requestPayment,
+                                    final ProcessPayment.Request request) {
+
+            execute(processExecutor, index, requestPayment, null, new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        ProcessPayment processPayment = client.execute(request);
+                        if (processPayment.status == BaseProcessPayment.Status.IN_PROGRESS) {
+                            poll(index, requestPayment, processPayment, request);
+                        } else {
+                            complete(index, requestPayment, processPayment, null);
+                        }
+                    } catch (Exception e) {
+                        complete(index, requestPayment, null, e);
+                    }
+                }
+            });
+        }
+
+        private void poll(final int index, final RequestPayment requestPayment, ProcessPayment processPayment,
+                          final ProcessPayment.Request request) {
+
+            long delay = processPayment.nextRetry > 0 ? processPayment.nextRetry : DEFAULT_RETRY_DELAY;
+            waiting.incrementAndGet();
+            polls.set(index, 1);
+            try {
+                scheduler.schedule(new Runnable() {
+                    @Override
+                    public void run() {
+                        stopWaiting(index);
+                        processPayment(index, requestPayment, request);
+                    }
+                }, delay, TimeUnit.MILLISECONDS);
+            } catch (RejectedExecutionException e) {
+                stopWaiting(index);
+                complete(index, requestPayment, processPayment, new CancellationException("batch is cancelled"));
+            }
+        }
+
+        private void execute(ExecutorService executorService, int index, RequestPayment requestPayment,
+                             ProcessPayment processPayment, Runnable task) {
+            try {
+                executorService.execute(task);
+            } catch (RejectedExecutionException e) {
+                complete(index, requestPayment, processPayment, new CancellationException("batch is cancelled"));
+            }
+        }
+
+        private void complete(int index, RequestPayment requestPayment, ProcessPayment processPayment,
+                              Exception exception) {
+
+            Result result = new Result(payments.get(index), requestPayment, processPayment, exception);
+            if (!results.compareAndSet(index, null, result)) {
+                // already completed or cancelled
+                return;
+            }
+            // scheduled poll may be dropped by cancellation
+            stopWaiting(index);
+
+            if (result.isSuccessful()) {
+                succeeded.incrementAndGet();
+            } else {
+                failed.incrementAndGet();
+            }
+            latch.countDown();
+            if (latch.getCount() == 0) {
+                shutdown();
+            }
+        }
+
+        private void stopWaiting(int index) {
+            if (polls.compareAndSet(index, 1, 0)) {
+                waiting.decrementAndGet();
+            }
+        }
+
+        private void shutdown() {
+            scheduler.shutdownNow();
+            requestExecutor.shutdownNow();
+            processExecutor.shutdownNow();
+        }
+    }
+
+    /**
+     * Result of a payment.
+     */
+    public static final class Result {
+
+        /**
+         * Payment parameters.
+         */
+        public final PaymentParams params;
+
+        /**
+         * Last request payment response, {@code null} if it was not received.
+         */
+        public final RequestPayment requestPayment;
+
+        /**
+         * Last process payment response, {@code null} if it was not received.
+         */
+        public final ProcessPayment processPayment;
+
+        /**
+         * Exception thrown while executing the payment, {@code null} if there was none.
+         */
+        public final Exception exception;
+
+        Result(PaymentParams params, RequestPayment requestPayment, ProcessPayment processPayment,
+               Exception exception) {
+            this.params = params;
+            this.requestPayment = requestPayment;
+            this.processPayment = processPayment;
+            this.exception = exception;
+        }
+
+        /**
+         * @return {@code true} if the payment has been processed successfully
+         */
+        public boolean isSuccessful() {
+            return exception == null && processPayment != null
+                    && processPayment.status == BaseProcessPayment.Status.SUCCESS;
+        }
+
+        @Override
+        public String toString() {
+            return "Result{" +
+                    "params=" + params +
+                    ", requestPayment=" + requestPayment +
+                    ", processPayment=" + processPayment +
+                    ", exception=" + exception +
+                    '}';
+        }
+    }
+
+    /**
+     * Creates {@link PaymentBatchExecutor}.
+     */
+    public static class Builder {
+
+        int requestConcurrency = 4;
+        int processConcurrency = 4;
+        MoneySource moneySource;
+        String csc;
+
+        /**
+         * @param requestConcurrency maximum number of concurrent request payment calls, 4 by default
+         * @return itself
+         */
+        public Builder setRequestConcurrency(int requestConcurrency) {
+            if (requestConcurrency < 1) {
+                throw new IllegalArgumentException("requestConcurrency should be positive");
+            }
+            this.requestConcurrency = requestConcurrency;
+            return this;
+        }
+
+        /**
+         * @param processConcurrency maximum number of concurrent process payment calls, 4 by default
+         * @return itself
+         */
+        public Builder setProcessConcurrency(int processConcurrency) {
+            if (processConcurrency < 1) {
+                throw new IllegalArgumentException("processConcurrency should be positive");
+            }
+            this.processConcurrency = processConcurrency;
+            return this;
+        }
+
+        /**
+         * @param moneySource money source to pay from, wallet by default
+         * @return itself
+         * @see ProcessPayment.Request#Request(String, MoneySource, String, String, String)
+         */
+        public Builder setMoneySource(MoneySource moneySource) {
+            this.moneySource = moneySource;
+            return this;
+        }
+
+        /**
+         * @param csc Card Security Code if the money source requires it
+         * @return itself
+         */
+        public Builder setCsc(String csc) {
+            this.csc = csc;
+            return this;
+        }
+
+        /**
+         * @return executor
+         */
+        public PaymentBatchExecutor create() {
+            return new PaymentBatchExecutor(this);
+        }
+    }
+}
@@ -0,0 +1,672 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2020 NBCO YooMoney LLC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.yoo.money.api.processes;
+
+import com.yoo.money.api.util.BinaryInput;
+import com.yoo.money.api.util.BinaryOutput;
+import com.yoo.money.api.util.logging.Log;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+import static com.yoo.money.api.util.Common.checkNotNull;
+
+/**
+ * Write-ahead journal of payment processes. Each state transition of an attached
+ * {@link PaymentProcess} or {@link ExternalPaymentProcess} is appended to a local file together
+ * with an id of the process before {@link IPaymentProcess#proceed()} or
+ * {@link IPaymentProcess#repeat()} returns, so unfinished processes can be resumed with
+ * {@link #recover(ProcessFactory)} after the application was killed.
+ * <p/>
+ * Records are written by a single background thread which groups concurrent appends into one
+ * write and one {@link FileChannel#force(boolean)} call, so the journal sustains thousands of
+ * transitions per second while every append is durable when it returns. Each record is framed
+ * with its length and CRC32 checksum; torn records at the end of the file are discarded on open.
+ * The file is compacted on open and whenever it contains considerably more records than there
+ * are unfinished processes.
+ * <p/>
+ * This class is thread safe.
+ */
+public final class PaymentJournal implements Closeable {
+
+    private static final int RECORD_STATE = 1;
+    private static final int RECORD_REMOVE = 2;
+
+    private static final int KIND_PAYMENT = 1;
+    private static final int KIND_EXTERNAL_PAYMENT = 2;
+
+    private static final int FRAME_HEADER_SIZE = 8;
+    private static final int MAX_RECORD_SIZE = 16 * 1024 * 1024;
+    private static final int MIN_RECORDS_TO_COMPACT = 1024;
+
+    private final File file;
+    private final Object lock = new Object();
+    private final Object fileLock = new Object();
+    private final Map<String, Entry> unfinished = new LinkedHashMap<>();
+    private final List<byte[]> pending = new ArrayList<>();
+    private final Thread writer;
+
+    private RandomAccessFile randomAccessFile;
+    private FileChannel channel;
+    private long appended;
+    private long durable;
+    private int records;
+    private IOException failure;
+    private boolean closed;
+
+    private PaymentJournal(File file) {
+        this.file = file;
+        this.writer = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                writeLoop();
+            }
+        }, "PaymentJournal-" + file.getName());
+        this.writer.setDaemon(true);
+    }
+
+    /**
+     * Opens a journal. If the file exists its records are loaded and the file is compacted,
+     * otherwise a new file is created.
+     *
+     * @param file journal file
+     * @return opened journal
+     * @throws IOException if the file could not be read or written
+     */
+    public static PaymentJournal open(File file) throws IOException {
+        PaymentJournal journal = new PaymentJournal(checkNotNull(file, "file"));
+        try {
+            if (file.exists()) {
+                journal.load();
+            }
+            synchronized (journal.fileLock) {
+                journal.compact();
+            }
+        } catch (IOException | RuntimeException e) {
+            synchronized (journal.fileLock) {
+                try {
+                    journal.closeFile();
+                } catch (IOException suppressed) {
+                    e.addSuppressed(suppressed);
+                }
+            }
+            throw e;
+        }
+        journal.writer.start();
+        return journal;
+    }
+
+    /**
+     * Attaches payment process to the journal: every state transition of the process will be
+     * recorded under specified id. Current state of the process is recorded immediately.
+     *
+     * @param processId unique id of the process
+     * @param process payment process
+     * @throws IOException if the state could not be recorded
+     */
+    public void attach(final String processId, final PaymentProcess process) throws IOException {
+        record(processId, process);
+        process.setStateListener(new BasePaymentProcess.StateListener() {
+            @Override
+            public void onStateChanged(BasePaymentProcess<?, ?> p) throws Exception {
+                record(processId, process);
+            }
+        });
+    }
+
+    /**
+     * Attaches external payment process to the journal: every state transition of the process will
+     * be recorded under specified id. Current state of the process is recorded immediately.
+     *
+     * @param processId unique id of the process
+     * @param process external payment process
+     * @throws IOException if the state could not be recorded
+     */
+    public void attach(final String processId, final ExternalPaymentProcess process) throws IOException {
+        record(processId, process);
+        process.setStateListener(new BasePaymentProcess.StateListener() {
+            @Override
+            public void onStateChanged(BasePaymentProcess<?, ?> p) throws Exception {
+                record(processId, process);
+            }
+        });
+    }
+
+    /**
+     * Records current state of payment process.
+     *
+     * @param processId unique id of the process
+     * @param process payment process
+     * @throws IOException if the state could not be recorded
+     */
+    public void record(String processId, PaymentProcess process) throws IOException {
+        checkNotNull(process, "process");
+        append(checkNotNull(processId, "processId"), KIND_PAYMENT,
+                SavedStateCodec.encode(process.getSavedState()), process.getState());
+    }
+
+    /**
+     * Records current state of external payment process.
+     *
+     * @param processId unique id of the process
+     * @param process external payment process
+     * @throws IOException if the state could not be recorded
+     */
+    public void record(String processId, ExternalPaymentProcess process) throws IOException {
+        checkNotNull(process, "process");
+        append(checkNotNull(processId, "processId"), KIND_EXTERNAL_PAYMENT,
+                SavedStateCodec.encode(process.getSavedState()), process.getState());
+    }
+
+    /**
+     * Removes a process from the journal, so it will not be recovered.
+     *
+     * @param processId unique id of the process
+     * @throws IOException if the removal could not be recorded
+     */
+    public void remove(String processId) throws IOException {
+        checkNotNull(processId, "processId");
+        BinaryOutput output = new BinaryOutput(processId.length() + 8);
+        output.writeByte(RECORD_REMOVE);
+        output.writeString(processId);
+        long sequence;
+        synchronized (lock) {
+            checkOpen();
+            unfinished.remove(processId);
+            sequence = enqueue(output.toByteArray());
+        }
+        await(sequence);
+    }
+
+    /**
+     * @return snapshot of unfinished processes in order of their first record
+     */
+    public List<Entry> getUnfinished() {
+        synchronized (lock) {
+            return Collections.unmodifiableList(new ArrayList<>(unfinished.values()));
+        }
+    }
+
+    /**
+     * Resumes all unfinished processes. Each process is created by the factory, restored from the
+     * journal and attached to it. Processes that have sent request payment are continued with
+     * {@link IPaymentProcess#proceed()} so the same request id is used to process the payment;
+     * processes that have started processing are continued with {@link IPaymentProcess#repeat()}.
+     * Processes that have not sent anything yet are removed from the journal.
+     * <p/>
+     * Processes are resumed sequentially on the calling thread.
+     *
+     * @param factory factory of processes
+     * @return exceptions thrown by processes that could not be resumed, mapped by process id
+     * @throws IOException if the journal could not be written
+     */
+    public Map<String, Exception> recover(ProcessFactory factory) throws IOException {
+        checkNotNull(factory, "factory");
+        Map<String, Exception> failures = new LinkedHashMap<>();
+        for (Entry entry : getUnfinished()) {
+            if (entry.state == BasePaymentProcess.State.CREATED) {
+                remove(entry.processId);
+                continue;
+            }
+
+            BasePaymentProcess<?, ?> process;
+            if (entry.isExternalPayment()) {
+                ExternalPaymentProcess externalPaymentProcess =
+                        factory.createExternalPaymentProcess(entry.processId);
+                externalPaymentProcess.restoreSavedState(entry.getExternalPaymentState());
+                attach(entry.processId, externalPaymentProcess);
+                process = externalPaymentProcess;
+            } else {
+                PaymentProcess paymentProcess = factory.createPaymentProcess(entry.processId);
+                paymentProcess.restoreSavedState(entry.getPaymentState());
+                attach(entry.processId, paymentProcess);
+                process = paymentProcess;
+            }
+
+            try {
+                if (entry.state == BasePaymentProcess.State.STARTED) {
+                    process.proceed();
+                } else {
+                    process.repeat();
+                }
+            } catch (IOException e) {
+                checkFailure();
+                failures.put(entry.processId, e);
+            } catch (Exception e) {
+                failures.put(entry.processId, e);
+            }
+        }
+        return failures;
+    }
+
+    /**
+     * Writes all pending records and closes the journal. Attached processes will fail on their
+     * next state transition.
+     */
+    @Override
+    public void close() throws IOException {
+        synchronized (lock) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            lock.notifyAll();
+        }
+
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("interrupted while closing journal");
+        } finally {
+            synchronized (fileLock) {
+                closeFile();
+            }
+        }
+
+        synchronized (lock) {
+            if (failure != null) {
+                throw failure;
+            }
+        }
+    }
+
+    private void append(String processId, int kind, byte[] state, BasePaymentProcess.State processState)
+            throws IOException {
+
+        BinaryOutput output = new BinaryOutput(state.length + processId.length() + 16);
+        output.writeByte(RECORD_STATE);
+        output.writeString(processId);
+        output.writeByte(kind);
+        output.writeByteArray(state);
+        long sequence;
+        synchronized (lock) {
+            checkOpen();
+            if (processState == BasePaymentProcess.State.COMPLETED) {
+                unfinished.remove(processId);
+            } else {
+                unfinished.put(processId, new Entry(processId, kind, processState, state));
+            }
+            sequence = enqueue(output.toByteArray());
+        }
+        await(sequence);
+    }
+
+    private void checkOpen() throws IOException {
+        if (failure != null) {
+            throw failure;
+        }
+        if (closed) {
+            throw new IOException("journal is closed");
+        }
+    }
+
+    private void checkFailure() throws IOException {
+        synchronized (lock) {
+            if (failure != null) {
+                throw failure;
+            }
+        }
+    }
+
+    private long enqueue(byte[] record) {
+        pending.add(record);
+        lock.notifyAll();
+        return ++appended;
+    }
+
+    private void await(long sequence) throws IOException {
+        synchronized (lock) {
+            while (durable < sequence) {
+                if (failure != null) {
+                    throw failure;
+                }
+                try {
+                    lock.wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("interrupted while waiting for journal");
+                }
+            }
+        }
+    }
+
+    private void writeLoop() {
+        List<byte[]> batch = new ArrayList<>();
+        while (true) {
+            long sequence;
+            boolean compact;
+            synchronized (lock) {
+                while (pending.isEmpty() && !closed) {
+                    try {
+                        lock.wait();
+                    } catch (InterruptedException e) {
+                        // ignore, journal is stopped by close()
+                    }
+                }
+                if (pending.isEmpty()) {
+                    return;
+                }
+                batch.addAll(pending);
+                pending.clear();
+                sequence = appended;
+                records += batch.size();
+                compact = records > Math.max(MIN_RECORDS_TO_COMPACT, unfinished.size() * 4);
+            }
+
+            try {
+                synchronized (fileLock) {
+                    write(channel, batch);
+                    if (compact) {
+                        compact();
+                    }
+                }
+                synchronized (lock) {
+                    durable = sequence;
+                    lock.notifyAll();
+                }
+            } catch (IOException e) {
+                Log.e("PaymentJournal", "failed to write journal " + file, e);
+                synchronized (lock) {
+                    failure = e;
+                    lock.notifyAll();
+                }
+                return;
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private static void write(FileChannel channel, List<byte[]> batch) throws IOException {
+        int size = 0;
+        for (byte[] record : batch) {
+            size += FRAME_HEADER_SIZE + record.length;
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate(size);
+        CRC32 crc = new CRC32();
+        for (byte[] record : batch) {
+            crc.reset();
+            crc.update(record, 0, record.length);
+            buffer.putInt(record.length);
+            buffer.putInt((int) crc.getValue());
+            buffer.put(record);
+        }
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        channel.force(false);
+    }
+
+    private void load() throws IOException {
+        FileInputStream stream = new FileInputStream(file);
+        try {
+            ByteBuffer header = ByteBuffer.allocate(FRAME_HEADER_SIZE);
+            CRC32 crc = new CRC32();
+            while (true) {
+                if (!readFully(stream, header.array(), FRAME_HEADER_SIZE)) {
+                    break;
+                }
+                header.clear();
+                int length = header.getInt();
+                int checksum = header.getInt();
+                if (length <= 0 || length > MAX_RECORD_SIZE) {
+                    Log.w("PaymentJournal", "invalid record length in " + file + ", discarding the rest");
+                    break;
+                }
+
+                byte[] record = new byte[length];
+                if (!readFully(stream, record, length)) {
+                    break;
+                }
+                crc.reset();
+                crc.update(record, 0, length);
+                if ((int) crc.getValue() != checksum) {
+                    Log.w("PaymentJournal", "checksum mismatch in " + file + ", discarding the rest");
+                    break;
+                }
+                try {
+                    apply(record);
+                } catch (IllegalArgumentException e) {
+                    throw new IOException("invalid record in " + file, e);
+                }
+            }
+        } finally {
+            stream.close();
+        }
+    }
+
+    private static boolean readFully(FileInputStream stream, byte[] buffer, int length) throws IOException {
+        int offset = 0;
+        while (offset < length) {
+            int count = stream.read(buffer, offset, length - offset);
+            if (count < 0) {
+                if (offset > 0) {
+                    Log.w("PaymentJournal", "truncated record, discarding");
+                }
+                return false;
+            }
+            offset += count;
+        }
+        return true;
+    }
+
+    private void apply(byte[] record) {
+        BinaryInput input = new BinaryInput(record);
+        int type = input.readByte();
+        String processId = input.readString();
+        switch (type) {
+            case RECORD_STATE:
+                int kind = input.readByte();
+                byte[] state = input.readByteArray();
+                BasePaymentProcess.State processState = decodeState(kind, state);
+                if (processState == BasePaymentProcess.State.COMPLETED) {
+                    unfinished.remove(processId);
+                } else {
+                    unfinished.put(processId, new Entry(processId, kind, processState, state));
+                }
+                break;
+            case RECORD_REMOVE:
+                unfinished.remove(processId);
+                break;
+            default:
+                throw new IllegalArgumentException("unknown record type: " + type);
+        }
+    }
+
+    private static BasePaymentProcess.State decodeState(int kind, byte[] state) {
+        switch (kind) {
+            case KIND_PAYMENT:
+                return SavedStateCodec.decodePaymentState(state).getState();
+            case KIND_EXTERNAL_PAYMENT:
+                return SavedStateCodec.decodeExternalPaymentState(state).getState();
+            default:
+                throw new IllegalArgumentException("unknown process kind: " + kind);
+        }
+    }
+
+    /**
+     * Rewrites the file so it contains only records of unfinished processes. Must be called while
+     * holding {@link #fileLock}. Records appended after the snapshot is taken are written to the
+     * new file by the writer thread.
+     * <p/>
+     * The snapshot is written to a temporary file which is forced to disk before it replaces the
+     * journal, and the current file stays open until the new one is opened. If compaction fails the
+     * journal file is left intact.
+     */
+    private void compact() throws IOException {
+        List<byte[]> snapshot = new ArrayList<>();
+        synchronized (lock) {
+            for (Entry entry : unfinished.values()) {
+                BinaryOutput output = new BinaryOutput(entry.savedState.length + entry.processId.length() + 16);
+                output.writeByte(RECORD_STATE);
+                output.writeString(entry.processId);
+                output.writeByte(entry.kind);
+                output.writeByteArray(entry.savedState);
+                snapshot.add(output.toByteArray());
+            }
+            records = snapshot.size();
+        }
+
+        File temp = new File(file.getPath() + ".tmp");
+        RandomAccessFile tempFile = new RandomAccessFile(temp, "rw");
+        try {
+            tempFile.setLength(0);
+            // write() forces the channel
+            write(tempFile.getChannel(), snapshot);
+        } catch (IOException e) {
+            tempFile.close();
+            if (!temp.delete()) {
+                Log.w("PaymentJournal", "unable to delete " + temp);
+            }
+            throw e;
+        }
+        tempFile.close();
+
+        if (!temp.renameTo(file)) {
+            // some platforms can't replace a file which is open
+            closeFile();
+            if (!(file.delete() && temp.renameTo(file))) {
+                throw new IOException("unable to replace " + file + " with " + temp);
+            }
+        }
+
+        RandomAccessFile newFile = new RandomAccessFile(file, "rw");
+        FileChannel newChannel = newFile.getChannel();
+        try {
+            newChannel.position(newChannel.size());
+        } catch (IOException e) {
+            newFile.close();
+            throw e;
+        }
+        closeFile();
+        randomAccessFile = newFile;
+        channel = newChannel;
+    }
+
+    /**
+     * Closes the journal file if it is open. Must be called while holding {@link #fileLock}.
+     */
+    private void closeFile() throws IOException {
+        if (randomAccessFile != null) {
+            RandomAccessFile current = randomAccessFile;
+            randomAccessFile = null;
+            channel = null;
+            current.close();
+        }
+    }
+
+    /**
+     * Factory of payment processes used for recovery.
+     */
+    public interface ProcessFactory {
+
+        /**
+         * @param processId id of the process being recovered
+         * @return new payment process
+         */
+        PaymentProcess createPaymentProcess(String processId);
+
+        /**
+         * @param processId id of the process being recovered
+         * @return new external payment process
+         */
+        ExternalPaymentProcess createExternalPaymentProcess(String processId);
+    }
+
+    /**
+     * Unfinished process recorded in the journal.
+     */
+    public static final class Entry {
+
+        /**
+         * Id of the process.
+         */
+        public final String processId;
+
+        final int kind;
+        final BasePaymentProcess.State state;
+        final byte[] savedState;
+
+        Entry(String processId, int kind, BasePaymentProcess.State state, byte[] savedState) {
+            this.processId = processId;
+            this.kind = kind;
+            this.state = state;
+            this.savedState = savedState;
+        }
+
+        /**
+         * @return {@code true} if the process is {@link ExternalPaymentProcess}
+         */
+        public boolean isExternalPayment() {
+            return kind == KIND_EXTERNAL_PAYMENT;
+        }
+
+        /**
+         * @return saved state of {@link PaymentProcess}
+         * @throws IllegalStateException if the process is external payment process
+         */
+        public PaymentProcess.SavedState getPaymentState() {
+            if (kind != KIND_PAYMENT) {
+                throw new IllegalStateException("not a payment process: " + processId);
+            }
+            return SavedStateCodec.decodePaymentState(savedState);
+        }
+
+        /**
+         * @return saved state of {@link ExternalPaymentProcess}
+         * @throws IllegalStateException if the process is payment process
+         */
+        public ExternalPaymentProcess.SavedState getExternalPaymentState() {
+            if (kind != KIND_EXTERNAL_PAYMENT) {
+                throw new IllegalStateException("not an external payment process: " + processId);
+            }
+            return SavedStateCodec.decodeExternalPaymentState(savedState);
+        }
+
+        @Override
+        public String toString() {
+            return "Entry{" +
+                    "processId='" + processId + '\'' +
+                    ", external=" + isExternalPayment() +
+                    ", state=" + state +
+                    '}';
+        }
+    }
+}
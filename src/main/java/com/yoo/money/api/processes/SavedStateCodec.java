@@ -0,0 +1,491 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2020 NBCO YooMoney LLC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.yoo.money.api.processes;
+
+import com.yoo.money.api.methods.payment.BaseProcessPayment;
+import com.yoo.money.api.methods.payment.BaseRequestPayment;
+import com.yoo.money.api.methods.payment.ProcessExternalPayment;
+import com.yoo.money.api.methods.payment.ProcessPayment;
+import com.yoo.money.api.methods.payment.RequestExternalPayment;
+import com.yoo.money.api.methods.payment.RequestPayment;
+import com.yoo.money.api.model.AccountStatus;
+import com.yoo.money.api.model.AccountType;
+import com.yoo.money.api.model.Card;
+import com.yoo.money.api.model.CardBrand;
+import com.yoo.money.api.model.DigitalGoods;
+import com.yoo.money.api.model.Error;
+import com.yoo.money.api.model.ExternalCard;
+import com.yoo.money.api.model.Fees;
+import com.yoo.money.api.model.Good;
+import com.yoo.money.api.model.Wallet;
+import com.yoo.money.api.util.BinaryInput;
+import com.yoo.money.api.util.BinaryOutput;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static com.yoo.money.api.util.Common.checkNotNull;
+
+/**
+ * Compact binary representation of payment processes' saved states. Encoded state contains the
+ * flags of the process and all fields of request and process payments (request id, statuses,
+ * errors, ACS parameters, next retry, money sources, digital goods, etc.), so a process can be
+ * checkpointed on every {@link IPaymentProcess#proceed()} and restored on another node.
+ * <p/>
+ * Encoded state starts with a magic number, a version and a kind of the state. Enum constants are
+ * stored by names.
+ */
+public final class SavedStateCodec {
+
+    private static final int MAGIC = 0x5053;
+    private static final int VERSION = 1;
+
+    private static final int KIND_PAYMENT = 1;
+    private static final int KIND_EXTERNAL_PAYMENT = 2;
+    private static final int KIND_EXTENDED_PAYMENT = 3;
+
+    private SavedStateCodec() {
+    }
+
+    /**
+     * Encodes saved state of {@link PaymentProcess}.
+     *
+     * @param savedState saved state
+     * @return binary representation
+     */
+    public static byte[] encode(PaymentProcess.SavedState savedState) {
+        BinaryOutput output = header(KIND_PAYMENT);
+        writePaymentState(output, checkNotNull(savedState, "savedState"));
+        return output.toByteArray();
+    }
+
+    /**
+     * Encodes saved state of {@link ExternalPaymentProcess}.
+     *
+     * @param savedState saved state
+     * @return binary representation
+     */
+    public static byte[] encode(ExternalPaymentProcess.SavedState savedState) {
+        BinaryOutput output = header(KIND_EXTERNAL_PAYMENT);
+        writeExternalPaymentState(output, checkNotNull(savedState, "savedState"));
+        return output.toByteArray();
+    }
+
+    /**
+     * Encodes saved state of {@link ExtendedPaymentProcess}.
+     *
+     * @param savedState saved state
+     * @return binary representation
+     */
+    public static byte[] encode(ExtendedPaymentProcess.SavedState savedState) {
+        checkNotNull(savedState, "savedState");
+        BinaryOutput output = header(KIND_EXTENDED_PAYMENT);
+        output.writeVarInt(savedState.getFlags());
+        writePaymentState(output, savedState.paymentProcessSavedState);
+        writeExternalPaymentState(output, savedState.externalPaymentProcessSavedState);
+        return output.toByteArray();
+    }
+
+    /**
+     * Decodes saved state of {@link PaymentProcess}.
+     *
+     * @param bytes binary representation
+     * @return saved state
+     * @throws IllegalArgumentException if bytes are malformed or represent another kind of state
+     */
+    public static PaymentProcess.SavedState decodePaymentState(byte[] bytes) {
+        BinaryInput input = readHeader(bytes, KIND_PAYMENT);
+        return checkEnd(input, readPaymentState(input));
+    }
+
+    /**
+     * Decodes saved state of {@link ExternalPaymentProcess}.
+     *
+     * @param bytes binary representation
+     * @return saved state
+     * @throws IllegalArgumentException if bytes are malformed or represent another kind of state
+     */
+    public static ExternalPaymentProcess.SavedState decodeExternalPaymentState(byte[] bytes) {
+        BinaryInput input = readHeader(bytes, KIND_EXTERNAL_PAYMENT);
+        return checkEnd(input, readExternalPaymentState(input));
+    }
+
+    /**
+     * Decodes saved state of {@link ExtendedPaymentProcess}.
+     *
+     * @param bytes binary representation
+     * @return saved state
+     * @throws IllegalArgumentException if bytes are malformed or represent another kind of state
+     */
+    public static ExtendedPaymentProcess.SavedState decodeExtendedPaymentState(byte[] bytes) {
+        BinaryInput input = readHeader(bytes, KIND_EXTENDED_PAYMENT);
+        int flags = input.readVarInt();
+        PaymentProcess.SavedState paymentState = readPaymentState(input);
+        ExternalPaymentProcess.SavedState externalPaymentState = readExternalPaymentState(input);
+        return checkEnd(input, new ExtendedPaymentProcess.SavedState(paymentState, externalPaymentState, flags));
+    }
+
+    private static BinaryOutput header(int kind) {
+        return new BinaryOutput(128)
+                .writeByte(MAGIC >> 8)
+                .writeByte(MAGIC)
+                .writeVarInt(VERSION)
+                .writeByte(kind);
+    }
+
+    private static BinaryInput readHeader(byte[] bytes, int kind) {
+        BinaryInput input = new BinaryInput(checkNotNull(bytes, "bytes"));
+        int magic = (input.readByte() & 0xFF) << 8 | (input.readByte() & 0xFF);
+        if (magic != MAGIC) {
+            throw new IllegalArgumentException("not a saved state");
+        }
+        int version = input.readVarInt();
+        if (version != VERSION) {
+            throw new IllegalArgumentException("unsupported version: " + version);
+        }
+        int actualKind = input.readByte();
+        if (actualKind != kind) {
+            throw new IllegalArgumentException("unexpected kind of saved state: " + actualKind);
+        }
+        return input;
+    }
+
+    private static <T> T checkEnd(BinaryInput input, T value) {
+        if (input.hasRemaining()) {
+            throw new IllegalArgumentException("unexpected trailing bytes");
+        }
+        return value;
+    }
+
+    // payment process
+
+    private static void writePaymentState(BinaryOutput output, PaymentProcess.SavedState savedState) {
+        output.writeVarInt(savedState.getFlags());
+        RequestPayment requestPayment = savedState.getRequestPayment();
+        output.writeBoolean(requestPayment != null);
+        if (requestPayment != null) {
+            writeBaseRequestPayment(output, requestPayment);
+            writeWalletMoneySource(output, requestPayment.moneySource);
+            output.writeBigDecimal(requestPayment.balance);
+            writeEnum(output, requestPayment.recipientAccountStatus);
+            writeEnum(output, requestPayment.recipientAccountType);
+            output.writeString(requestPayment.protectionCode);
+            output.writeString(requestPayment.accountUnblockUri);
+            output.writeString(requestPayment.extActionUri);
+            writeNullableBoolean(output, requestPayment.multipleRecipientsFound);
+        }
+        ProcessPayment processPayment = savedState.getProcessPayment();
+        output.writeBoolean(processPayment != null);
+        if (processPayment != null) {
+            writeBaseProcessPayment(output, processPayment);
+            output.writeString(processPayment.paymentId);
+            output.writeBigDecimal(processPayment.balance);
+            output.writeString(processPayment.payer);
+            output.writeString(processPayment.payee);
+            output.writeBigDecimal(processPayment.creditAmount);
+            output.writeString(processPayment.accountUnblockUri);
+            output.writeString(processPayment.payeeUid);
+            output.writeString(processPayment.holdForPickupLink);
+            writeDigitalGoods(output, processPayment.digitalGoods);
+        }
+    }
+
+    private static PaymentProcess.SavedState readPaymentState(BinaryInput input) {
+        int flags = input.readVarInt();
+        RequestPayment requestPayment = null;
+        if (input.readBoolean()) {
+            RequestPayment.Builder builder = new RequestPayment.Builder();
+            readBaseRequestPayment(input, builder);
+            builder.setMoneySources(readWalletMoneySource(input))
+                    .setBalance(input.readBigDecimal())
+                    .setRecipientAccountStatus(readEnum(input, AccountStatus.class))
+                    .setRecipientAccountType(readEnum(input, AccountType.class))
+                    .setProtectionCode(input.readString())
+                    .setAccountUnblockUri(input.readString())
+                    .setExtActionUri(input.readString())
+                    .setMultipleRecipientsFound(readNullableBoolean(input));
+            requestPayment = builder.create();
+        }
+        ProcessPayment processPayment = null;
+        if (input.readBoolean()) {
+            ProcessPayment.Builder builder = new ProcessPayment.Builder();
+            readBaseProcessPayment(input, builder);
+            builder.setPaymentId(input.readString())
+                    .setBalance(input.readBigDecimal())
+                    .setPayer(input.readString())
+                    .setPayee(input.readString())
+                    .setCreditAmount(input.readBigDecimal())
+                    .setAccountUnblockUri(input.readString())
+                    .setPayeeUid(input.readString())
+                    .setHoldForPickupLink(input.readString())
+                    .setDigitalGoods(readDigitalGoods(input));
+            processPayment = builder.create();
+        }
+        return new PaymentProcess.SavedState(requestPayment, processPayment, flags);
+    }
+
+    // external payment process
+
+    private static void writeExternalPaymentState(BinaryOutput output,
+                                                  ExternalPaymentProcess.SavedState savedState) {
+        output.writeVarInt(savedState.getFlags());
+        RequestExternalPayment requestPayment = savedState.getRequestPayment();
+        output.writeBoolean(requestPayment != null);
+        if (requestPayment != null) {
+            writeBaseRequestPayment(output, requestPayment);
+        }
+        ProcessExternalPayment processPayment = savedState.getProcessPayment();
+        output.writeBoolean(processPayment != null);
+        if (processPayment != null) {
+            writeBaseProcessPayment(output, processPayment);
+            ExternalCard externalCard = processPayment.externalCard;
+            output.writeBoolean(externalCard != null);
+            if (externalCard != null) {
+                writeEnum(output, externalCard.type);
+                output.writeString(externalCard.panFragment);
+                output.writeString(externalCard.fundingSourceType);
+                output.writeString(externalCard.moneySourceToken);
+            }
+        }
+    }
+
+    private static ExternalPaymentProcess.SavedState readExternalPaymentState(BinaryInput input) {
+        int flags = input.readVarInt();
+        RequestExternalPayment requestPayment = null;
+        if (input.readBoolean()) {
+            RequestExternalPayment.Builder builder = new RequestExternalPayment.Builder();
+            readBaseRequestPayment(input, builder);
+            requestPayment = builder.create();
+        }
+        ProcessExternalPayment processPayment = null;
+        if (input.readBoolean()) {
+            ProcessExternalPayment.Builder builder = new ProcessExternalPayment.Builder();
+            readBaseProcessPayment(input, builder);
+            if (input.readBoolean()) {
+                builder.setExternalCard(new ExternalCard.Builder()
+                        .setType(readEnum(input, CardBrand.class))
+                        .setPanFragment(input.readString())
+                        .setFundingSourceType(input.readString())
+                        .setMoneySourceToken(input.readString())
+                        .create());
+            }
+            processPayment = builder.create();
+        }
+        return new ExternalPaymentProcess.SavedState(requestPayment, processPayment, flags);
+    }
+
+    // common parts
+
+    private static void writeBaseRequestPayment(BinaryOutput output, BaseRequestPayment requestPayment) {
+        writeEnum(output, requestPayment.status);
+        writeEnum(output, requestPayment.error);
+        output.writeString(requestPayment.requestId);
+        output.writeBigDecimal(requestPayment.contractAmount);
+        output.writeString(requestPayment.title);
+        Fees fees = requestPayment.fees;
+        output.writeBoolean(fees != null);
+        if (fees != null) {
+            output.writeBigDecimal(fees.service);
+            output.writeBigDecimal(fees.counterparty);
+        }
+    }
+
+    private static void readBaseRequestPayment(BinaryInput input, BaseRequestPayment.Builder builder) {
+        builder.setStatus(readEnum(input, BaseRequestPayment.Status.class))
+                .setError(readEnum(input, Error.class))
+                .setRequestId(input.readString())
+                .setContractAmount(input.readBigDecimal())
+                .setTitle(input.readString());
+        if (input.readBoolean()) {
+            builder.setFees(new Fees(input.readBigDecimal(), input.readBigDecimal()));
+        }
+    }
+
+    private static void writeBaseProcessPayment(BinaryOutput output, BaseProcessPayment processPayment) {
+        writeEnum(output, processPayment.status);
+        writeEnum(output, processPayment.error);
+        output.writeString(processPayment.invoiceId);
+        output.writeString(processPayment.acsUri);
+        Map<String, String> acsParams = processPayment.acsParams;
+        if (acsParams == null) {
+            output.writeVarInt(0);
+        } else {
+            output.writeVarInt(acsParams.size() + 1);
+            for (Map.Entry<String, String> entry : acsParams.entrySet()) {
+                output.writeString(entry.getKey());
+                output.writeString(entry.getValue());
+            }
+        }
+        output.writeSignedVarLong(processPayment.nextRetry);
+    }
+
+    private static void readBaseProcessPayment(BinaryInput input, BaseProcessPayment.Builder builder) {
+        builder.setStatus(readEnum(input, BaseProcessPayment.Status.class))
+                .setError(readEnum(input, Error.class))
+                .setInvoiceId(input.readString())
+                .setAcsUri(input.readString());
+        int size = readNullableCount(input);
+        if (size >= 0) {
+            Map<String, String> acsParams = new HashMap<>();
+            for (int i = 0; i < size; ++i) {
+                acsParams.put(input.readString(), input.readString());
+            }
+            builder.setAcsParams(acsParams);
+        }
+        builder.setNextRetry(input.readSignedVarLong());
+    }
+
+    private static void writeWalletMoneySource(BinaryOutput output, RequestPayment.MoneySource moneySource) {
+        output.writeBoolean(moneySource != null);
+        if (moneySource == null) {
+            return;
+        }
+        Wallet wallet = moneySource.wallet;
+        writeNullableBoolean(output, wallet == null ? null : wallet.allowed);
+        RequestPayment.Cards cards = moneySource.cards;
+        output.writeBoolean(cards != null);
+        if (cards != null) {
+            output.writeBoolean(cards.allowed);
+            output.writeBoolean(cards.cscRequired);
+            if (cards.items == null) {
+                output.writeVarInt(0);
+            } else {
+                output.writeVarInt(cards.items.size() + 1);
+                for (Card card : cards.items) {
+                    output.writeString(card.id);
+                    output.writeString(card.panFragment);
+                    writeEnum(output, card.type);
+                }
+            }
+        }
+    }
+
+    private static RequestPayment.MoneySource readWalletMoneySource(BinaryInput input) {
+        if (!input.readBoolean()) {
+            return null;
+        }
+        Boolean walletAllowed = readNullableBoolean(input);
+        Wallet wallet = walletAllowed == null ? null : new Wallet(walletAllowed);
+        RequestPayment.Cards cards = null;
+        if (input.readBoolean()) {
+            boolean allowed = input.readBoolean();
+            boolean cscRequired = input.readBoolean();
+            int size = readNullableCount(input);
+            List<Card> items = null;
+            if (size >= 0) {
+                items = new ArrayList<>(Math.min(size, 16));
+                for (int i = 0; i < size; ++i) {
+                    items.add(new Card.Builder()
+                            .setId(input.readString())
+                            .setPanFragment(input.readString())
+                            .setType(readEnum(input, CardBrand.class))
+                            .create());
+                }
+            }
+            cards = new RequestPayment.Cards(allowed, cscRequired, items);
+        }
+        return new RequestPayment.MoneySource(wallet, cards);
+    }
+
+    private static void writeDigitalGoods(BinaryOutput output, DigitalGoods digitalGoods) {
+        output.writeBoolean(digitalGoods != null);
+        if (digitalGoods != null) {
+            writeGoods(output, digitalGoods.article);
+            writeGoods(output, digitalGoods.bonus);
+        }
+    }
+
+    private static DigitalGoods readDigitalGoods(BinaryInput input) {
+        return input.readBoolean() ? new DigitalGoods(readGoods(input), readGoods(input)) : null;
+    }
+
+    private static void writeGoods(BinaryOutput output, List<Good> goods) {
+        if (goods == null) {
+            output.writeVarInt(0);
+            return;
+        }
+        output.writeVarInt(goods.size() + 1);
+        for (Good good : goods) {
+            output.writeString(good.serial);
+            output.writeString(good.secret);
+            output.writeString(good.secretUrl);
+            output.writeString(good.merchantArticleId);
+        }
+    }
+
+    private static List<Good> readGoods(BinaryInput input) {
+        int size = readNullableCount(input);
+        if (size < 0) {
+            return null;
+        }
+        List<Good> goods = new ArrayList<>(Math.min(size, 16));
+        for (int i = 0; i < size; ++i) {
+            goods.add(new Good(input.readString(), input.readString(), input.readString(), input.readString()));
+        }
+        return goods;
+    }
+
+    private static void writeNullableBoolean(BinaryOutput output, Boolean value) {
+        output.writeByte(value == null ? 0 : value ? 2 : 1);
+    }
+
+    /**
+     * Reads size of a collection which was written as {@code size + 1}, or {@code 0} for
+     * {@code null}.
+     *
+     * @return size or {@code -1} if the collection is {@code null}
+     */
+    private static int readNullableCount(BinaryInput input) {
+        int count = input.readVarInt() - 1;
+        // every element takes at least one byte
+        if (count < -1 || count > input.remaining()) {
+            throw new IllegalArgumentException("malformed count: " + count);
+        }
+        return count;
+    }
+
+    private static Boolean readNullableBoolean(BinaryInput input) {
+        switch (input.readByte()) {
+            case 0:
+                return null;
+            case 1:
+                return false;
+            case 2:
+                return true;
+            default:
+                throw new IllegalArgumentException("malformed boolean");
+        }
+    }
+
+    private static void writeEnum(BinaryOutput output, Enum<?> value) {
+        output.writeString(value == null ? null : value.name());
+    }
+
+    private static <T extends Enum<T>> T readEnum(BinaryInput input, Class<T> type) {
+        String name = input.readString();
+        return name == null ? null : Enum.valueOf(type, name);
+    }
+}
@@ -0,0 +1,94 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2020 NBCO YooMoney LLC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.yoo.money.api.time;
+
+import java.util.TimeZone;
+
+import static com.yoo.money.api.util.Numbers.floorDiv;
+
+/**
+ * Converts dates of proleptic Gregorian calendar to days since epoch and back arithmetically, without
+ * {@link java.util.Calendar}.
+ *
+ * @see <a href="http://howardhinnant.github.io/date_algorithms.html">date algorithms</a>
+ */
+public final class CivilDays {
+
+    /**
+     * Milliseconds in a day.
+     */
+    public static final long MILLIS_PER_DAY = 24L * 60L * 60L * 1000L;
+
+    private CivilDays() {
+        // prevents instantiating of this class
+    }
+
+    /**
+     * Converts date to days since epoch.
+     *
+     * @param year year
+     * @param month month from 1 to 12
+     * @param day day of month from 1
+     * @return days since January 1, 1970
+     */
+    public static long daysFromCivil(int year, int month, int day) {
+        long y = month <= 2 ? year - 1L : year;
+        long era = floorDiv(y, 400);
+        int yearOfEra = (int) (y - era * 400);
+        int dayOfYear = (153 * (month > 2 ? month - 3 : month + 9) + 2) / 5 + day - 1;
+        int dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+        return era * 146097L + dayOfEra - 719468L;
+    }
+
+    /**
+     * Converts days since epoch to date.
+     *
+     * @param epochDay days since January 1, 1970
+     * @return year, month from 1 to 12 and day of month
+     */
+    public static int[] civilFromDays(long epochDay) {
+        long z = epochDay + 719468L;
+        long era = floorDiv(z, 146097L);
+        int dayOfEra = (int) (z - era * 146097L);
+        int yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36524 - dayOfEra / 146096) / 365;
+        int dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+        int shiftedMonth = (5 * dayOfYear + 2) / 153;
+        int day = dayOfYear - (153 * shiftedMonth + 2) / 5 + 1;
+        int month = shiftedMonth < 10 ? shiftedMonth + 3 : shiftedMonth - 9;
+        int year = (int) (yearOfEra + era * 400) + (month <= 2 ? 1 : 0);
+        return new int[] { year, month, day };
+    }
+
+    /**
+     * Gets local day of an instant.
+     *
+     * @param millis milliseconds since epoch
+     * @param timeZone time zone
+     * @return days since January 1, 1970 in the time zone
+     */
+    public static long localDay(long millis, TimeZone timeZone) {
+        return floorDiv(millis + timeZone.getOffset(millis), MILLIS_PER_DAY);
+    }
+}
@@ -71,9 +71,9 @@ public final class DateTime implements Comparable<DateTime> {
      * @return an instance of this class with specified time and timezone
      */
     public static DateTime from(long millis, TimeZone timeZone) {
-        Calendar calendar = Calendar.getInstance();
+        // time zone is set first, so calendar fields are computed for it
+        Calendar calendar = Calendar.getInstance(timeZone);
         calendar.setTimeInMillis(millis);
-        calendar.setTimeZone(timeZone);
         return new DateTime(calendar);
     }
 
@@ -25,19 +25,58 @@
 package com.yoo.money.api.time;
 
 import com.google.gson.internal.bind.util.ISO8601Utils;
+import com.yoo.money.api.util.Numbers;
 
+import java.nio.CharBuffer;
 import java.text.ParseException;
 import java.util.Calendar;
 import java.util.GregorianCalendar;
 import java.util.TimeZone;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
 import static com.yoo.money.api.util.Common.checkNotNull;
 
 /**
  * Simple utility class to parse and format ISO 8601 dates.
+ * <p>
+ * Parsing works directly on characters of the source and computes epoch milliseconds arithmetically for dates of
+ * Gregorian calendar with explicit time zone offset. Time zones for offsets are cached and cloned for each returned
+ * {@link DateTime}, because {@link TimeZone} is mutable. Formatting appends characters to a {@link StringBuilder}
+ * which can be reused by caller.
  */
 public final class Iso8601Format {
 
+    private static final TimeZone GMT = TimeZone.getTimeZone("GMT");
+
+    private static final int MAX_OFFSET_MINUTES = 18 * 60;
+    private static final AtomicReferenceArray<TimeZone> OFFSET_TIME_ZONES =
+            new AtomicReferenceArray<>(2 * MAX_OFFSET_MINUTES + 1);
+
+    private static final long MILLIS_PER_SECOND = 1000L;
+    private static final long MILLIS_PER_MINUTE = 60L * MILLIS_PER_SECOND;
+    private static final long MILLIS_PER_HOUR = 60L * MILLIS_PER_MINUTE;
+    private static final long MILLIS_PER_DAY = 24L * MILLIS_PER_HOUR;
+
+    /**
+     * First year which is completely in Gregorian calendar (Julian calendar is used by {@link GregorianCalendar}
+     * before October 15, 1582).
+     */
+    private static final int FIRST_GREGORIAN_YEAR = 1583;
+
+    /**
+     * 1583-01-01T00:00:00.000 and 10000-01-01T00:00:00.000 in local milliseconds. Dates outside of this range are
+     * formatted using {@link Calendar}.
+     */
+    private static final long MIN_LOCAL_MILLIS = -12212553600000L;
+    private static final long MAX_LOCAL_MILLIS = 253402300800000L;
+
+    private static final ThreadLocal<StringBuilder> BUILDER = new ThreadLocal<StringBuilder>() {
+        @Override
+        protected StringBuilder initialValue() {
+            return new StringBuilder(29);
+        }
+    };
+
     private Iso8601Format() {
     }
 
@@ -49,9 +88,35 @@ public final class Iso8601Format {
      * @throws ParseException if parsing is not possible
      */
     public static DateTime parse(String date) throws ParseException {
+        return parse((CharSequence) date);
+    }
+
+    /**
+     * Parses characters of ISO 8601 date.
+     *
+     * @param date characters to parse
+     * @return parsed date time
+     * @throws ParseException if parsing is not possible
+     */
+    public static DateTime parse(CharSequence date) throws ParseException {
         return parse(date, TimeZone.getDefault());
     }
 
+    /**
+     * Parses characters of ISO 8601 date.
+     *
+     * @param chars an array of characters
+     * @param offset offset of the first character of a date in the array
+     * @param length number of characters of a date
+     * @param defaultTimezone a time zone which will be used if date doesn't contain time zone
+     * @return parsed date time
+     * @throws ParseException if parsing is not possible
+     */
+    public static DateTime parse(char[] chars, int offset, int length, TimeZone defaultTimezone)
+            throws ParseException {
+        return parse(CharBuffer.wrap(checkNotNull(chars, "chars"), offset, length), defaultTimezone);
+    }
+
     /**
      * Parses string of ISO 8601 date.
      *
@@ -61,6 +126,20 @@ public final class Iso8601Format {
      * @throws ParseException if parsing is not possible
      */
     public static DateTime parse(String date, TimeZone defaultTimezone) throws ParseException {
+        return parse((CharSequence) date, defaultTimezone);
+    }
+
+    /**
+     * Parses characters of ISO 8601 date.
+     *
+     * @param date characters to parse
+     * @param defaultTimezone a time zone which will be used if date doesn't contain time zone
+     * @return parsed date time
+     * @throws ParseException if parsing is not possible
+     */
+    public static DateTime parse(CharSequence date, TimeZone defaultTimezone) throws ParseException {
+        checkNotNull(date, "date");
+        final int length = date.length();
         int position = 0;
 
         int year = parseInt(date, position, position += 4);
@@ -68,7 +147,7 @@ public final class Iso8601Format {
             ++position;
         }
 
-        boolean hasMonth = position < date.length();
+        boolean hasMonth = position < length;
         if (!hasMonth) {
             return DateTime.from(year, 0, 1, 0, 0, defaultTimezone);
         }
@@ -78,7 +157,7 @@ public final class Iso8601Format {
             ++position;
         }
 
-        boolean hasDay = position < date.length();
+        boolean hasDay = position < length;
         if (!hasDay) {
             return DateTime.from(year, monthOfYear, 1, 0, 0, defaultTimezone);
         }
@@ -102,17 +181,17 @@ public final class Iso8601Format {
 
         int seconds = 0;
         int milliseconds = 0;
-        if (position < date.length() && !isTimezoneIndicator(date, position)) {
+        if (position < length && !isTimezoneIndicator(date.charAt(position))) {
             seconds = parseInt(date, position, position += 2);
             if (seconds > 59 && seconds < 63) seconds = 59; // truncate up to 3 leap seconds
 
             if (checkPosition(date, position, '.')) {
                 ++position;
                 int endPosition = indexOfNonDigit(date, position + 1); // assume at least one digit
-                endPosition = Math.min(position + 3, endPosition);
-                milliseconds = parseInt(date, position, endPosition);
+                int digits = Math.min(3, endPosition - position);
+                milliseconds = parseInt(date, position, position + digits);
 
-                switch (endPosition - position) {
+                switch (digits) {
                     case 2:
                         milliseconds *= 10;
                         break;
@@ -121,39 +200,45 @@ public final class Iso8601Format {
                         break;
                 }
 
+                // fractions smaller than a millisecond are truncated
                 position = endPosition;
             }
         }
 
-        if (position > date.length()) {
-            throw new ParseException("no timezone indicator", position);
-        }
-
-        TimeZone timeZone = null;
-        char timeZoneChar = date.charAt(position);
-
-        if (timeZoneChar == 'Z') {
-            timeZone = TimeZone.getTimeZone("GMT");
-        } else if (timeZoneChar == '+' || timeZoneChar == '-') {
-            String timeZoneOffset = date.substring(position);
-
-            timeZoneOffset = timeZoneOffset.length() >= 5 ? timeZoneOffset : timeZoneOffset + "00";
-
-            if ("+0000".equals(timeZoneOffset) || "+00:00".equals(timeZoneOffset)) {
-                timeZone = TimeZone.getTimeZone("GMT");
+        TimeZone timeZone;
+        int offsetMinutes = 0;
+        if (position >= length) {
+            timeZone = defaultTimezone;
+        } else {
+            char timeZoneChar = date.charAt(position);
+            if (timeZoneChar == 'Z') {
+                timeZone = (TimeZone) GMT.clone();
+            } else if (timeZoneChar == '+' || timeZoneChar == '-') {
+                offsetMinutes = parseOffset(date, position + 1);
+                if (timeZoneChar == '-') {
+                    offsetMinutes = -offsetMinutes;
+                }
+                timeZone = getTimeZone(offsetMinutes);
             } else {
-                timeZone = TimeZone.getTimeZone("GMT" + timeZoneOffset);
+                throw new ParseException("invalid timezone indicator '" + timeZoneChar + "'", position);
             }
         }
 
         Calendar calendar = new GregorianCalendar(timeZone);
-        calendar.set(Calendar.YEAR, year);
-        calendar.set(Calendar.MONTH, monthOfYear);
-        calendar.set(Calendar.DAY_OF_MONTH, day);
-        calendar.set(Calendar.HOUR_OF_DAY, hour);
-        calendar.set(Calendar.MINUTE, minutes);
-        calendar.set(Calendar.SECOND, seconds);
-        calendar.set(Calendar.MILLISECOND, milliseconds);
+        if (timeZone == defaultTimezone || year < FIRST_GREGORIAN_YEAR || monthOfYear < 0 || monthOfYear > 11) {
+            // local time needs to be resolved using time zone rules or calendar's leniency
+            calendar.set(Calendar.YEAR, year);
+            calendar.set(Calendar.MONTH, monthOfYear);
+            calendar.set(Calendar.DAY_OF_MONTH, day);
+            calendar.set(Calendar.HOUR_OF_DAY, hour);
+            calendar.set(Calendar.MINUTE, minutes);
+            calendar.set(Calendar.SECOND, seconds);
+            calendar.set(Calendar.MILLISECOND, milliseconds);
+        } else {
+            calendar.setTimeInMillis(CivilDays.daysFromCivil(year, monthOfYear + 1, day) * MILLIS_PER_DAY +
+                    hour * MILLIS_PER_HOUR + (minutes - offsetMinutes) * MILLIS_PER_MINUTE +
+                    seconds * MILLIS_PER_SECOND + milliseconds);
+        }
 
         return new DateTime(calendar);
     }
@@ -165,16 +250,64 @@ public final class Iso8601Format {
      * @return formatted string
      */
     public static String format(DateTime dateTime) {
+        StringBuilder builder = BUILDER.get();
+        builder.setLength(0);
+        return format(dateTime, builder).toString();
+    }
+
+    /**
+     * Formats date time to ISO 8601 string appending it to specified builder.
+     *
+     * @param dateTime date time to format
+     * @param builder builder to append formatted date time to
+     * @return specified builder
+     */
+    public static StringBuilder format(DateTime dateTime, StringBuilder builder) {
         Calendar calendar = checkNotNull(dateTime, "dateTime").getCalendar();
-        return ISO8601Utils.format(calendar.getTime(), true, calendar.getTimeZone());
+        checkNotNull(builder, "builder");
+
+        TimeZone timeZone = calendar.getTimeZone();
+        long millis = calendar.getTimeInMillis();
+        int offset = timeZone.getOffset(millis);
+        long localMillis = millis + offset;
+        if (localMillis < MIN_LOCAL_MILLIS || localMillis >= MAX_LOCAL_MILLIS) {
+            return builder.append(ISO8601Utils.format(calendar.getTime(), true, timeZone));
+        }
+
+        int[] date = CivilDays.civilFromDays(Numbers.floorDiv(localMillis, MILLIS_PER_DAY));
+        int millisOfDay = (int) Numbers.floorMod(localMillis, MILLIS_PER_DAY);
+        int year = date[0];
+        int month = date[1];
+        int day = date[2];
+
+        appendPadded(builder, year, 4).append('-');
+        appendPadded(builder, month, 2).append('-');
+        appendPadded(builder, day, 2).append('T');
+        appendPadded(builder, millisOfDay / (int) MILLIS_PER_HOUR, 2).append(':');
+        appendPadded(builder, millisOfDay / (int) MILLIS_PER_MINUTE % 60, 2).append(':');
+        appendPadded(builder, millisOfDay / (int) MILLIS_PER_SECOND % 60, 2).append('.');
+        appendPadded(builder, millisOfDay % (int) MILLIS_PER_SECOND, 3);
+
+        if (offset == 0) {
+            builder.append('Z');
+        } else {
+            int offsetMinutes = Math.abs(offset / (int) MILLIS_PER_MINUTE);
+            builder.append(offset < 0 ? '-' : '+');
+            appendPadded(builder, offsetMinutes / 60, 2).append(':');
+            appendPadded(builder, offsetMinutes % 60, 2);
+        }
+        return builder;
     }
 
-    private static int parseInt(String value, int begin, int end) throws ParseException {
+    private static int parseInt(CharSequence value, int begin, int end) throws ParseException {
+        if (end > value.length()) {
+            throw new ParseException("unexpected end of value", value.length());
+        }
         int result = 0;
         for (int i = begin; i < end; ++i) {
-            char c = value.charAt(i);
-            if (Character.isDigit(c)) {
-                result = result * 10 + Character.getNumericValue(c);
+            int digit = value.charAt(i) - '0';
+            if (digit >= 0 && digit <= 9) {
+                result = result * 10 + digit;
             } else {
                 throw new ParseException("unable to parse int value", begin);
             }
@@ -182,19 +315,61 @@ public final class Iso8601Format {
         return result;
     }
 
-    private static boolean checkPosition(String value, int position, char expected) {
+    private static int parseOffset(CharSequence value, int position) throws ParseException {
+        int hours = parseInt(value, position, position += 2);
+        if (checkPosition(value, position, ':')) {
+            ++position;
+        }
+        int minutes = position < value.length() ? parseInt(value, position, position + 2) : 0;
+        int offsetMinutes = hours * 60 + minutes;
+        if (offsetMinutes > MAX_OFFSET_MINUTES) {
+            throw new ParseException("timezone offset is out of range", position);
+        }
+        return offsetMinutes;
+    }
+
+    private static TimeZone getTimeZone(int offsetMinutes) {
+        if (offsetMinutes == 0) {
+            return (TimeZone) GMT.clone();
+        }
+
+        int index = offsetMinutes + MAX_OFFSET_MINUTES;
+        TimeZone timeZone = OFFSET_TIME_ZONES.get(index);
+        if (timeZone == null) {
+            int absMinutes = Math.abs(offsetMinutes);
+            StringBuilder id = new StringBuilder(9).append("GMT").append(offsetMinutes < 0 ? '-' : '+');
+            appendPadded(id, absMinutes / 60, 2).append(':');
+            appendPadded(id, absMinutes % 60, 2);
+            timeZone = TimeZone.getTimeZone(id.toString());
+            if (!OFFSET_TIME_ZONES.compareAndSet(index, null, timeZone)) {
+                timeZone = OFFSET_TIME_ZONES.get(index);
+            }
+        }
+        // cached instance is never handed out, so callers can not modify it
+        return (TimeZone) timeZone.clone();
+    }
+
+    private static StringBuilder appendPadded(StringBuilder builder, int value, int length) {
+        for (int limit = 10, i = 1; i < length; ++i, limit *= 10) {
+            if (value < limit) {
+                builder.append('0');
+            }
+        }
+        return builder.append(value);
+    }
+
+    private static boolean checkPosition(CharSequence value, int position, char expected) {
         return position < value.length() && value.charAt(position) == expected;
     }
 
-    private static boolean isTimezoneIndicator(String value, int position) {
-        char c = value.charAt(position);
+    private static boolean isTimezoneIndicator(char c) {
         return c == 'Z' || c == '+' || c == '-';
     }
 
-    private static int indexOfNonDigit(String value, int position) {
+    private static int indexOfNonDigit(CharSequence value, int position) {
         for (int i = position; i < value.length(); ++i) {
             char c = value.charAt(i);
-            if (!Character.isDigit(c)) {
+            if (c < '0' || c > '9') {
                 return i;
             }
         }
@@ -28,10 +28,9 @@ import com.google.gson.JsonArray;
 import com.google.gson.JsonDeserializer;
 import com.google.gson.JsonElement;
 import com.google.gson.JsonSerializer;
+import com.yoo.money.api.util.Utf8Reader;
 
 import java.io.InputStream;
-import java.io.InputStreamReader;
-import java.nio.charset.Charset;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
@@ -58,7 +57,9 @@ public abstract class BaseTypeAdapter<T> implements TypeAdapter<T>, JsonSerializ
 
     @Override
     public T fromJson(InputStream inputStream) {
-        return getGson().fromJson(new InputStreamReader(inputStream, Charset.forName("UTF-8")), getType());
+        try (Utf8Reader reader = new Utf8Reader(inputStream)) {
+            return getGson().fromJson(reader, getType());
+        }
     }
 
     @Override
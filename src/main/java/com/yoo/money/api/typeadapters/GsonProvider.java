@@ -40,6 +40,7 @@ public final class GsonProvider {
     static {
         BUILDER.registerTypeAdapter(DateTime.class, new DateTimeTypeAdapter());
         BUILDER.registerTypeAdapter(YearMonth.class, new YearMonthTypeAdapter());
+        BUILDER.registerTypeAdapterFactory(new WithCodeTypeAdapterFactory());
     }
 
     private static Gson gson = BUILDER.create();
@@ -0,0 +1,134 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2020 NBCO YooMoney LLC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.yoo.money.api.typeadapters;
+
+import com.google.gson.Gson;
+import com.google.gson.TypeAdapter;
+import com.google.gson.TypeAdapterFactory;
+import com.google.gson.annotations.SerializedName;
+import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import com.yoo.money.api.util.Enums;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Creates type adapters for enums which implement {@link Enums.WithCode}. Values are read straight from JSON stream
+ * by names declared by {@link SerializedName} (or names of constants if there is no annotation) and, if there is no
+ * such name, by codes using {@link Enums#parse(Enums.WithCode, String)}. Values are written the same way as GSON
+ * writes enums by default, so serialized form does not change.
+ */
+public final class WithCodeTypeAdapterFactory implements TypeAdapterFactory {
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> TypeAdapter<T> create(Gson gson, TypeToken<T> type) {
+        Class<? super T> rawType = type.getRawType();
+        if (!Enum.class.isAssignableFrom(rawType) || !Enums.WithCode.class.isAssignableFrom(rawType)) {
+            return null;
+        }
+        if (!rawType.isEnum()) {
+            // constant with a body
+            rawType = rawType.getSuperclass();
+        }
+        if (rawType.getEnumConstants().length == 0) {
+            return null;
+        }
+        return (TypeAdapter<T>) newTypeAdapter(rawType);
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static TypeAdapter<?> newTypeAdapter(Class<?> type) {
+        // type is checked to be an enum implementing WithCode, but it can not be expressed without a raw type
+        return new WithCodeTypeAdapter((Class) type);
+    }
+
+    private static final class WithCodeTypeAdapter<T extends Enum<T> & Enums.WithCode<T>> extends TypeAdapter<T> {
+
+        private final T prototype;
+        private final Map<String, T> serializedNames;
+        private final Map<T, String> names;
+
+        WithCodeTypeAdapter(Class<T> type) {
+            T[] constants = type.getEnumConstants();
+            this.prototype = constants[0];
+
+            Map<String, T> serializedNames = new HashMap<>();
+            Map<T, String> names = new EnumMap<>(type);
+            for (T constant : constants) {
+                try {
+                    SerializedName annotation = type.getField(constant.name()).getAnnotation(SerializedName.class);
+                    if (annotation == null) {
+                        putIfAbsent(serializedNames, constant.name(), constant);
+                        names.put(constant, constant.name());
+                    } else {
+                        putIfAbsent(serializedNames, annotation.value(), constant);
+                        names.put(constant, annotation.value());
+                        for (String alternate : annotation.alternate()) {
+                            putIfAbsent(serializedNames, alternate, constant);
+                        }
+                    }
+                } catch (NoSuchFieldException e) {
+                    throw new AssertionError(e);
+                }
+            }
+            this.serializedNames = Collections.unmodifiableMap(serializedNames);
+            this.names = Collections.unmodifiableMap(names);
+        }
+
+        @Override
+        public T read(JsonReader in) throws IOException {
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                return null;
+            }
+
+            String name = in.nextString();
+            T value = serializedNames.get(name);
+            return value == null ? Enums.parse(prototype, name) : value;
+        }
+
+        @Override
+        public void write(JsonWriter out, T value) throws IOException {
+            if (value == null) {
+                out.nullValue();
+            } else {
+                out.value(names.get(value));
+            }
+        }
+
+        private static <T> void putIfAbsent(Map<String, T> map, String key, T value) {
+            if (!map.containsKey(key)) {
+                map.put(key, value);
+            }
+        }
+    }
+}
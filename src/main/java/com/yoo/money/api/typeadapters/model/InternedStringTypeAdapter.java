@@ -0,0 +1,84 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2020 NBCO YooMoney LLC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.yoo.money.api.typeadapters.model;
+
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import com.yoo.money.api.util.StringPool;
+
+import java.io.IOException;
+
+/**
+ * Reads strings which are likely to repeat between objects (e.g. pattern ids and titles of operations) replacing them
+ * with canonical instances from a {@link StringPool}. Interning is disabled until a pool is set with
+ * {@link #setPool(StringPool)}.
+ */
+public final class InternedStringTypeAdapter extends TypeAdapter<String> {
+
+    private static volatile StringPool pool;
+
+    /**
+     * Sets pool to use for deserialized strings.
+     *
+     * @param pool pool of strings or {@code null} to disable interning
+     */
+    public static void setPool(StringPool pool) {
+        InternedStringTypeAdapter.pool = pool;
+    }
+
+    /**
+     * @return pool of strings or {@code null} if interning is disabled
+     */
+    public static StringPool getPool() {
+        return pool;
+    }
+
+    @Override
+    public void write(JsonWriter out, String value) throws IOException {
+        out.value(value);
+    }
+
+    @Override
+    public String read(JsonReader in) throws IOException {
+        return readString(in);
+    }
+
+    static String readString(JsonReader in) throws IOException {
+        JsonToken token = in.peek();
+        if (token == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+
+        return intern(token == JsonToken.BOOLEAN ? Boolean.toString(in.nextBoolean()) : in.nextString());
+    }
+
+    static String intern(String value) {
+        StringPool pool = InternedStringTypeAdapter.pool;
+        return pool == null ? value : pool.intern(value);
+    }
+}
@@ -0,0 +1,584 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2020 NBCO YooMoney LLC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.yoo.money.api.typeadapters.model.showcase;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonIOException;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonSyntaxException;
+import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.MalformedJsonException;
+import com.yoo.money.api.model.AllowedMoneySource;
+import com.yoo.money.api.model.Currency;
+import com.yoo.money.api.model.showcase.DefaultFee;
+import com.yoo.money.api.model.showcase.Showcase;
+import com.yoo.money.api.model.showcase.ShowcaseReference;
+import com.yoo.money.api.model.showcase.components.Component;
+import com.yoo.money.api.model.showcase.components.Parameter;
+import com.yoo.money.api.model.showcase.components.TextBlock;
+import com.yoo.money.api.model.showcase.components.containers.Container;
+import com.yoo.money.api.model.showcase.components.containers.Expand;
+import com.yoo.money.api.model.showcase.components.containers.Group;
+import com.yoo.money.api.model.showcase.components.containers.Paragraph;
+import com.yoo.money.api.model.showcase.components.uicontrols.AdditionalData;
+import com.yoo.money.api.model.showcase.components.uicontrols.Amount;
+import com.yoo.money.api.model.showcase.components.uicontrols.Checkbox;
+import com.yoo.money.api.model.showcase.components.uicontrols.Control;
+import com.yoo.money.api.model.showcase.components.uicontrols.Date;
+import com.yoo.money.api.model.showcase.components.uicontrols.Email;
+import com.yoo.money.api.model.showcase.components.uicontrols.Month;
+import com.yoo.money.api.model.showcase.components.uicontrols.Number;
+import com.yoo.money.api.model.showcase.components.uicontrols.ParameterControl;
+import com.yoo.money.api.model.showcase.components.uicontrols.Select;
+import com.yoo.money.api.model.showcase.components.uicontrols.Submit;
+import com.yoo.money.api.model.showcase.components.uicontrols.Tel;
+import com.yoo.money.api.model.showcase.components.uicontrols.Text;
+import com.yoo.money.api.model.showcase.components.uicontrols.TextArea;
+import com.yoo.money.api.typeadapters.GsonProvider;
+import com.yoo.money.api.util.Utf8Reader;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Type;
+import java.math.BigDecimal;
+import java.text.DateFormat;
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static com.yoo.money.api.util.Common.checkNotNull;
+
+/**
+ * Single-pass parser of {@link Showcase}. Reads JSON with {@link JsonReader} and fills components'
+ * builders directly without building intermediate JSON tree.
+ * <p/>
+ * Produces the same result as {@link ShowcaseTypeAdapter} which is used for serialization.
+ */
+public final class ShowcaseReader {
+
+    private static final Type MONEY_SOURCES_TYPE = new TypeToken<List<AllowedMoneySource>>() {}.getType();
+    private static final Type BONUS_POINTS_TYPE =
+            new TypeToken<List<ShowcaseReference.BonusOperationType>>() {}.getType();
+
+    private ShowcaseReader() {
+    }
+
+    /**
+     * Reads showcase from UTF-8 encoded stream.
+     *
+     * @param inputStream input stream
+     * @return showcase
+     * @throws JsonParseException if showcase can not be read
+     */
+    public static Showcase read(InputStream inputStream) {
+        Gson gson = GsonProvider.getGson();
+        try (Utf8Reader utf8Reader = new Utf8Reader(checkNotNull(inputStream, "inputStream"))) {
+            JsonReader reader = gson.newJsonReader(utf8Reader);
+            // same as Gson.fromJson(Reader, Type) used by other type adapters
+            reader.setLenient(true);
+            return read(reader, gson);
+        } catch (MalformedJsonException | IllegalStateException | NumberFormatException e) {
+            throw new JsonSyntaxException(e);
+        } catch (IOException e) {
+            throw new JsonIOException(e);
+        }
+    }
+
+    /**
+     * Reads showcase from JSON reader.
+     *
+     * @param reader JSON reader positioned at showcase object
+     * @return showcase
+     * @throws IOException if reading fails
+     */
+    public static Showcase read(JsonReader reader) throws IOException {
+        return read(checkNotNull(reader, "reader"), GsonProvider.getGson());
+    }
+
+    private static Showcase read(JsonReader reader, Gson gson) throws IOException {
+        Showcase.Builder builder = new Showcase.Builder();
+        List<AllowedMoneySource> moneySources = null;
+        List<Showcase.Error> errors = null;
+        List<ShowcaseReference.BonusOperationType> bonusPoints = null;
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case "title":
+                    builder.setTitle(nextString(reader));
+                    break;
+                case "hidden_fields":
+                    builder.setHiddenFields(nextStringMap(reader));
+                    break;
+                case "form":
+                    builder.setForm(nextGroup(reader, gson));
+                    break;
+                case "money_source":
+                    moneySources = gson.fromJson(reader, MONEY_SOURCES_TYPE);
+                    break;
+                case "error":
+                    errors = nextErrors(reader);
+                    break;
+                case "bonus_points":
+                    bonusPoints = gson.fromJson(reader, BONUS_POINTS_TYPE);
+                    break;
+                default:
+                    reader.skipValue();
+            }
+        }
+        reader.endObject();
+
+        return builder.setMoneySources(toEmptyListIfNull(moneySources))
+                .setErrors(toEmptyListIfNull(errors))
+                .setBonusPoints(toEmptyListIfNull(bonusPoints))
+                .create();
+    }
+
+    /**
+     * Reads array of components as a {@link Group} with default layout.
+     */
+    private static Group nextGroup(JsonReader reader, Gson gson) throws IOException {
+        if (reader.peek() == JsonToken.NULL) {
+            reader.nextNull();
+            return null;
+        }
+        Group.Builder builder = new Group.Builder();
+        reader.beginArray();
+        while (reader.hasNext()) {
+            Object item = nextItem(reader, gson);
+            if (item instanceof Component) {
+                builder.addItem((Component) item);
+            }
+        }
+        reader.endArray();
+        return builder.create();
+    }
+
+    /**
+     * Reads item of a container: a component, a text block or a text block with link.
+     *
+     * @return item or {@code null} if it is unknown
+     */
+    private static Object nextItem(JsonReader reader, Gson gson) throws IOException {
+        switch (reader.peek()) {
+            case BEGIN_OBJECT:
+                return nextComponent(reader, gson);
+            case NULL:
+                reader.nextNull();
+                return null;
+            default:
+                return new TextBlock(reader.nextString());
+        }
+    }
+
+    private static Object nextComponent(JsonReader reader, Gson gson) throws IOException {
+        // 'type' member is not guaranteed to be the first one, so members are collected before
+        // a builder is chosen
+        Members members = new Members();
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+            switch (name) {
+                case "items":
+                    members.items = nextItems(reader, gson);
+                    break;
+                case "options":
+                    members.options = nextOptions(reader, gson);
+                    break;
+                case "fee":
+                    members.fee = gson.fromJson(reader, DefaultFee.class);
+                    break;
+                case "readonly":
+                    members.readonly = nextBoolean(reader);
+                    break;
+                case "required":
+                    members.required = nextBoolean(reader);
+                    break;
+                case "checked":
+                    members.checked = nextBoolean(reader);
+                    break;
+                case "minlength":
+                    members.minLength = nextInt(reader);
+                    break;
+                case "maxlength":
+                    members.maxLength = nextInt(reader);
+                    break;
+                default:
+                    if (reader.peek() == JsonToken.BEGIN_OBJECT || reader.peek() == JsonToken.BEGIN_ARRAY) {
+                        reader.skipValue();
+                    } else {
+                        members.strings.put(name, nextString(reader));
+                    }
+            }
+        }
+        reader.endObject();
+        return members.create();
+    }
+
+    private static List<Object> nextItems(JsonReader reader, Gson gson) throws IOException {
+        List<Object> items = new ArrayList<>();
+        reader.beginArray();
+        while (reader.hasNext()) {
+            Object item = nextItem(reader, gson);
+            if (item != null) {
+                items.add(item);
+            }
+        }
+        reader.endArray();
+        return items;
+    }
+
+    private static List<Select.Option> nextOptions(JsonReader reader, Gson gson) throws IOException {
+        List<Select.Option> options = new ArrayList<>();
+        reader.beginArray();
+        while (reader.hasNext()) {
+            String label = null;
+            String value = null;
+            Group group = null;
+            reader.beginObject();
+            while (reader.hasNext()) {
+                switch (reader.nextName()) {
+                    case "label":
+                        label = nextString(reader);
+                        break;
+                    case "value":
+                        value = nextString(reader);
+                        break;
+                    case "group":
+                        group = nextGroup(reader, gson);
+                        break;
+                    default:
+                        reader.skipValue();
+                }
+            }
+            reader.endObject();
+            options.add(new Select.Option(label, value, group));
+        }
+        reader.endArray();
+        return options;
+    }
+
+    private static List<Showcase.Error> nextErrors(JsonReader reader) throws IOException {
+        if (reader.peek() == JsonToken.NULL) {
+            reader.nextNull();
+            return null;
+        }
+        List<Showcase.Error> errors = new ArrayList<>();
+        reader.beginArray();
+        while (reader.hasNext()) {
+            String name = null;
+            String alert = null;
+            reader.beginObject();
+            while (reader.hasNext()) {
+                switch (reader.nextName()) {
+                    case "name":
+                        name = nextString(reader);
+                        break;
+                    case "alert":
+                        alert = nextString(reader);
+                        break;
+                    default:
+                        reader.skipValue();
+                }
+            }
+            reader.endObject();
+            errors.add(new Showcase.Error(name, alert));
+        }
+        reader.endArray();
+        return errors;
+    }
+
+    private static Map<String, String> nextStringMap(JsonReader reader) throws IOException {
+        if (reader.peek() == JsonToken.NULL) {
+            reader.nextNull();
+            return Collections.emptyMap();
+        }
+        Map<String, String> map = new HashMap<>();
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+            JsonToken token = reader.peek();
+            if (token == JsonToken.BEGIN_OBJECT || token == JsonToken.BEGIN_ARRAY) {
+                reader.skipValue();
+                map.put(name, null);
+            } else {
+                map.put(name, nextString(reader));
+            }
+        }
+        reader.endObject();
+        return map;
+    }
+
+    private static String nextString(JsonReader reader) throws IOException {
+        switch (reader.peek()) {
+            case NULL:
+                reader.nextNull();
+                return null;
+            case BOOLEAN:
+                return Boolean.toString(reader.nextBoolean());
+            default:
+                return reader.nextString();
+        }
+    }
+
+    private static Boolean nextBoolean(JsonReader reader) throws IOException {
+        switch (reader.peek()) {
+            case NULL:
+                reader.nextNull();
+                return null;
+            case BOOLEAN:
+                return reader.nextBoolean();
+            default:
+                return Boolean.parseBoolean(reader.nextString());
+        }
+    }
+
+    private static Integer nextInt(JsonReader reader) throws IOException {
+        if (reader.peek() == JsonToken.NULL) {
+            reader.nextNull();
+            return null;
+        }
+        return reader.nextInt();
+    }
+
+    private static <T> List<T> toEmptyListIfNull(List<T> list) {
+        return list == null ? Collections.<T>emptyList() : list;
+    }
+
+    /**
+     * Members of a component's JSON object.
+     */
+    private static final class Members {
+
+        final Map<String, String> strings = new HashMap<>();
+
+        List<Object> items;
+        List<Select.Option> options;
+        DefaultFee fee;
+        Boolean readonly;
+        Boolean required;
+        Boolean checked;
+        Integer minLength;
+        Integer maxLength;
+
+        Object create() {
+            String code = strings.get("type");
+            Component.Type type = code == null ? null : Component.Type.parse(code);
+            if (type == null) {
+                // unknown component or a text block with link, which may come without type
+                String href = strings.get("href");
+                return href == null ? null : new TextBlock.WithLink(strings.get("label"), href);
+            }
+
+            switch (type) {
+                case TEXT: {
+                    Text.Builder builder = new Text.Builder();
+                    fillText(builder);
+                    return builder.create();
+                }
+                case NUMBER: {
+                    Number.Builder builder = new Number.Builder();
+                    fillNumber(builder);
+                    return builder.create();
+                }
+                case AMOUNT: {
+                    Amount.Builder builder = new Amount.Builder();
+                    String currency = strings.get("currency");
+                    if (currency == null) {
+                        throw new JsonParseException("amount currency is missing");
+                    }
+                    builder.setCurrency(Currency.parseAlphaCode(currency));
+                    builder.setFee(fee);
+                    fillNumber(builder);
+                    return builder.create();
+                }
+                case EMAIL: {
+                    Email.Builder builder = new Email.Builder();
+                    fillParameterControl(builder);
+                    return builder.create();
+                }
+                case TEL: {
+                    Tel.Builder builder = new Tel.Builder();
+                    fillParameterControl(builder);
+                    return builder.create();
+                }
+                case CHECKBOX: {
+                    if (checked == null) {
+                        throw new JsonParseException("checkbox state is missing");
+                    }
+                    Checkbox.Builder builder = new Checkbox.Builder();
+                    builder.setChecked(checked);
+                    fillParameterControl(builder);
+                    return builder.create();
+                }
+                case DATE: {
+                    Date.Builder builder = new Date.Builder();
+                    fillDate(builder, Date.FORMATTER);
+                    return builder.create();
+                }
+                case MONTH: {
+                    Month.Builder builder = new Month.Builder();
+                    fillDate(builder, Month.FORMATTER);
+                    return builder.create();
+                }
+                case SELECT: {
+                    Select.Builder builder = new Select.Builder();
+                    if (options == null) {
+                        throw new JsonParseException("select options are missing");
+                    }
+                    for (Select.Option option : options) {
+                        builder.addOption(option);
+                    }
+                    builder.setStyle(Select.Style.parse(strings.get("style")));
+                    fillParameterControl(builder);
+                    return builder.create();
+                }
+                case TEXT_AREA: {
+                    TextArea.Builder builder = new TextArea.Builder();
+                    fillTextArea(builder);
+                    return builder.create();
+                }
+                case SUBMIT: {
+                    Submit.Builder builder = new Submit.Builder();
+                    fillControl(builder);
+                    return builder.create();
+                }
+                case PARAGRAPH: {
+                    Paragraph.Builder builder = new Paragraph.Builder();
+                    for (Object item : getItems()) {
+                        if (item instanceof TextBlock) {
+                            builder.addItem((TextBlock) item);
+                        }
+                    }
+                    builder.setLabel(strings.get("label"));
+                    return builder.create();
+                }
+                case GROUP: {
+                    Group.Builder builder = new Group.Builder();
+                    String layout = strings.get("layout");
+                    if (layout != null) {
+                        builder.setLayout(Group.Layout.parse(layout));
+                    }
+                    fillContainer(builder);
+                    return builder.create();
+                }
+                case ADDITIONAL_DATA: {
+                    AdditionalData.Builder builder = new AdditionalData.Builder();
+                    fillParameterControl(builder);
+                    return builder.create();
+                }
+                case EXPAND: {
+                    Expand.Builder builder = new Expand.Builder();
+                    builder.setLabelMinimized(strings.get("label_minimized"));
+                    builder.setLabelExpanded(strings.get("label_expanded"));
+                    fillContainer(builder);
+                    return builder.create();
+                }
+                default:
+                    return null;
+            }
+        }
+
+        private List<Object> getItems() {
+            if (items == null) {
+                throw new JsonParseException("container items are missing");
+            }
+            return items;
+        }
+
+        private void fillContainer(Container.Builder<Component> builder) {
+            for (Object item : getItems()) {
+                if (item instanceof Component) {
+                    builder.addItem((Component) item);
+                }
+            }
+            builder.setLabel(strings.get("label"));
+        }
+
+        private void fillControl(Control.Builder builder) {
+            builder.setAlert(strings.get("alert"));
+            builder.setHint(strings.get("hint"));
+            builder.setLabel(strings.get("label"));
+            if (readonly != null) {
+                builder.setReadonly(readonly);
+            }
+            if (required != null) {
+                builder.setRequired(required);
+            }
+        }
+
+        private void fillParameterControl(ParameterControl.Builder builder) {
+            builder.setName(strings.get("name"));
+            builder.setValue(strings.get("value"));
+            String autoFill = strings.get("value_autofill");
+            if (autoFill != null) {
+                builder.setValueAutoFill(Parameter.AutoFill.parse(autoFill));
+            }
+            fillControl(builder);
+        }
+
+        private void fillTextArea(TextArea.Builder builder) {
+            builder.setMinLength(minLength);
+            builder.setMaxLength(maxLength);
+            fillParameterControl(builder);
+        }
+
+        private void fillText(Text.Builder builder) {
+            builder.setPattern(strings.get("pattern"));
+            builder.setKeyboard(Text.Keyboard.parse(strings.get("keyboard_suggest")));
+            fillTextArea(builder);
+        }
+
+        private void fillNumber(Number.Builder builder) {
+            builder.setMax(getBigDecimal("max"));
+            builder.setMin(getBigDecimal("min"));
+            builder.setStep(getBigDecimal("step"));
+            fillParameterControl(builder);
+        }
+
+        private void fillDate(Date.Builder builder, DateFormat formatter) {
+            try {
+                builder.setMin(Date.parseDate(strings.get("min"), formatter));
+            } catch (ParseException e) {
+                // ignore restriction
+            }
+            try {
+                builder.setMax(Date.parseDate(strings.get("max"), formatter));
+            } catch (ParseException e) {
+                // ignore restriction
+            }
+            fillParameterControl(builder);
+        }
+
+        private BigDecimal getBigDecimal(String name) {
+            String value = strings.get(name);
+            return value == null ? null : new BigDecimal(value);
+        }
+    }
+}
@@ -40,6 +40,7 @@ import com.yoo.money.api.typeadapters.BaseTypeAdapter;
 import com.yoo.money.api.typeadapters.model.showcase.container.GroupTypeAdapter;
 import com.yoo.money.api.typeadapters.model.showcase.container.GroupTypeAdapter.ListDelegate;
 
+import java.io.InputStream;
 import java.lang.reflect.Type;
 import java.util.List;
 
@@ -75,6 +76,14 @@ public final class ShowcaseTypeAdapter extends BaseTypeAdapter<Showcase> {
         return INSTANCE;
     }
 
+    /**
+     * Reads showcase in a single pass using {@link ShowcaseReader}.
+     */
+    @Override
+    public Showcase fromJson(InputStream inputStream) {
+        return ShowcaseReader.read(inputStream);
+    }
+
     @Override
     public Showcase deserialize(JsonElement json, Type typeOfT, JsonDeserializationContext context)
             throws JsonParseException {
@@ -52,7 +52,7 @@ public final class CheckboxTypeAdapter extends ParameterControlTypeAdapter<Check
 
     @Override
     protected void serialize(Checkbox src, JsonObject to, JsonSerializationContext context) {
-        to.addProperty(MEMBER_CHECKED, src.checked);
+        to.addProperty(MEMBER_CHECKED, src.isChecked());
         super.serialize(src, to, context);
     }
 
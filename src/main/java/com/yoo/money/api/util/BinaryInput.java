@@ -0,0 +1,190 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2020 NBCO YooMoney LLC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.yoo.money.api.util;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+
+import static com.yoo.money.api.util.Common.checkNotNull;
+
+/**
+ * Reads values written by {@link BinaryOutput}. Malformed or truncated input causes
+ * {@link IllegalArgumentException}.
+ * <p/>
+ * Not thread safe.
+ */
+public final class BinaryInput {
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private final byte[] buffer;
+    private final int limit;
+    private int position;
+
+    public BinaryInput(byte[] buffer) {
+        this(buffer, 0, checkNotNull(buffer, "buffer").length);
+    }
+
+    public BinaryInput(byte[] buffer, int offset, int length) {
+        this.buffer = checkNotNull(buffer, "buffer");
+        if (offset < 0 || length < 0 || offset > buffer.length - length) {
+            throw new IndexOutOfBoundsException("offset=" + offset + ", length=" + length);
+        }
+        this.position = offset;
+        this.limit = offset + length;
+    }
+
+    /**
+     * @return current position within the buffer
+     */
+    public int getPosition() {
+        return position;
+    }
+
+    /**
+     * Moves to specified position, for instance to read the same data again.
+     *
+     * @param position position within the buffer
+     */
+    public void setPosition(int position) {
+        if (position < 0 || position > limit) {
+            throw new IndexOutOfBoundsException("position=" + position);
+        }
+        this.position = position;
+    }
+
+    /**
+     * @return number of unread bytes
+     */
+    public int remaining() {
+        return limit - position;
+    }
+
+    /**
+     * @return {@code true} if there are unread bytes
+     */
+    public boolean hasRemaining() {
+        return position < limit;
+    }
+
+    public int readByte() {
+        require(1);
+        return buffer[position++];
+    }
+
+    public boolean readBoolean() {
+        int value = readByte();
+        if (value != 0 && value != 1) {
+            throw new IllegalArgumentException("malformed boolean: " + value);
+        }
+        return value == 1;
+    }
+
+    public byte[] readBytes(int length) {
+        require(length);
+        byte[] bytes = Arrays.copyOfRange(buffer, position, position + length);
+        position += length;
+        return bytes;
+    }
+
+    public int readVarInt() {
+        long value = readVarLong();
+        if (value > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("int value is too large: " + value);
+        }
+        return (int) value;
+    }
+
+    public long readVarLong() {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = readByte();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("malformed variable length quantity");
+    }
+
+    public long readSignedVarLong() {
+        long value = readVarLong();
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    public long readLong() {
+        require(8);
+        long value = 0;
+        for (int i = 0; i < 8; i++) {
+            value = (value << 8) | (buffer[position++] & 0xFF);
+        }
+        return value;
+    }
+
+    public byte[] readByteArray() {
+        int length = readVarInt();
+        return length == 0 ? null : readBytes(length - 1);
+    }
+
+    public String readString() {
+        int length = readVarInt();
+        if (length == 0) {
+            return null;
+        }
+        require(--length);
+        String value = new String(buffer, position, length, UTF_8);
+        position += length;
+        return value;
+    }
+
+    public BigDecimal readBigDecimal() {
+        int type = readByte();
+        switch (type) {
+            case 0:
+                return null;
+            case 1: {
+                int scale = (int) readSignedVarLong();
+                return BigDecimal.valueOf(readSignedVarLong(), scale);
+            }
+            case 2: {
+                int scale = (int) readSignedVarLong();
+                byte[] unscaled = readByteArray();
+                if (unscaled == null) {
+                    throw new IllegalArgumentException("malformed decimal");
+                }
+                return new BigDecimal(new BigInteger(unscaled), scale);
+            }
+            default:
+                throw new IllegalArgumentException("malformed decimal: " + type);
+        }
+    }
+
+    private void require(int count) {
+        if (count < 0 || limit - position < count) {
+            throw new IllegalArgumentException("unexpected end of input");
+        }
+    }
+}
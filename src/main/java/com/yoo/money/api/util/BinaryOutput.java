@@ -0,0 +1,179 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2020 NBCO YooMoney LLC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.yoo.money.api.util;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+
+/**
+ * Growable byte buffer for compact binary formats. Integers are written as variable length
+ * quantities (zigzag encoded if signed), strings as UTF-8 bytes prefixed with length.
+ * <p/>
+ * Not thread safe.
+ *
+ * @see BinaryInput
+ */
+public final class BinaryOutput {
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private byte[] buffer;
+    private int size;
+
+    public BinaryOutput() {
+        this(256);
+    }
+
+    public BinaryOutput(int initialCapacity) {
+        if (initialCapacity < 1) {
+            throw new IllegalArgumentException("initialCapacity should be positive");
+        }
+        buffer = new byte[initialCapacity];
+    }
+
+    /**
+     * @return number of bytes written
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return copy of written bytes
+     */
+    public byte[] toByteArray() {
+        return Arrays.copyOf(buffer, size);
+    }
+
+    public BinaryOutput writeByte(int value) {
+        ensureCapacity(1);
+        buffer[size++] = (byte) value;
+        return this;
+    }
+
+    public BinaryOutput writeBoolean(boolean value) {
+        return writeByte(value ? 1 : 0);
+    }
+
+    public BinaryOutput writeBytes(byte[] bytes) {
+        return writeBytes(bytes, 0, bytes.length);
+    }
+
+    public BinaryOutput writeBytes(byte[] bytes, int offset, int length) {
+        ensureCapacity(length);
+        System.arraycopy(bytes, offset, buffer, size, length);
+        size += length;
+        return this;
+    }
+
+    /**
+     * Writes non-negative int as variable length quantity.
+     */
+    public BinaryOutput writeVarInt(int value) {
+        if (value < 0) {
+            throw new IllegalArgumentException("value should not be negative: " + value);
+        }
+        return writeVarLong(value);
+    }
+
+    /**
+     * Writes long as unsigned variable length quantity.
+     */
+    public BinaryOutput writeVarLong(long value) {
+        ensureCapacity(10);
+        while ((value & ~0x7FL) != 0) {
+            buffer[size++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        buffer[size++] = (byte) value;
+        return this;
+    }
+
+    /**
+     * Writes signed long using zigzag encoding, so small negative values are compact too.
+     */
+    public BinaryOutput writeSignedVarLong(long value) {
+        return writeVarLong((value << 1) ^ (value >> 63));
+    }
+
+    /**
+     * Writes fixed length big-endian long.
+     */
+    public BinaryOutput writeLong(long value) {
+        ensureCapacity(8);
+        for (int shift = 56; shift >= 0; shift -= 8) {
+            buffer[size++] = (byte) (value >>> shift);
+        }
+        return this;
+    }
+
+    /**
+     * Writes length prefixed byte array. May be {@code null}.
+     */
+    public BinaryOutput writeByteArray(byte[] bytes) {
+        if (bytes == null) {
+            return writeVarInt(0);
+        }
+        writeVarInt(bytes.length + 1);
+        return writeBytes(bytes);
+    }
+
+    /**
+     * Writes length prefixed UTF-8 string. May be {@code null}.
+     */
+    public BinaryOutput writeString(String value) {
+        return writeByteArray(value == null ? null : value.getBytes(UTF_8));
+    }
+
+    /**
+     * Writes decimal as scale and unscaled value. May be {@code null}.
+     */
+    public BinaryOutput writeBigDecimal(BigDecimal value) {
+        if (value == null) {
+            return writeByte(0);
+        }
+        BigInteger unscaled = value.unscaledValue();
+        if (unscaled.bitLength() < 64) {
+            writeByte(1);
+            writeSignedVarLong(value.scale());
+            return writeSignedVarLong(unscaled.longValue());
+        } else {
+            writeByte(2);
+            writeSignedVarLong(value.scale());
+            return writeByteArray(unscaled.toByteArray());
+        }
+    }
+
+    private void ensureCapacity(int count) {
+        int required = size + count;
+        if (required < 0) {
+            throw new OutOfMemoryError("buffer is too large");
+        }
+        if (required > buffer.length) {
+            buffer = Arrays.copyOf(buffer, Math.max(required, buffer.length << 1));
+        }
+    }
+}
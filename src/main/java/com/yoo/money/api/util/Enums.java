@@ -24,13 +24,24 @@
 
 package com.yoo.money.api.util;
 
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
 import static com.yoo.money.api.util.Common.checkNotNull;
 
 /**
+ * Codes of values are looked up using immutable indices which are built once per type on first use.
+ *
  * @author Slava Yasevich
  */
 public final class Enums {
 
+    private static final ConcurrentMap<Class<?>, Index<?>> INDICES = new ConcurrentHashMap<>();
+
     /**
      * Parses {@code code} to using {@code prototype} to get {@code enum}'s declaration.
      *
@@ -78,12 +89,8 @@ public final class Enums {
         if (code == null) {
             return defaultValue;
         }
-        for (T value : checkNotNull(prototype, "prototype").getValues()) {
-            if (code.equals(value.getCode())) {
-                return value;
-            }
-        }
-        return defaultValue;
+        T value = getIndex(prototype).byCode.get(code);
+        return value == null ? defaultValue : value;
     }
 
     /**
@@ -101,16 +108,54 @@ public final class Enums {
         if (code == null) {
             return defaultValue;
         }
-        for (T value : checkNotNull(prototype, "prototype").getValues()) {
-            if (code.equalsIgnoreCase(value.getCode())) {
-                return value;
+        T value = getIndex(prototype).byLowerCaseCode.get(code.toLowerCase(Locale.ROOT));
+        return value == null ? defaultValue : value;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T extends WithCode<T>> Index<T> getIndex(T prototype) {
+        Class<?> type = checkNotNull(prototype, "prototype") instanceof Enum
+                ? ((Enum<?>) prototype).getDeclaringClass()
+                : prototype.getClass();
+        Index<T> index = (Index<T>) INDICES.get(type);
+        if (index == null) {
+            index = new Index<>(prototype.getValues());
+            Index<T> existing = (Index<T>) INDICES.putIfAbsent(type, index);
+            if (existing != null) {
+                index = existing;
             }
         }
-        return defaultValue;
+        return index;
     }
 
     public interface WithCode<T> {
         String getCode();
         T[] getValues();
     }
+
+    private static final class Index<T extends WithCode<T>> {
+
+        final Map<String, T> byCode;
+        final Map<String, T> byLowerCaseCode;
+
+        Index(T[] values) {
+            Map<String, T> byCode = new HashMap<>(values.length * 2);
+            Map<String, T> byLowerCaseCode = new HashMap<>(values.length * 2);
+            for (T value : values) {
+                String code = value.getCode();
+                if (code != null) {
+                    // the first declared value wins if codes are duplicated
+                    if (!byCode.containsKey(code)) {
+                        byCode.put(code, value);
+                    }
+                    String lowerCaseCode = code.toLowerCase(Locale.ROOT);
+                    if (!byLowerCaseCode.containsKey(lowerCaseCode)) {
+                        byLowerCaseCode.put(lowerCaseCode, value);
+                    }
+                }
+            }
+            this.byCode = Collections.unmodifiableMap(byCode);
+            this.byLowerCaseCode = Collections.unmodifiableMap(byLowerCaseCode);
+        }
+    }
 }
@@ -40,6 +40,7 @@ public final class HttpHeaders {
 
     public static final String ACCEPT_LANGUAGE = "Accept-Language";
     public static final String AUTHORIZATION = "Authorization";
+    public static final String CACHE_CONTROL = "Cache-Control";
     public static final String CONTENT_LENGTH = "Content-Length";
     public static final String CONTENT_TYPE = "Content-Type";
     public static final String EXPIRES = "Expires";
@@ -67,4 +67,28 @@ public final class Numbers {
         }
         return result.toString();
     }
+
+    /**
+     * Divides rounding the quotient toward negative infinity. Unlike {@code Math.floorDiv} it is available on all
+     * platforms supported by this library.
+     *
+     * @param x dividend
+     * @param y divisor
+     * @return largest value which is less than or equal to the algebraic quotient
+     */
+    public static long floorDiv(long x, long y) {
+        long result = x / y;
+        return (x % y != 0 && (x ^ y) < 0) ? result - 1 : result;
+    }
+
+    /**
+     * Gets modulus which has the same sign as the divisor.
+     *
+     * @param x dividend
+     * @param y divisor
+     * @return {@code x - floorDiv(x, y) * y}
+     */
+    public static long floorMod(long x, long y) {
+        return x - floorDiv(x, y) * y;
+    }
 }
@@ -24,8 +24,20 @@
 
 package com.yoo.money.api.util;
 
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+import static com.yoo.money.api.util.Common.checkNotNull;
+
 /**
  * Common patterns.
+ * <p/>
+ * Also provides a shared cache of compiled patterns, so regular expressions used for validation
+ * (including those received from remote server) are compiled only once. Patterns declared in this class are
+ * compiled once and are never evicted from the cache.
  *
  * @author Slava Yasevich (support@yoomoney.ru)
  */
@@ -58,7 +70,74 @@ public final class Patterns {
      */
     public static final String DECIMAL = "[\\+\\-]?\\d*(\\.(\\d*)?)?";
 
+    /**
+     * Maximum number of patterns kept in cache. When the limit is reached the least recently used
+     * pattern is evicted.
+     */
+    private static final int MAX_CACHE_SIZE = 256;
+
+    private static final Pattern ACCOUNT_PATTERN = Pattern.compile(ACCOUNT);
+    private static final Pattern PHONE_PATTERN = Pattern.compile(PHONE);
+    private static final Pattern YOOMONEY_PATTERN = Pattern.compile(YOOMONEY);
+    private static final Pattern EMAIL_PATTERN = Pattern.compile(EMAIL);
+    private static final Pattern DECIMAL_PATTERN = Pattern.compile(DECIMAL);
+
+    private static final Map<String, Pattern> BUILT_IN;
+
+    private static final Map<String, Pattern> CACHE = Collections.synchronizedMap(
+            new LinkedHashMap<String, Pattern>(16, 0.75f, true) {
+                private static final long serialVersionUID = 1L;
+
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, Pattern> eldest) {
+                    return size() > MAX_CACHE_SIZE;
+                }
+            });
+
+    static {
+        Map<String, Pattern> builtIn = new HashMap<>();
+        builtIn.put(ACCOUNT, ACCOUNT_PATTERN);
+        builtIn.put(PHONE, PHONE_PATTERN);
+        builtIn.put(YOOMONEY, YOOMONEY_PATTERN);
+        builtIn.put(EMAIL, EMAIL_PATTERN);
+        builtIn.put(DECIMAL, DECIMAL_PATTERN);
+        BUILT_IN = Collections.unmodifiableMap(builtIn);
+    }
+
     private Patterns() {
         // prevents instantiating of this class
     }
+
+    /**
+     * Gets compiled pattern from cache or compiles it.
+     *
+     * @param regex regular expression
+     * @return compiled pattern
+     * @throws java.util.regex.PatternSyntaxException if the expression's syntax is invalid
+     */
+    public static Pattern compile(String regex) {
+        Pattern pattern = BUILT_IN.get(checkNotNull(regex, "regex"));
+        if (pattern != null) {
+            return pattern;
+        }
+
+        pattern = CACHE.get(regex);
+        if (pattern == null) {
+            // compiled outside of the lock, compiling the same expression twice is harmless
+            pattern = Pattern.compile(regex);
+            CACHE.put(regex, pattern);
+        }
+        return pattern;
+    }
+
+    /**
+     * Same as {@link String#matches(String)} but uses cached patterns.
+     *
+     * @param regex regular expression
+     * @param input input to match
+     * @return {@code true} if entire input matches the expression
+     */
+    public static boolean matches(String regex, CharSequence input) {
+        return compile(regex).matcher(checkNotNull(input, "input")).matches();
+    }
 }
@@ -31,7 +31,6 @@ import com.yoo.money.api.typeadapters.TypeAdapter;
 
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
 import java.text.ParseException;
 
 public final class Responses {
@@ -46,7 +45,9 @@ public final class Responses {
 
     public static <T> T parseJson(InputStream inputStream, Class<T> cls, TypeAdapter<T> typeAdapter) {
         if (cls != null) {
-            return GsonProvider.getGson().fromJson(new InputStreamReader(inputStream), cls);
+            try (Utf8Reader reader = new Utf8Reader(inputStream)) {
+                return GsonProvider.getGson().fromJson(reader, cls);
+            }
         } else if (typeAdapter != null) {
             return typeAdapter.fromJson(inputStream);
         } else {
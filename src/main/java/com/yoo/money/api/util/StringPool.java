@@ -0,0 +1,115 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2020 NBCO YooMoney LLC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.yoo.money.api.util;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Bounded pool of canonical strings. Unlike {@link String#intern()} it never grows beyond its capacity: pooled
+ * strings are stored in a lock-free open-addressing table and evicted by newer strings when probing sequence is full.
+ * Thread safe.
+ */
+public final class StringPool {
+
+    private static final int MAX_PROBES = 8;
+    private static final int DEFAULT_MAX_LENGTH = 64;
+
+    private final AtomicReferenceArray<String> table;
+    private final int mask;
+    private final int maxLength;
+
+    /**
+     * Constructor.
+     *
+     * @param capacity maximum number of pooled strings (rounded up to the power of two)
+     */
+    public StringPool(int capacity) {
+        this(capacity, DEFAULT_MAX_LENGTH);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param capacity maximum number of pooled strings (rounded up to the power of two)
+     * @param maxLength strings that are longer than this value are never pooled
+     */
+    public StringPool(int capacity, int maxLength) {
+        if (capacity < 1 || capacity > 1 << 30) {
+            throw new IllegalArgumentException("capacity is out of range: " + capacity);
+        }
+        if (maxLength < 0) {
+            throw new IllegalArgumentException("maxLength is negative");
+        }
+        int size = Integer.highestOneBit(capacity);
+        if (size < capacity) {
+            size <<= 1;
+        }
+        this.table = new AtomicReferenceArray<>(size);
+        this.mask = size - 1;
+        this.maxLength = maxLength;
+    }
+
+    /**
+     * Gets canonical instance of a string.
+     *
+     * @param value string
+     * @return pooled string equal to {@code value} or {@code value} itself
+     */
+    public String intern(String value) {
+        if (value == null || value.length() > maxLength) {
+            return value;
+        }
+
+        int hash = spread(value.hashCode());
+        for (int i = 0; i < MAX_PROBES; ++i) {
+            int index = (hash + i) & mask;
+            String pooled = table.get(index);
+            if (pooled == null && table.compareAndSet(index, null, value)) {
+                return value;
+            } else if (pooled == null) {
+                pooled = table.get(index);
+            }
+            if (value.equals(pooled)) {
+                return pooled;
+            }
+        }
+
+        table.set(hash & mask, value);
+        return value;
+    }
+
+    /**
+     * Removes all strings from the pool.
+     */
+    public void clear() {
+        for (int i = 0; i < table.length(); ++i) {
+            table.set(i, null);
+        }
+    }
+
+    private static int spread(int hash) {
+        return hash ^ (hash >>> 16);
+    }
+}
@@ -24,6 +24,8 @@
 
 package com.yoo.money.api.util;
 
+import com.yoo.money.api.net.CallContext;
+
 /**
  * @author vyasevich
  */
@@ -34,13 +36,19 @@ public final class Threads {
     }
 
     /**
-     * Causes the current thread to sleep on specified amount of milliseconds.
+     * Causes the current thread to sleep on specified amount of milliseconds. If a {@link CallContext} is attached to
+     * the current thread, the sleep ends early when the context is cancelled or its deadline passes.
      *
      * @param time milliseconds
      */
     public static void sleep(long time) {
         try {
-            Thread.sleep(time);
+            CallContext context = CallContext.current();
+            if (context == null) {
+                Thread.sleep(time);
+            } else {
+                context.sleep(time);
+            }
         } catch (InterruptedException e) {
             // do nothing
         }
@@ -0,0 +1,187 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2020 NBCO YooMoney LLC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.yoo.money.api.util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+
+import static com.yoo.money.api.util.Common.checkNotNull;
+
+/**
+ * Reads characters from UTF-8 encoded stream. Unlike {@link java.io.InputStreamReader} it does not allocate buffers
+ * and decoder for each stream: they are taken from a pool of the current thread and returned to it when the reader
+ * is closed. Malformed input is replaced with the replacement character.
+ * <p>
+ * Closing the reader does not close the stream, the stream is closed by its owner. Instances of this class are not
+ * thread safe.
+ */
+public final class Utf8Reader extends Reader {
+
+    private static final int BUFFER_SIZE = 8192;
+
+    private static final ThreadLocal<Buffers> POOL = new ThreadLocal<Buffers>() {
+        @Override
+        protected Buffers initialValue() {
+            return new Buffers();
+        }
+    };
+
+    private final InputStream inputStream;
+    private final char[] pair = new char[2];
+
+    private Buffers buffers;
+    private boolean endOfInput;
+    private boolean flushed;
+    private int pending = -1;
+
+    /**
+     * Constructor.
+     *
+     * @param inputStream UTF-8 encoded stream
+     */
+    public Utf8Reader(InputStream inputStream) {
+        this.inputStream = checkNotNull(inputStream, "inputStream");
+        Buffers pooled = POOL.get();
+        if (pooled.inUse) {
+            // another reader of this thread is open
+            buffers = new Buffers();
+        } else {
+            pooled.inUse = true;
+            buffers = pooled;
+        }
+        buffers.bytes.clear();
+        buffers.bytes.flip();
+        buffers.decoder.reset();
+    }
+
+    /**
+     * Reads stream till its end. The stream is not closed.
+     *
+     * @param inputStream UTF-8 encoded stream
+     * @return content of the stream
+     * @throws IOException if unable to read the stream
+     */
+    public static String readString(InputStream inputStream) throws IOException {
+        try (Utf8Reader reader = new Utf8Reader(inputStream)) {
+            StringBuilder builder = new StringBuilder();
+            char[] chars = new char[2048];
+            int count;
+            while ((count = reader.read(chars, 0, chars.length)) != -1) {
+                builder.append(chars, 0, count);
+            }
+            return builder.toString();
+        }
+    }
+
+    @Override
+    public int read(char[] cbuf, int off, int len) throws IOException {
+        if (buffers == null) {
+            throw new IOException("reader is closed");
+        }
+        if (off < 0 || len < 0 || len > cbuf.length - off) {
+            throw new IndexOutOfBoundsException();
+        }
+        if (len == 0) {
+            return 0;
+        }
+        if (pending != -1) {
+            cbuf[off] = (char) pending;
+            pending = -1;
+            return 1;
+        }
+        if (len == 1) {
+            // a surrogate pair does not fit into one char, so the low surrogate is kept till the next read
+            int count = decode(CharBuffer.wrap(pair));
+            if (count == 2) {
+                pending = pair[1];
+            }
+            if (count > 0) {
+                cbuf[off] = pair[0];
+            }
+            return count == -1 ? -1 : Math.min(count, 1);
+        }
+        return decode(CharBuffer.wrap(cbuf, off, len));
+    }
+
+    /**
+     * Returns buffers to the pool. The stream is not closed.
+     */
+    @Override
+    public void close() {
+        if (buffers != null) {
+            buffers.inUse = false;
+            buffers = null;
+        }
+    }
+
+    private int decode(CharBuffer out) throws IOException {
+        int start = out.position();
+        ByteBuffer bytes = buffers.bytes;
+        CharsetDecoder decoder = buffers.decoder;
+        while (!flushed) {
+            CoderResult result = decoder.decode(bytes, out, endOfInput);
+            if (endOfInput && result.isUnderflow()) {
+                result = decoder.flush(out);
+                flushed = result.isUnderflow();
+            }
+            if (out.position() > start) {
+                return out.position() - start;
+            }
+            if (result.isOverflow()) {
+                // can not happen for buffers of two chars or more
+                throw new IllegalStateException("no room to decode a character");
+            }
+            if (flushed) {
+                break;
+            }
+
+            bytes.compact();
+            int count = inputStream.read(bytes.array(), bytes.arrayOffset() + bytes.position(), bytes.remaining());
+            if (count == -1) {
+                endOfInput = true;
+            } else {
+                bytes.position(bytes.position() + count);
+            }
+            bytes.flip();
+        }
+        return -1;
+    }
+
+    private static final class Buffers {
+
+        final ByteBuffer bytes = ByteBuffer.allocate(BUFFER_SIZE);
+        final CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        boolean inUse;
+    }
+}
@@ -0,0 +1,86 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2020 NBCO YooMoney LLC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.yoo.money.api.analytics;
+
+import com.yoo.money.api.model.Currency;
+import com.yoo.money.api.model.Operation;
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static com.yoo.money.api.analytics.OperationColumnsTest.operation;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+public class OperationAggregatorTest {
+
+    private final List<Operation> operations = Arrays.asList(
+            operation(Operation.Direction.OUTGOING, "10.50", Currency.RUB),
+            operation(Operation.Direction.OUTGOING, "2.00", Currency.USD),
+            operation(Operation.Direction.OUTGOING, "1.25", Currency.RUB),
+            operation(Operation.Direction.OUTGOING, "3.00", null));
+
+    @Test
+    public void groupsByCurrency() {
+        Map<Currency, OperationTotals> totals = new OperationAggregator<>(OperationGrouping.byCurrency())
+                .aggregate(operations);
+
+        assertEquals(2, totals.size());
+        assertEquals(new OperationTotals(2L, new BigDecimal("11.75"), BigDecimal.ZERO, Currency.RUB),
+                totals.get(Currency.RUB));
+        assertEquals(new OperationTotals(1L, new BigDecimal("2"), BigDecimal.ZERO, Currency.USD),
+                totals.get(Currency.USD));
+    }
+
+    @Test
+    public void rejectsMixedCurrencies() {
+        OperationAggregator<Operation.Direction> aggregator =
+                new OperationAggregator<>(OperationGrouping.byDirection());
+        try {
+            aggregator.aggregate(operations);
+            fail("mixed currencies are summed");
+        } catch (IllegalArgumentException expected) {
+            // expected
+        }
+        try {
+            aggregator.aggregateParallel(operations);
+            fail("mixed currencies are summed");
+        } catch (IllegalArgumentException expected) {
+            // expected
+        }
+    }
+
+    @Test
+    public void operationsWithoutCurrencyAreCompatible() {
+        Map<Operation.Direction, OperationTotals> totals = new OperationAggregator<>(OperationGrouping.byDirection())
+                .aggregate(Arrays.asList(operations.get(0), operations.get(2), operations.get(3)));
+
+        assertEquals(new OperationTotals(3L, new BigDecimal("14.75"), BigDecimal.ZERO, Currency.RUB),
+                totals.get(Operation.Direction.OUTGOING));
+    }
+}
@@ -0,0 +1,74 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2020 NBCO YooMoney LLC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.yoo.money.api.analytics;
+
+import com.yoo.money.api.model.Currency;
+import com.yoo.money.api.model.Operation;
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.util.EnumSet;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class OperationColumnsTest {
+
+    @Test
+    public void sumsAmountsPerCurrency() {
+        OperationColumns columns = new OperationColumns.Builder()
+                .add(operation(Operation.Direction.OUTGOING, "10.50", Currency.RUB))
+                .add(operation(Operation.Direction.OUTGOING, "2.00", Currency.USD))
+                .add(operation(Operation.Direction.OUTGOING, "1.25", Currency.RUB))
+                .add(operation(Operation.Direction.INCOMING, "3.00", null))
+                .create();
+
+        assertEquals(EnumSet.of(Currency.RUB, Currency.USD), columns.getCurrencies());
+
+        Map<Operation.Direction, BigDecimal> rub = columns.sumAmountsByDirection(Currency.RUB);
+        assertEquals(1, rub.size());
+        assertEquals(0, new BigDecimal("11.75").compareTo(rub.get(Operation.Direction.OUTGOING)));
+
+        Map<Operation.Direction, BigDecimal> usd = columns.sumAmountsByDirection(Currency.USD);
+        assertEquals(1, usd.size());
+        assertEquals(0, new BigDecimal("2").compareTo(usd.get(Operation.Direction.OUTGOING)));
+
+        Map<Operation.Direction, BigDecimal> unknown = columns.sumAmountsByDirection(null);
+        assertEquals(1, unknown.size());
+        assertEquals(0, new BigDecimal("3").compareTo(unknown.get(Operation.Direction.INCOMING)));
+
+        assertTrue(columns.sumAmountsByDirection(Currency.EUR).isEmpty());
+    }
+
+    static Operation operation(Operation.Direction direction, String amount, Currency currency) {
+        return new Operation.Builder()
+                .setOperationId(direction + amount + currency)
+                .setDirection(direction)
+                .setAmount(new BigDecimal(amount))
+                .setAmountCurrency(currency)
+                .create();
+    }
+}
@@ -0,0 +1,154 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2020 NBCO YooMoney LLC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.yoo.money.api.model.showcase;
+
+import com.yoo.money.api.model.Currency;
+import com.yoo.money.api.model.showcase.components.Component;
+import com.yoo.money.api.model.showcase.components.containers.Group;
+import com.yoo.money.api.model.showcase.components.uicontrols.Amount;
+import com.yoo.money.api.model.showcase.components.uicontrols.Checkbox;
+import com.yoo.money.api.model.showcase.components.uicontrols.Select;
+import com.yoo.money.api.model.showcase.components.uicontrols.Submit;
+import com.yoo.money.api.model.showcase.components.uicontrols.Text;
+import com.yoo.money.api.time.DateTime;
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Stack;
+import java.util.TimeZone;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class ShowcaseContextCodecTest {
+
+    @Test
+    public void contextRoundTrip() {
+        ShowcaseContext context = context();
+
+        ShowcaseContext decoded = ShowcaseContextCodec.decode(ShowcaseContextCodec.encode(context));
+
+        assertEquals(context, decoded);
+        assertEquals(context.getCurrentStep().showcase.getPaymentParameters(),
+                decoded.getCurrentStep().showcase.getPaymentParameters());
+    }
+
+    @Test
+    public void userValuesArePreserved() {
+        ShowcaseContext context = context();
+        Showcase showcase = context.getCurrentStep().showcase;
+        ((Text) showcase.getControl("name")).setValue("John");
+        ((Checkbox) showcase.getControl("agree")).setChecked(false);
+
+        ShowcaseContext decoded = ShowcaseContextCodec.decode(ShowcaseContextCodec.encode(context));
+
+        Showcase decodedShowcase = decoded.getCurrentStep().showcase;
+        assertEquals("John", decodedShowcase.getControl("name").getValue());
+        assertFalse(((Checkbox) decodedShowcase.getControl("agree")).isChecked());
+    }
+
+    @Test
+    public void equalShowcasesAreDecodedToSeparateInstances() {
+        ShowcaseContext context = context();
+
+        ShowcaseContext decoded = ShowcaseContextCodec.decode(ShowcaseContextCodec.encode(context));
+
+        Showcase previous = decoded.getHistory().peek().showcase;
+        Showcase current = decoded.getCurrentStep().showcase;
+        assertEquals(previous, current);
+        assertNotSame(previous.form, current.form);
+    }
+
+    @Test
+    public void truncatedContextIsRejected() {
+        byte[] bytes = ShowcaseContextCodec.encode(context());
+        for (int length = 0; length < bytes.length; ++length) {
+            try {
+                ShowcaseContextCodec.decode(Arrays.copyOf(bytes, length));
+                fail("truncated context of " + length + " bytes is decoded");
+            } catch (IllegalArgumentException expected) {
+                // expected
+            }
+        }
+    }
+
+    private static ShowcaseContext context() {
+        Stack<ShowcaseContext.Step> history = new Stack<>();
+        history.push(new ShowcaseContext.Step(showcase(), "https://money.test/showcase/1"));
+        ShowcaseContext.Step currentStep = new ShowcaseContext.Step(showcase(), "https://money.test/showcase/2");
+        return new ShowcaseContext(history, DateTime.from(2020, 5, 17, 12, 30, TimeZone.getTimeZone("GMT+03:00")),
+                currentStep, Collections.singletonMap("pattern_id", "123"), ShowcaseContext.State.HAS_NEXT_STEP);
+    }
+
+    private static Showcase showcase() {
+        Text.Builder name = new Text.Builder();
+        name.setMinLength(1);
+        name.setRequired(true);
+        name.setLabel("Name");
+        name.setName("name");
+
+        Amount.Builder sum = new Amount.Builder();
+        sum.setCurrency(Currency.RUB)
+                .setFee(new DefaultFee(Fee.Type.STD, new BigDecimal("0.005"), BigDecimal.ZERO, BigDecimal.ZERO, null,
+                        AmountType.AMOUNT));
+        sum.setMin(BigDecimal.ONE);
+        sum.setName("sum");
+
+        Checkbox.Builder agree = new Checkbox.Builder();
+        agree.setChecked(true);
+        agree.setName("agree").setValue("yes");
+
+        Select.Builder type = new Select.Builder();
+        type.addOption(new Select.Option("Phone", "phone", group(text("phone"))))
+                .addOption(new Select.Option("Account", "account", null));
+        type.setName("type").setValue("phone");
+
+        return new Showcase.Builder()
+                .setTitle("Payment")
+                .setHiddenFields(Collections.singletonMap("scid", "5551"))
+                .setForm(group(name.create(), sum.create(), agree.create(), type.create(),
+                        new Submit.Builder().setLabel("Pay").create()))
+                .create();
+    }
+
+    private static Group group(Component... components) {
+        Group.Builder builder = new Group.Builder();
+        for (Component component : components) {
+            builder.addItem(component);
+        }
+        return builder.create();
+    }
+
+    private static Text text(String name) {
+        Text.Builder builder = new Text.Builder();
+        builder.setName(name);
+        return builder.create();
+    }
+}
@@ -0,0 +1,105 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2020 NBCO YooMoney LLC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.yoo.money.api.model.showcase;
+
+import com.yoo.money.api.model.showcase.components.Component;
+import com.yoo.money.api.model.showcase.components.containers.Group;
+import com.yoo.money.api.model.showcase.components.uicontrols.Checkbox;
+import com.yoo.money.api.model.showcase.components.uicontrols.Text;
+import org.junit.Test;
+
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class ShowcaseDiffTest {
+
+    @Test
+    public void valuesAreCarriedOnlyOnRequest() {
+        Text oldText = text("name", "John");
+        Text newText = text("name", null);
+
+        ShowcaseDiff diff = ShowcaseDiff.between(form(oldText), form(newText));
+
+        assertEquals(Collections.singleton("name"), diff.preserved);
+        assertNull(newText.getValue());
+
+        diff.carryValues();
+        assertEquals("John", newText.getValue());
+    }
+
+    @Test
+    public void checkedStateIsCarried() {
+        Checkbox oldAgree = checkbox("agree", true);
+        Checkbox newAgree = checkbox("agree", false);
+        Checkbox oldNews = checkbox("news", false);
+        Checkbox newNews = checkbox("news", true);
+
+        ShowcaseDiff diff = ShowcaseDiff.between(form(oldAgree, oldNews), form(newAgree, newNews));
+
+        assertEquals(Collections.singleton("agree"), diff.preserved);
+        assertFalse(newAgree.isChecked());
+
+        diff.carryValues();
+        assertTrue(newAgree.isChecked());
+        assertTrue(newNews.isChecked());
+    }
+
+    @Test
+    public void serverValuesAreKept() {
+        Text newText = text("name", "Jane");
+
+        ShowcaseDiff diff = ShowcaseDiff.between(form(text("name", "John")), form(newText));
+        diff.carryValues();
+
+        assertTrue(diff.preserved.isEmpty());
+        assertEquals("Jane", newText.getValue());
+        assertTrue(diff.isChanged(newText));
+    }
+
+    private static Group form(Component... components) {
+        Group.Builder builder = new Group.Builder();
+        for (Component component : components) {
+            builder.addItem(component);
+        }
+        return builder.create();
+    }
+
+    private static Text text(String name, String value) {
+        Text.Builder builder = new Text.Builder();
+        builder.setName(name).setValue(value);
+        return builder.create();
+    }
+
+    private static Checkbox checkbox(String name, boolean checked) {
+        Checkbox.Builder builder = new Checkbox.Builder();
+        builder.setChecked(checked);
+        builder.setName(name).setValue("true");
+        return builder.create();
+    }
+}
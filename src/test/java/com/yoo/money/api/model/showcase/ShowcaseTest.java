@@ -0,0 +1,61 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2020 NBCO YooMoney LLC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.yoo.money.api.model.showcase;
+
+import com.yoo.money.api.model.showcase.components.containers.Group;
+import com.yoo.money.api.model.showcase.components.uicontrols.Checkbox;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class ShowcaseTest {
+
+    @Test
+    public void checkboxToggleUpdatesCachedState() {
+        Checkbox.Builder checkboxBuilder = new Checkbox.Builder();
+        checkboxBuilder.setRequired(true);
+        checkboxBuilder.setName("agree").setValue("yes");
+        Checkbox agree = checkboxBuilder.create();
+
+        Group.Builder groupBuilder = new Group.Builder();
+        groupBuilder.addItem(agree);
+        Group form = groupBuilder.create();
+        Showcase showcase = new Showcase.Builder().setTitle("Terms").setForm(form).create();
+
+        assertNull(showcase.getPaymentParameters().get("agree"));
+        assertFalse(form.isValid());
+
+        agree.setChecked(true);
+        assertEquals("yes", showcase.getPaymentParameters().get("agree"));
+        assertTrue(form.isValid());
+
+        agree.setChecked(false);
+        assertNull(showcase.getPaymentParameters().get("agree"));
+        assertFalse(form.isValid());
+    }
+}
@@ -0,0 +1,166 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2020 NBCO YooMoney LLC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.yoo.money.api.net.clients;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import okhttp3.Call;
+import okhttp3.EventListener;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class HedgingPolicyTest {
+
+    private final AtomicInteger received = new AtomicInteger();
+    private final CountDownLatch failedCalls = new CountDownLatch(1);
+
+    private HttpServer server;
+    private ExecutorService serverExecutor;
+    private OkHttpClient httpClient;
+    private Request request;
+
+    /**
+     * Delay of a response in milliseconds by its number, starting from 1.
+     */
+    private volatile int[] delays = new int[0];
+
+    @Before
+    public void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                int number = received.incrementAndGet();
+                int[] delays = HedgingPolicyTest.this.delays;
+                try {
+                    Thread.sleep(number <= delays.length ? delays[number - 1] : 0);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                byte[] body = String.valueOf(number).getBytes(StandardCharsets.UTF_8);
+                exchange.sendResponseHeaders(200, body.length);
+                OutputStream stream = exchange.getResponseBody();
+                try {
+                    stream.write(body);
+                } finally {
+                    exchange.close();
+                }
+            }
+        });
+        serverExecutor = Executors.newCachedThreadPool();
+        server.setExecutor(serverExecutor);
+        server.start();
+
+        httpClient = new OkHttpClient.Builder()
+                .eventListener(new EventListener() {
+                    @Override
+                    public void callFailed(Call call, IOException ioe) {
+                        failedCalls.countDown();
+                    }
+                })
+                .build();
+        request = new Request.Builder()
+                .url("http://" + server.getAddress().getHostString() + ":" + server.getAddress().getPort() + "/")
+                .build();
+    }
+
+    @After
+    public void tearDown() {
+        server.stop(0);
+        serverExecutor.shutdownNow();
+    }
+
+    @Test
+    public void zeroDelayHedgesImmediately() throws IOException {
+        delays = new int[]{2000, 0};
+        HedgingPolicy policy = new HedgingPolicy.Builder()
+                .setDelayBounds(0, 2000)
+                .setInitialDelay(0)
+                .create();
+
+        long started = System.nanoTime();
+        Response response = policy.execute(httpClient, request, null);
+        try {
+            assertEquals("2", response.body().string());
+        } finally {
+            response.close();
+        }
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started) < 1000);
+        // both attempts are sent at once, so either of them may reach the server first
+        assertEquals(1, policy.getHedged());
+    }
+
+    @Test
+    public void hedgesAreLimitedByBudget() throws IOException {
+        delays = new int[]{200, 0, 200, 200};
+        HedgingPolicy policy = new HedgingPolicy.Builder()
+                .setDelayBounds(10, 10)
+                .setBudget(0)
+                .setMaxBurst(1)
+                .create();
+
+        for (int i = 0; i < 3; ++i) {
+            policy.execute(httpClient, request, null).close();
+        }
+        assertEquals(1, policy.getHedged());
+        assertEquals(4, received.get());
+    }
+
+    @Test
+    public void losingAttemptIsCancelled() throws Exception {
+        delays = new int[]{1000, 0};
+        HedgingPolicy policy = new HedgingPolicy.Builder()
+                .setDelayBounds(10, 10)
+                .create();
+
+        Response response = policy.execute(httpClient, request, null);
+        try {
+            assertEquals("2", response.body().string());
+        } finally {
+            response.close();
+        }
+        assertTrue("losing attempt is not cancelled", failedCalls.await(500, TimeUnit.MILLISECONDS));
+        assertEquals(1, policy.getHedgeWins());
+    }
+}
@@ -0,0 +1,180 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2020 NBCO YooMoney LLC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.yoo.money.api.net.clients;
+
+import com.yoo.money.api.exceptions.CallCancelledException;
+import com.yoo.money.api.net.CallContext;
+import com.yoo.money.api.net.clients.RequestScheduler.Lane;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class RequestSchedulerTest {
+
+    private ExecutorService executor;
+
+    @Before
+    public void setUp() {
+        executor = Executors.newCachedThreadPool();
+    }
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void lanesAreDequeuedByWeight() throws Exception {
+        RequestScheduler scheduler = new RequestScheduler.Builder()
+                .setMaxConcurrency(1)
+                .create();
+        scheduler.acquire(Lane.NORMAL, null);
+
+        List<Lane> granted = Collections.synchronizedList(new ArrayList<Lane>());
+        List<Future<Void>> futures = new ArrayList<>();
+        for (int i = 0; i < 9; ++i) {
+            futures.add(submit(scheduler, Lane.INTERACTIVE, null, granted));
+            futures.add(submit(scheduler, Lane.BULK, null, granted));
+        }
+        awaitQueued(scheduler, Lane.INTERACTIVE, 9);
+        awaitQueued(scheduler, Lane.BULK, 9);
+
+        scheduler.release(Lane.NORMAL);
+        for (Future<Void> future : futures) {
+            future.get(5, TimeUnit.SECONDS);
+        }
+
+        // weights are 8 for interactive lane and 1 for bulk lane
+        assertEquals(18, granted.size());
+        assertEquals(8, Collections.frequency(granted.subList(0, 9), Lane.INTERACTIVE));
+        assertEquals(1, Collections.frequency(granted.subList(0, 9), Lane.BULK));
+        assertEquals(0, scheduler.getInFlight(Lane.INTERACTIVE) + scheduler.getInFlight(Lane.BULK));
+    }
+
+    @Test
+    public void laneLimitIsRespected() throws Exception {
+        RequestScheduler scheduler = new RequestScheduler.Builder()
+                .setLimit(Lane.BULK, 1)
+                .create();
+        scheduler.acquire(Lane.BULK, null);
+
+        Future<Void> bulk = submit(scheduler, Lane.BULK, null, null);
+        awaitQueued(scheduler, Lane.BULK, 1);
+        scheduler.acquire(Lane.NORMAL, null);
+        assertFalse(bulk.isDone());
+
+        scheduler.release(Lane.BULK);
+        bulk.get(5, TimeUnit.SECONDS);
+        scheduler.release(Lane.NORMAL);
+        assertEquals(0, scheduler.getInFlight(Lane.BULK));
+    }
+
+    @Test
+    public void cancelledWaiterLeavesQueue() throws Exception {
+        RequestScheduler scheduler = new RequestScheduler.Builder()
+                .setMaxConcurrency(1)
+                .create();
+        scheduler.acquire(Lane.NORMAL, null);
+
+        CallContext context = CallContext.create();
+        Future<Void> waiter = submit(scheduler, Lane.INTERACTIVE, context, null);
+        awaitQueued(scheduler, Lane.INTERACTIVE, 1);
+
+        context.cancel();
+        assertFalse(getCancelled(waiter).deadlineExceeded);
+        assertEquals(0, scheduler.getQueued(Lane.INTERACTIVE));
+
+        scheduler.release(Lane.NORMAL);
+        assertEquals(0, scheduler.getInFlight(Lane.INTERACTIVE));
+        assertEquals(0, scheduler.getInFlight(Lane.NORMAL));
+    }
+
+    @Test
+    public void expiredWaiterLeavesQueue() throws Exception {
+        RequestScheduler scheduler = new RequestScheduler.Builder()
+                .setMaxConcurrency(1)
+                .create();
+        scheduler.acquire(Lane.NORMAL, null);
+
+        Future<Void> waiter = submit(scheduler, Lane.INTERACTIVE,
+                CallContext.withTimeout(50, TimeUnit.MILLISECONDS), null);
+
+        assertTrue(getCancelled(waiter).deadlineExceeded);
+        assertEquals(0, scheduler.getQueued(Lane.INTERACTIVE));
+        scheduler.release(Lane.NORMAL);
+        assertEquals(0, scheduler.getInFlight(Lane.INTERACTIVE));
+    }
+
+    private Future<Void> submit(final RequestScheduler scheduler, final Lane lane, final CallContext context,
+                                final List<Lane> granted) {
+        return executor.submit(new Callable<Void>() {
+            @Override
+            public Void call() throws Exception {
+                scheduler.acquire(lane, context);
+                if (granted != null) {
+                    granted.add(lane);
+                }
+                scheduler.release(lane);
+                return null;
+            }
+        });
+    }
+
+    private static void awaitQueued(RequestScheduler scheduler, Lane lane, int count) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (scheduler.getQueued(lane) < count) {
+            assertTrue("requests are not queued", System.nanoTime() < deadline);
+            Thread.sleep(1);
+        }
+    }
+
+    private static CallCancelledException getCancelled(Future<?> future) throws Exception {
+        try {
+            future.get(5, TimeUnit.SECONDS);
+            fail("waiter should have been cancelled");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof CallCancelledException) {
+                return (CallCancelledException) e.getCause();
+            }
+            throw e;
+        }
+        return null;
+    }
+}
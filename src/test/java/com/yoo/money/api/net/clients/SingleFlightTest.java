@@ -0,0 +1,258 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2020 NBCO YooMoney LLC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.yoo.money.api.net.clients;
+
+import com.yoo.money.api.exceptions.CallCancelledException;
+import com.yoo.money.api.net.ApiRequest;
+import com.yoo.money.api.net.CallContext;
+import com.yoo.money.api.net.FirstApiRequest;
+import com.yoo.money.api.net.providers.HostsProvider;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class SingleFlightTest {
+
+    private static final String URL = "https://money.test/api/account-info";
+    private static final int WAITERS = 3;
+
+    private final ApiRequest<String> request = new FirstApiRequest<String>(String.class) {
+        @Override
+        protected String requestUrlBase(HostsProvider hostsProvider) {
+            return URL;
+        }
+    };
+
+    private SingleFlight singleFlight;
+    private ExecutorService executor;
+
+    @Before
+    public void setUp() {
+        singleFlight = new SingleFlight();
+        executor = Executors.newCachedThreadPool();
+    }
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void identicalRequestsAreCoalesced() throws Exception {
+        final CountDownLatch release = new CountDownLatch(1);
+        Future<String> leader = submit(new Callable<String>() {
+            @Override
+            public String call() throws Exception {
+                release.await();
+                return "result";
+            }
+        });
+        awaitInFlight();
+        List<Future<String>> waiters = submitWaiters();
+        awaitWaiting(WAITERS);
+
+        release.countDown();
+        assertEquals("result", leader.get(5, TimeUnit.SECONDS));
+        for (Future<String> waiter : waiters) {
+            assertEquals("result", waiter.get(5, TimeUnit.SECONDS));
+        }
+        assertEquals(1, singleFlight.getExecuted());
+        assertEquals(WAITERS, singleFlight.getCoalesced());
+        assertEquals(0, singleFlight.getInFlight());
+    }
+
+    @Test
+    public void waitersGetTheirOwnExceptions() throws Exception {
+        final CountDownLatch release = new CountDownLatch(1);
+        final IOException failure = new IOException("unavailable");
+        Future<String> leader = submit(new Callable<String>() {
+            @Override
+            public String call() throws Exception {
+                release.await();
+                throw failure;
+            }
+        });
+        awaitInFlight();
+        List<Future<String>> waiters = submitWaiters();
+        awaitWaiting(WAITERS);
+
+        release.countDown();
+        assertSame(failure, getException(leader));
+        List<Throwable> exceptions = new ArrayList<>();
+        for (Future<String> waiter : waiters) {
+            Throwable exception = getException(waiter);
+            assertEquals(IOException.class, exception.getClass());
+            assertEquals("unavailable", exception.getMessage());
+            assertSame(failure, exception.getCause());
+            for (Throwable other : exceptions) {
+                assertNotSame(other, exception);
+            }
+            exceptions.add(exception);
+        }
+    }
+
+    @Test
+    public void requestIsExecutedAgainWhenLeaderIsInterrupted() throws Exception {
+        final CountDownLatch release = new CountDownLatch(1);
+        final AtomicInteger calls = new AtomicInteger();
+        Callable<String> callable = new Callable<String>() {
+            @Override
+            public String call() throws Exception {
+                if (calls.incrementAndGet() == 1) {
+                    release.await();
+                    throw new InterruptedIOException("interrupted");
+                }
+                return "again";
+            }
+        };
+        Future<String> leader = submit(callable);
+        awaitInFlight();
+        List<Future<String>> waiters = new ArrayList<>();
+        for (int i = 0; i < WAITERS; ++i) {
+            waiters.add(submit(callable));
+        }
+        awaitWaiting(WAITERS);
+
+        release.countDown();
+        assertTrue(getException(leader) instanceof InterruptedIOException);
+        for (Future<String> waiter : waiters) {
+            assertEquals("again", waiter.get(5, TimeUnit.SECONDS));
+        }
+        assertTrue(singleFlight.getExecuted() >= 2);
+        assertEquals(1 + WAITERS, singleFlight.getExecuted() + singleFlight.getCoalesced());
+    }
+
+    @Test
+    public void waiterStopsWaitingWhenItsContextExpires() throws Exception {
+        final CountDownLatch release = new CountDownLatch(1);
+        Future<String> leader = submit(new Callable<String>() {
+            @Override
+            public String call() throws Exception {
+                release.await();
+                return "result";
+            }
+        });
+        awaitInFlight();
+
+        try {
+            CallContext.withTimeout(50, TimeUnit.MILLISECONDS).call(new Callable<String>() {
+                @Override
+                public String call() throws Exception {
+                    return singleFlight.execute(request, URL, null, null);
+                }
+            });
+            fail("waiter should have been cancelled");
+        } catch (CallCancelledException e) {
+            assertTrue(e.deadlineExceeded);
+        }
+
+        release.countDown();
+        assertEquals("result", leader.get(5, TimeUnit.SECONDS));
+    }
+
+    private Future<String> submit(final Callable<String> callable) {
+        return executor.submit(new Callable<String>() {
+            @Override
+            public String call() throws Exception {
+                return singleFlight.execute(request, URL, null, callable);
+            }
+        });
+    }
+
+    private List<Future<String>> submitWaiters() {
+        List<Future<String>> waiters = new ArrayList<>();
+        for (int i = 0; i < WAITERS; ++i) {
+            waiters.add(submit(new Callable<String>() {
+                @Override
+                public String call() {
+                    throw new AssertionError("request should not be executed by a waiter");
+                }
+            }));
+        }
+        return waiters;
+    }
+
+    private void awaitInFlight() throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (singleFlight.getInFlight() == 0) {
+            assertTrue("request is not in flight", System.nanoTime() < deadline);
+            Thread.sleep(1);
+        }
+    }
+
+    /**
+     * Waits until the given number of executor threads are blocked waiting for the leader.
+     */
+    private void awaitWaiting(int count) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (countWaiting() < count) {
+            assertTrue("callers are not waiting", System.nanoTime() < deadline);
+            Thread.sleep(1);
+        }
+    }
+
+    private static int countWaiting() {
+        int count = 0;
+        for (Thread thread : Thread.getAllStackTraces().keySet()) {
+            if (thread.getState() == Thread.State.WAITING) {
+                for (StackTraceElement element : thread.getStackTrace()) {
+                    if (element.getClassName().startsWith(SingleFlight.class.getName() + "$Call")) {
+                        ++count;
+                        break;
+                    }
+                }
+            }
+        }
+        return count;
+    }
+
+    private static Throwable getException(Future<?> future) throws Exception {
+        try {
+            future.get(5, TimeUnit.SECONDS);
+        } catch (ExecutionException e) {
+            return e.getCause();
+        }
+        throw new AssertionError("exception expected");
+    }
+}
@@ -0,0 +1,371 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2020 NBCO YooMoney LLC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.yoo.money.api.processes;
+
+import com.yoo.money.api.authorization.AuthorizationData;
+import com.yoo.money.api.authorization.AuthorizationParameters;
+import com.yoo.money.api.methods.payment.BaseRequestPayment;
+import com.yoo.money.api.methods.payment.RequestPayment;
+import com.yoo.money.api.model.MoneySource;
+import com.yoo.money.api.net.ApiRequest;
+import com.yoo.money.api.net.UserAgent;
+import com.yoo.money.api.net.clients.ApiClient;
+import com.yoo.money.api.net.providers.DefaultApiV1HostsProvider;
+import com.yoo.money.api.net.providers.HostsProvider;
+import com.yoo.money.api.util.Language;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class PaymentJournalTest {
+
+    private File directory;
+    private File file;
+
+    @Before
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("journal").toFile();
+        file = new File(directory, "payments.journal");
+    }
+
+    @After
+    public void tearDown() {
+        File[] files = directory.listFiles();
+        if (files != null) {
+            for (File f : files) {
+                f.delete();
+            }
+        }
+        directory.delete();
+    }
+
+    @Test
+    public void unfinishedProcessesSurviveReopen() throws IOException {
+        PaymentJournal journal = PaymentJournal.open(file);
+        journal.record("1", startedProcess("request-1"));
+        journal.record("2", createdProcess());
+        journal.record("3", startedProcess("request-3"));
+        journal.remove("3");
+        journal.close();
+
+        journal = PaymentJournal.open(file);
+        try {
+            assertEquals(asList("1", "2"), processIds(journal));
+            assertEquals("request-1",
+                    journal.getUnfinished().get(0).getPaymentState().getRequestPayment().requestId);
+        } finally {
+            journal.close();
+        }
+    }
+
+    @Test
+    public void tornTailIsDiscarded() throws IOException {
+        PaymentJournal journal = PaymentJournal.open(file);
+        journal.record("1", startedProcess("request-1"));
+        journal.record("2", startedProcess("request-2"));
+        journal.close();
+
+        // simulates a crash in the middle of the last write
+        truncate(file, file.length() - 3);
+
+        journal = PaymentJournal.open(file);
+        try {
+            assertEquals(asList("1"), processIds(journal));
+            journal.record("3", startedProcess("request-3"));
+        } finally {
+            journal.close();
+        }
+
+        journal = PaymentJournal.open(file);
+        try {
+            assertEquals(asList("1", "3"), processIds(journal));
+        } finally {
+            journal.close();
+        }
+    }
+
+    @Test
+    public void recordsAfterChecksumMismatchAreDiscarded() throws IOException {
+        PaymentJournal journal = PaymentJournal.open(file);
+        journal.record("1", startedProcess("request-1"));
+        journal.record("2", startedProcess("request-2"));
+        journal.close();
+
+        RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        try {
+            long position = file.length() - 1;
+            raf.seek(position);
+            int value = raf.read();
+            raf.seek(position);
+            raf.write(value ^ 0xFF);
+        } finally {
+            raf.close();
+        }
+
+        journal = PaymentJournal.open(file);
+        try {
+            assertEquals(asList("1"), processIds(journal));
+        } finally {
+            journal.close();
+        }
+    }
+
+    @Test
+    public void invalidRecordFailsOpenAndKeepsFile() throws IOException {
+        PaymentJournal journal = PaymentJournal.open(file);
+        journal.record("1", startedProcess("request-1"));
+        journal.close();
+
+        // correctly framed record of unknown type
+        appendFrame(file, new byte[] { 42, 0 });
+        byte[] content = Files.readAllBytes(file.toPath());
+
+        try {
+            PaymentJournal.open(file);
+            fail("IOException expected");
+        } catch (IOException expected) {
+            // expected
+        }
+        assertArrayEquals(content, Files.readAllBytes(file.toPath()));
+    }
+
+    @Test
+    public void failedCompactionKeepsFile() throws IOException {
+        PaymentJournal journal = PaymentJournal.open(file);
+        journal.record("1", startedProcess("request-1"));
+        journal.close();
+        byte[] content = Files.readAllBytes(file.toPath());
+
+        // temporary file can't be created while a directory occupies its path
+        File temp = new File(file.getPath() + ".tmp");
+        assertTrue(temp.mkdir());
+        try {
+            PaymentJournal.open(file);
+            fail("IOException expected");
+        } catch (IOException expected) {
+            // expected
+        }
+        assertArrayEquals(content, Files.readAllBytes(file.toPath()));
+        assertTrue(temp.delete());
+
+        journal = PaymentJournal.open(file);
+        try {
+            assertEquals(asList("1"), processIds(journal));
+        } finally {
+            journal.close();
+        }
+    }
+
+    @Test
+    public void recoverResumesStartedAndDropsCreatedProcesses() throws IOException {
+        PaymentJournal journal = PaymentJournal.open(file);
+        journal.record("1", startedProcess("request-1"));
+        journal.record("2", createdProcess());
+        journal.close();
+
+        final List<String> created = new ArrayList<>();
+        journal = PaymentJournal.open(file);
+        try {
+            Map<String, Exception> failures = journal.recover(new PaymentJournal.ProcessFactory() {
+                @Override
+                public PaymentProcess createPaymentProcess(String processId) {
+                    created.add(processId);
+                    return new PaymentProcess(new OfflineApiClient(), new EmptyParameterProvider());
+                }
+
+                @Override
+                public ExternalPaymentProcess createExternalPaymentProcess(String processId) {
+                    throw new AssertionError("no external payment processes recorded");
+                }
+            });
+
+            assertEquals(asList("1"), created);
+            assertEquals(Collections.singleton("1"), failures.keySet());
+            assertTrue(failures.get("1") instanceof IOException);
+            assertEquals(asList("1"), processIds(journal));
+        } finally {
+            journal.close();
+        }
+
+        journal = PaymentJournal.open(file);
+        try {
+            assertEquals(asList("1"), processIds(journal));
+        } finally {
+            journal.close();
+        }
+        assertFalse(new File(file.getPath() + ".tmp").exists());
+    }
+
+    private static PaymentProcess createdProcess() {
+        return new PaymentProcess(new OfflineApiClient(), new EmptyParameterProvider());
+    }
+
+    private static PaymentProcess startedProcess(String requestId) {
+        RequestPayment requestPayment = (RequestPayment) new RequestPayment.Builder()
+                .setBalance(BigDecimal.TEN)
+                .setStatus(BaseRequestPayment.Status.SUCCESS)
+                .setRequestId(requestId)
+                .setContractAmount(BigDecimal.ONE)
+                .create();
+        PaymentProcess process = createdProcess();
+        process.restoreSavedState(new PaymentProcess.SavedState(requestPayment, null,
+                BasePaymentProcess.State.STARTED));
+        return process;
+    }
+
+    private static List<String> processIds(PaymentJournal journal) {
+        List<String> ids = new ArrayList<>();
+        for (PaymentJournal.Entry entry : journal.getUnfinished()) {
+            ids.add(entry.processId);
+        }
+        return ids;
+    }
+
+    private static List<String> asList(String... values) {
+        List<String> list = new ArrayList<>();
+        Collections.addAll(list, values);
+        return list;
+    }
+
+    private static void truncate(File file, long length) throws IOException {
+        RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        try {
+            raf.setLength(length);
+        } finally {
+            raf.close();
+        }
+    }
+
+    private static void appendFrame(File file, byte[] record) throws IOException {
+        CRC32 crc = new CRC32();
+        crc.update(record, 0, record.length);
+        ByteBuffer buffer = ByteBuffer.allocate(8 + record.length);
+        buffer.putInt(record.length);
+        buffer.putInt((int) crc.getValue());
+        buffer.put(record);
+        RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        try {
+            raf.seek(raf.length());
+            raf.write(buffer.array());
+        } finally {
+            raf.close();
+        }
+    }
+
+    /**
+     * Client which fails every request as if there was no network.
+     */
+    private static final class OfflineApiClient implements ApiClient {
+
+        @Override
+        public String getClientId() {
+            return "client";
+        }
+
+        @Override
+        public Language getLanguage() {
+            return Language.getDefault();
+        }
+
+        @Override
+        public HostsProvider getHostsProvider() {
+            return new DefaultApiV1HostsProvider(false);
+        }
+
+        @Override
+        public UserAgent getUserAgent() {
+            return null;
+        }
+
+        @Override
+        public <T> T execute(ApiRequest<T> request) throws Exception {
+            throw new IOException("offline");
+        }
+
+        @Override
+        public AuthorizationData createAuthorizationData(AuthorizationParameters parameters) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void setAccessToken(String accessToken) {
+        }
+
+        @Override
+        public boolean isAuthorized() {
+            return true;
+        }
+    }
+
+    private static final class EmptyParameterProvider implements IPaymentProcess.ParameterProvider {
+
+        @Override
+        public String getPatternId() {
+            return "p2p";
+        }
+
+        @Override
+        public Map<String, String> getPaymentParameters() {
+            return Collections.emptyMap();
+        }
+
+        @Override
+        public MoneySource getMoneySource() {
+            return null;
+        }
+
+        @Override
+        public String getCsc() {
+            return null;
+        }
+
+        @Override
+        public String getExtAuthSuccessUri() {
+            return null;
+        }
+
+        @Override
+        public String getExtAuthFailUri() {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,205 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2020 NBCO YooMoney LLC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.yoo.money.api.processes;
+
+import com.yoo.money.api.methods.payment.BaseProcessPayment;
+import com.yoo.money.api.methods.payment.BaseRequestPayment;
+import com.yoo.money.api.methods.payment.ProcessExternalPayment;
+import com.yoo.money.api.methods.payment.ProcessPayment;
+import com.yoo.money.api.methods.payment.RequestExternalPayment;
+import com.yoo.money.api.methods.payment.RequestPayment;
+import com.yoo.money.api.model.AccountStatus;
+import com.yoo.money.api.model.Card;
+import com.yoo.money.api.model.CardBrand;
+import com.yoo.money.api.model.DigitalGoods;
+import com.yoo.money.api.model.ExternalCard;
+import com.yoo.money.api.model.Fees;
+import com.yoo.money.api.model.Good;
+import com.yoo.money.api.model.Wallet;
+import com.yoo.money.api.util.BinaryOutput;
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+public class SavedStateCodecTest {
+
+    @Test
+    public void paymentStateRoundTrip() {
+        PaymentProcess.SavedState state = new PaymentProcess.SavedState(requestPayment(), processPayment(),
+                BasePaymentProcess.State.COMPLETED);
+
+        PaymentProcess.SavedState decoded = SavedStateCodec.decodePaymentState(SavedStateCodec.encode(state));
+
+        assertEquals(state.getFlags(), decoded.getFlags());
+        assertEquals(state.getRequestPayment(), decoded.getRequestPayment());
+        assertEquals(state.getProcessPayment(), decoded.getProcessPayment());
+    }
+
+    @Test
+    public void externalPaymentStateRoundTrip() {
+        ExternalPaymentProcess.SavedState state = new ExternalPaymentProcess.SavedState(requestExternalPayment(),
+                processExternalPayment(), BasePaymentProcess.State.PROCESSING);
+
+        ExternalPaymentProcess.SavedState decoded =
+                SavedStateCodec.decodeExternalPaymentState(SavedStateCodec.encode(state));
+
+        assertEquals(state.getFlags(), decoded.getFlags());
+        assertEquals(state.getRequestPayment(), decoded.getRequestPayment());
+        assertEquals(state.getProcessPayment(), decoded.getProcessPayment());
+    }
+
+    @Test
+    public void extendedPaymentStateRoundTrip() {
+        ExtendedPaymentProcess.SavedState state = new ExtendedPaymentProcess.SavedState(
+                new PaymentProcess.SavedState(requestPayment(), null, BasePaymentProcess.State.STARTED),
+                new ExternalPaymentProcess.SavedState(null, null, BasePaymentProcess.State.CREATED),
+                ExtendedPaymentProcess.PaymentContext.EXTERNAL_PAYMENT, true);
+
+        ExtendedPaymentProcess.SavedState decoded =
+                SavedStateCodec.decodeExtendedPaymentState(SavedStateCodec.encode(state));
+
+        assertEquals(state.getFlags(), decoded.getFlags());
+        assertEquals(state.paymentProcessSavedState.getRequestPayment(),
+                decoded.paymentProcessSavedState.getRequestPayment());
+        assertNull(decoded.paymentProcessSavedState.getProcessPayment());
+        assertEquals(state.paymentProcessSavedState.getFlags(), decoded.paymentProcessSavedState.getFlags());
+        assertNull(decoded.externalPaymentProcessSavedState.getRequestPayment());
+        assertEquals(state.externalPaymentProcessSavedState.getFlags(),
+                decoded.externalPaymentProcessSavedState.getFlags());
+    }
+
+    @Test
+    public void truncatedStateIsRejected() {
+        byte[] bytes = SavedStateCodec.encode(new PaymentProcess.SavedState(requestPayment(), processPayment(),
+                BasePaymentProcess.State.COMPLETED));
+        for (int length = 0; length < bytes.length; ++length) {
+            try {
+                SavedStateCodec.decodePaymentState(Arrays.copyOf(bytes, length));
+                fail("truncated state of " + length + " bytes is decoded");
+            } catch (IllegalArgumentException expected) {
+                // expected
+            }
+        }
+    }
+
+    @Test
+    public void malformedCountIsRejected() {
+        byte[] bytes = encodeWithAcsParams(null);
+
+        // encoded states differ in the count of ACS parameters only
+        byte[] withParams = encodeWithAcsParams(Collections.singletonMap("MD", "md"));
+        int offset = 0;
+        while (bytes[offset] == withParams[offset]) {
+            ++offset;
+        }
+        BinaryOutput output = new BinaryOutput(bytes.length + 8)
+                .writeBytes(Arrays.copyOf(bytes, offset))
+                .writeVarInt(Integer.MAX_VALUE);
+        try {
+            SavedStateCodec.decodeExternalPaymentState(output.toByteArray());
+            fail("malformed count is accepted");
+        } catch (IllegalArgumentException expected) {
+            assertEquals("malformed count: " + (Integer.MAX_VALUE - 1), expected.getMessage());
+        }
+    }
+
+    private static byte[] encodeWithAcsParams(Map<String, String> acsParams) {
+        ProcessExternalPayment.Builder builder = new ProcessExternalPayment.Builder();
+        builder.setStatus(BaseProcessPayment.Status.SUCCESS)
+                .setAcsParams(acsParams);
+        return SavedStateCodec.encode(new ExternalPaymentProcess.SavedState(requestExternalPayment(),
+                builder.create(), BasePaymentProcess.State.COMPLETED));
+    }
+
+    private static RequestPayment requestPayment() {
+        RequestPayment.Builder builder = new RequestPayment.Builder();
+        builder.setStatus(BaseRequestPayment.Status.SUCCESS)
+                .setRequestId("request-1")
+                .setContractAmount(new BigDecimal("100.50"))
+                .setTitle("Payment")
+                .setFees(new Fees(new BigDecimal("0.50"), BigDecimal.ZERO));
+        builder.setMoneySources(new RequestPayment.MoneySource(new Wallet(true),
+                new RequestPayment.Cards(true, true, Collections.singletonList(new Card.Builder()
+                        .setId("card-1")
+                        .setPanFragment("5555 **** **** 4444")
+                        .setType(CardBrand.MASTER_CARD)
+                        .create()))))
+                .setBalance(new BigDecimal("1000.00"))
+                .setRecipientAccountStatus(AccountStatus.IDENTIFIED)
+                .setProtectionCode("1234")
+                .setMultipleRecipientsFound(false);
+        return builder.create();
+    }
+
+    private static ProcessPayment processPayment() {
+        Map<String, String> acsParams = new HashMap<>();
+        acsParams.put("MD", "md");
+        acsParams.put("PaReq", "request");
+
+        ProcessPayment.Builder builder = new ProcessPayment.Builder();
+        builder.setStatus(BaseProcessPayment.Status.SUCCESS)
+                .setInvoiceId("invoice-1")
+                .setAcsUri("https://acs.test/")
+                .setAcsParams(acsParams)
+                .setNextRetry(5000);
+        builder.setPaymentId("payment-1")
+                .setBalance(new BigDecimal("899.50"))
+                .setPayee("410011234567")
+                .setCreditAmount(new BigDecimal("100.00"))
+                .setDigitalGoods(new DigitalGoods(
+                        Collections.singletonList(new Good("serial", "secret", "article")),
+                        Collections.<Good>emptyList()));
+        return builder.create();
+    }
+
+    private static RequestExternalPayment requestExternalPayment() {
+        RequestExternalPayment.Builder builder = new RequestExternalPayment.Builder();
+        builder.setStatus(BaseRequestPayment.Status.SUCCESS)
+                .setRequestId("request-2")
+                .setContractAmount(BigDecimal.TEN);
+        return builder.create();
+    }
+
+    private static ProcessExternalPayment processExternalPayment() {
+        ProcessExternalPayment.Builder builder = new ProcessExternalPayment.Builder();
+        builder.setStatus(BaseProcessPayment.Status.EXT_AUTH_REQUIRED)
+                .setAcsUri("https://acs.test/");
+        builder.setExternalCard(new ExternalCard.Builder()
+                .setType(CardBrand.VISA)
+                .setPanFragment("4444 **** **** 1111")
+                .setFundingSourceType("payment-card")
+                .setMoneySourceToken("token")
+                .create());
+        return builder.create();
+    }
+}